@@ -0,0 +1,157 @@
+package uk.co.abank.stocks.calculators;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import uk.co.abank.stocks.dataobjects.SymbolDictionary;
+
+/**
+ * Keeps the GBCE All Share Index, the geometric mean of the prices of all the stocks,
+ * up to date as the price of each stock changes
+ * Holds the log of each stock price and a running sum of the logs, so a change in
+ * one price is O(1) and the index is the exponential of the mean of the logs.
+ * Working in logs means the index doesn't overflow or underflow however many stocks
+ * there are, the running sum is compensated (Neumaier) so it stays accurate over
+ * a large number of updates
+ * The logs are held in an array indexed by the stock symbol id from
+ * {@link SymbolDictionary#global()} rather than a map keyed by the symbol
+ * @author JohnM
+ *
+ */
+public class AllShareIndexEngine {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final SymbolDictionary symbolDictionary = SymbolDictionary.global();
+
+	private double[] logPrices = new double[INITIAL_CAPACITY];
+	private boolean[] constituents = new boolean[INITIAL_CAPACITY];
+	private int constituentCount;
+
+	private double sumLogPrices;
+	private double compensation;
+
+	/**
+	 * Sets the price of one stock, adding it to the index if it isn't already in it
+	 * @param stockSymbol
+	 * @param stockPrice must be greater than zero
+	 */
+	public void updatePrice(String stockSymbol, double stockPrice) {
+		updatePrice(symbolDictionary.getId(stockSymbol), stockPrice);
+	}
+
+	/**
+	 * Same as {@link #updatePrice(String, double)} without looking up the symbol
+	 * @param stockSymbolId the id from {@link SymbolDictionary#global()}
+	 * @param stockPrice must be greater than zero
+	 */
+	public synchronized void updatePrice(int stockSymbolId, double stockPrice) {
+		double logPrice = logPrice(stockSymbolId, stockPrice);
+		ensureCapacity(stockSymbolId);
+		if (!constituents[stockSymbolId]) {
+			constituents[stockSymbolId] = true;
+			constituentCount++;
+			add(logPrice);
+		} else {
+			add(logPrice - logPrices[stockSymbolId]);
+		}
+		logPrices[stockSymbolId] = logPrice;
+	}
+
+	/**
+	 * Takes the stock out of the index
+	 * @param stockSymbol
+	 */
+	public synchronized void removeConstituent(String stockSymbol) {
+		int stockSymbolId = symbolDictionary.findId(stockSymbol);
+		if (stockSymbolId < 0 || stockSymbolId >= constituents.length || !constituents[stockSymbolId])
+			return;
+		constituents[stockSymbolId] = false;
+		constituentCount--;
+		add(-logPrices[stockSymbolId]);
+		logPrices[stockSymbolId] = 0D;
+	}
+
+	/**
+	 * Replaces all the prices in the index, the logs are worked out and summed
+	 * using parallel streams, the sum is compensated
+	 * @param stockPrices the price for each stock, each must be greater than zero
+	 */
+	public synchronized void rebuild(Map<String, ? extends Number> stockPrices) {
+		int[] stockSymbolIds = new int[stockPrices.size()];
+		double[] prices = new double[stockPrices.size()];
+		int i = 0;
+		for (Map.Entry<String, ? extends Number> stockPrice : stockPrices.entrySet()) {
+			stockSymbolIds[i] = symbolDictionary.getId(stockPrice.getKey());
+			prices[i] = stockPrice.getValue().doubleValue();
+			i++;
+		}
+		double[] logs = IntStream.range(0, prices.length)
+				.parallel()
+				.mapToDouble(j -> logPrice(stockSymbolIds[j], prices[j]))
+				.toArray();
+
+		int capacity = Math.max(INITIAL_CAPACITY, symbolDictionary.size());
+		double[] rebuiltLogPrices = new double[capacity];
+		boolean[] rebuiltConstituents = new boolean[capacity];
+		for (int j = 0; j < logs.length; j++) {
+			rebuiltLogPrices[stockSymbolIds[j]] = logs[j];
+			rebuiltConstituents[stockSymbolIds[j]] = true;
+		}
+		logPrices = rebuiltLogPrices;
+		constituents = rebuiltConstituents;
+		constituentCount = logs.length;
+		sumLogPrices = Arrays.stream(logs)
+				.parallel()
+				.sum();
+		compensation = 0D;
+	}
+
+	/**
+	 *
+	 * @return the All Share Index, not rounded
+	 * @throws IllegalArgumentException if there are no stocks in the index
+	 */
+	public synchronized double getIndex() {
+		if (constituentCount == 0)
+			throw new IllegalArgumentException("There are no Share Prices");
+		return Math.exp((sumLogPrices + compensation) / constituentCount);
+	}
+
+	/**
+	 *
+	 * @return the number of stocks in the index
+	 */
+	public synchronized int getConstituentCount() {
+		return constituentCount;
+	}
+
+	/**
+	 * Neumaier summation, keeps the low order bits lost when adding to the running sum
+	 */
+	private void add(double value) {
+		double sum = sumLogPrices + value;
+		if (Math.abs(sumLogPrices) >= Math.abs(value)) {
+			compensation += (sumLogPrices - sum) + value;
+		} else {
+			compensation += (value - sum) + sumLogPrices;
+		}
+		sumLogPrices = sum;
+	}
+
+	private void ensureCapacity(int stockSymbolId) {
+		if (stockSymbolId < logPrices.length)
+			return;
+		int capacity = Math.max(logPrices.length << 1, stockSymbolId + 1);
+		logPrices = Arrays.copyOf(logPrices, capacity);
+		constituents = Arrays.copyOf(constituents, capacity);
+	}
+
+	private double logPrice(int stockSymbolId, double stockPrice) {
+		if (!(stockPrice > 0D))
+			throw new IllegalArgumentException("Share price must be greater than zero " 
+					+ symbolDictionary.getSymbol(stockSymbolId) + " " + stockPrice);
+		return Math.log(stockPrice);
+	}
+}
@@ -0,0 +1,15 @@
+package uk.co.abank.stocks.calculators;
+
+/**
+ * Interface to be told when the All Share Index has been recalculated
+ * @author JohnM
+ *
+ */
+public interface AllShareIndexListener {
+
+	/**
+	 * Called with the new All Share Index, not rounded
+	 * @param allShareIndex
+	 */
+	void onAllShareIndex(double allShareIndex);
+}
@@ -0,0 +1,184 @@
+package uk.co.abank.stocks.calculators;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the GBCE All Share Index up to date from the stock prices coming out of the
+ * {@link SlidingWindowStockPriceEngine} and pushes it to the {@link AllShareIndexListener}'s
+ * The stock prices are only held until the next tick, so a burst of trades is one
+ * recalculation of the index and only the stocks whose price changed are updated
+ * Nothing is recalculated on a tick where no prices have changed
+ * Given the {@link SlidingWindowStockPriceEngine} the windows are expired on each tick
+ * and a stock with no trades left in the window is taken out of the index
+ * A price the index turns away or a listener that throws is counted in
+ * {@link #getFailures()} and the tick carries on
+ * @author JohnM
+ *
+ */
+public class AllShareIndexPublisher implements StockPriceListener, Closeable {
+
+	// held in the pending prices for a stock to be taken out of the index
+	private static final Double REMOVED = Double.NaN;
+
+	private final AllShareIndexEngine allShareIndexEngine;
+	private final SlidingWindowStockPriceEngine stockPriceEngine;
+	private final ConcurrentMap<String, Double> pendingPrices = new ConcurrentHashMap<>();
+	private final List<AllShareIndexListener> allShareIndexListeners = new CopyOnWriteArrayList<>();
+	private final ScheduledExecutorService scheduler;
+	private final AtomicLong failures = new AtomicLong();
+
+	/**
+	 * Constructor, starts the tick on its own thread, the stocks are only taken out
+	 * of the index when told by {@link #onStockPriceRemoved(String)}
+	 * @param allShareIndexEngine holds the prices in the index
+	 * @param tick how often the index is recalculated if the prices have changed
+	 * @param unit
+	 */
+	public AllShareIndexPublisher(AllShareIndexEngine allShareIndexEngine, long tick, TimeUnit unit) {
+		this(allShareIndexEngine, null, tick, unit);
+	}
+
+	/**
+	 * Constructor, listens to the stock prices from the engine and starts the tick on its own thread
+	 * @param allShareIndexEngine holds the prices in the index
+	 * @param stockPriceEngine its windows are expired on each tick so the stocks that have
+	 * stopped trading are taken out of the index
+	 * @param tick how often the index is recalculated if the prices have changed
+	 * @param unit
+	 */
+	public AllShareIndexPublisher(AllShareIndexEngine allShareIndexEngine, SlidingWindowStockPriceEngine stockPriceEngine,
+			long tick, TimeUnit unit) {
+		if (tick <= 0)
+			throw new IllegalArgumentException("Tick must be greater than zero " + tick);
+		this.allShareIndexEngine = allShareIndexEngine;
+		this.stockPriceEngine = stockPriceEngine;
+		if (stockPriceEngine != null)
+			stockPriceEngine.addStockPriceListener(this);
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "all-share-index-publisher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleAtFixedRate(this::tick, tick, tick, unit);
+	}
+
+	/**
+	 * 
+	 * @param allShareIndexListener told each time the index is recalculated, on the tick
+	 * thread, an exception is counted and the other listeners are still told
+	 */
+	public void addAllShareIndexListener(AllShareIndexListener allShareIndexListener) {
+		allShareIndexListeners.add(allShareIndexListener);
+	}
+
+	/**
+	 * 
+	 * @param allShareIndexListener
+	 */
+	public void removeAllShareIndexListener(AllShareIndexListener allShareIndexListener) {
+		allShareIndexListeners.remove(allShareIndexListener);
+	}
+
+	/**
+	 * Holds on to the latest price for the stock until the next tick
+	 * @see {@link StockPriceListener}
+	 */
+	@Override
+	public void onStockPrice(String stockSymbol, double stockPrice) {
+		pendingPrices.put(stockSymbol, stockPrice);
+	}
+
+	/**
+	 * The stock is taken out of the index on the next tick
+	 * @see {@link StockPriceListener}
+	 */
+	@Override
+	public void onStockPriceRemoved(String stockSymbol) {
+		pendingPrices.put(stockSymbol, REMOVED);
+	}
+
+	/**
+	 * Applies the prices that have changed since the last tick to the index and
+	 * pushes the new index to the listeners, called on each tick
+	 * @return <code>true</code> if the index was recalculated
+	 */
+	public boolean publish() {
+		if (stockPriceEngine != null)
+			stockPriceEngine.expireWindows();
+		if (pendingPrices.isEmpty())
+			return false;
+
+		double allShareIndex;
+		synchronized (allShareIndexEngine) {
+			for (Map.Entry<String, Double> pendingPrice : pendingPrices.entrySet()) {
+				try {
+					if (REMOVED.equals(pendingPrice.getValue()))
+						allShareIndexEngine.removeConstituent(pendingPrice.getKey());
+					else
+						allShareIndexEngine.updatePrice(pendingPrice.getKey(), pendingPrice.getValue());
+				} catch (RuntimeException e) {
+					// e.g. a price of zero, it would be turned away on every tick so isn't kept
+					failures.incrementAndGet();
+				}
+				// only removed once applied, and only if the price wasn't changed again while applying it
+				pendingPrices.remove(pendingPrice.getKey(), pendingPrice.getValue());
+			}
+			if (allShareIndexEngine.getConstituentCount() == 0)
+				return false;
+			allShareIndex = allShareIndexEngine.getIndex();
+		}
+
+		for (AllShareIndexListener allShareIndexListener : allShareIndexListeners) {
+			try {
+				allShareIndexListener.onAllShareIndex(allShareIndex);
+			} catch (RuntimeException e) {
+				failures.incrementAndGet();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * An exception out of the scheduled task would cancel every later tick
+	 */
+	private void tick() {
+		try {
+			publish();
+		} catch (RuntimeException e) {
+			failures.incrementAndGet();
+		}
+	}
+
+	/**
+	 *
+	 * @return the number of prices turned away by the index and exceptions from the listeners
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * 
+	 * @return the All Share Index as of the last tick
+	 */
+	public double getIndex() {
+		return allShareIndexEngine.getIndex();
+	}
+
+	/**
+	 * Stops the tick
+	 */
+	@Override
+	public void close() {
+		scheduler.shutdownNow();
+	}
+}
@@ -0,0 +1,38 @@
+package uk.co.abank.stocks.calculators;
+
+/**
+ * The fixed bucket sizes kept by the {@link OhlcvAggregator}, each one is a
+ * whole number of the one below so a window can be made up from the largest
+ * buckets that fit and the smaller ones at the edges
+ * @author JohnM
+ *
+ */
+public enum BarInterval {
+
+	ONE_SECOND(1_000_000_000L),
+	ONE_MINUTE(60_000_000_000L),
+	FIVE_MINUTES(300_000_000_000L);
+
+	private final long nanos;
+
+	private BarInterval(long nanos) {
+		this.nanos = nanos;
+	}
+
+	/**
+	 *
+	 * @return the length of the bucket in nanoseconds
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+
+	/**
+	 *
+	 * @param epochNanos nanoseconds since the epoch
+	 * @return the start of the bucket the time falls in
+	 */
+	public long bucketStart(long epochNanos) {
+		return Math.floorDiv(epochNanos, nanos) * nanos;
+	}
+}
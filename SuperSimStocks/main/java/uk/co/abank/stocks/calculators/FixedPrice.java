@@ -0,0 +1,124 @@
+package uk.co.abank.stocks.calculators;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Prices, yields and ratios held as a long scaled by 100,000 i.e. to 5dp
+ * so 1.23456 is held as 123456
+ * The calculators work in these so a result is worked out exactly from the longs
+ * and rounded half up once, without going through a double and without creating
+ * an object, a {@link BigDecimal} is only made when the result is handed back
+ * @author JohnM
+ *
+ */
+public final class FixedPrice {
+
+	/**
+	 * Number of decimal places held
+	 */
+	public static final int SCALE = 5;
+
+	/**
+	 * 1 as a fixed price
+	 */
+	public static final long ONE = 100_000L;
+
+	private FixedPrice() {
+	}
+
+	/**
+	 * Works out numerator/denominator to 5dp rounding half up, exactly
+	 * @param numerator
+	 * @param denominator must not be zero
+	 * @return the fixed price
+	 * @throws IllegalArgumentException if the denominator is zero or the result doesn't fit
+	 */
+	public static long ofRatio(long numerator, long denominator) {
+		if (denominator == 0)
+			throw new IllegalArgumentException("Denominator is zero " + numerator + "/" + denominator);
+		if (denominator < 0) {
+			if (numerator == Long.MIN_VALUE || denominator == Long.MIN_VALUE)
+				return ofRatioBigDecimal(numerator, denominator);
+			numerator = -numerator;
+			denominator = -denominator;
+		}
+		// whole part and remainder so numerator*ONE doesn't overflow
+		long whole = numerator / denominator;
+		long remainder = numerator % denominator;
+		if (denominator > Long.MAX_VALUE / ONE)
+			return ofRatioBigDecimal(numerator, denominator);
+		long scaledRemainder = remainder * ONE;
+		long fraction = scaledRemainder / denominator;
+		long fractionRemainder = Math.abs(scaledRemainder % denominator);
+		// half up, away from zero
+		if (fractionRemainder >= denominator - fractionRemainder)
+			fraction += remainder < 0 ? -1 : 1;
+		try {
+			return Math.addExact(Math.multiplyExact(whole, ONE), fraction);
+		} catch (ArithmeticException e) {
+			throw new IllegalArgumentException("Price overflows " + SCALE + "dp " + numerator + "/" + denominator);
+		}
+	}
+
+	/**
+	 * Rounds a double to 5dp half up, for results like the All Share Index that
+	 * can only be worked out in doubles
+	 * @param number
+	 * @return the fixed price
+	 * @throws IllegalArgumentException if the number is not finite or doesn't fit
+	 */
+	public static long ofDouble(double number) {
+		double scaled = number * ONE;
+		if (Double.isNaN(scaled) || Math.abs(scaled) >= Long.MAX_VALUE)
+			throw new IllegalArgumentException("Price can't be held to " + SCALE + "dp " + number);
+		return Math.round(scaled);
+	}
+
+	/**
+	 * Rounds to a whole number half up
+	 * @param fixedPrice
+	 * @return
+	 */
+	public static long toLong(long fixedPrice) {
+		long whole = fixedPrice / ONE;
+		long fraction = fixedPrice % ONE;
+		if (fraction >= ONE / 2)
+			return whole + 1;
+		if (fraction <= -ONE / 2)
+			return whole - 1;
+		return whole;
+	}
+
+	/**
+	 * Only for display or logging, the value isn't exact
+	 * @param fixedPrice
+	 * @return
+	 */
+	public static double toDouble(long fixedPrice) {
+		return (double)fixedPrice / ONE;
+	}
+
+	/**
+	 *
+	 * @param fixedPrice
+	 * @return the fixed price with a scale of 5
+	 */
+	public static BigDecimal toBigDecimal(long fixedPrice) {
+		return BigDecimal.valueOf(fixedPrice, SCALE);
+	}
+
+	/**
+	 * Only used when the denominator is too big to scale the remainder in a long
+	 */
+	private static long ofRatioBigDecimal(long numerator, long denominator) {
+		try {
+			return BigDecimal.valueOf(numerator)
+					.divide(BigDecimal.valueOf(denominator), SCALE, RoundingMode.HALF_UP)
+					.unscaledValue()
+					.longValueExact();
+		} catch (ArithmeticException e) {
+			throw new IllegalArgumentException("Price overflows " + SCALE + "dp " + numerator + "/" + denominator);
+		}
+	}
+}
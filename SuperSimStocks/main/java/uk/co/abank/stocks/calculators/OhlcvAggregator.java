@@ -0,0 +1,376 @@
+package uk.co.abank.stocks.calculators;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import uk.co.abank.stocks.dataobjects.SymbolArray;
+import uk.co.abank.stocks.dataobjects.SymbolDictionary;
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.services.TradeListener;
+
+/**
+ * Keeps the open, high, low, close, volume and notional of the trades for each stock
+ * in fixed buckets of each {@link BarInterval}, filled in as the trades are recorded
+ * Add to a {@link uk.co.abank.stocks.services.ListeningTradeService} to get the trades
+ * A window is answered by adding up the buckets in it rather than reading the trades,
+ * the largest buckets that fit are used with smaller ones at the edges so a 15 minute
+ * window is a few 5 minute buckets and at most a few hundred 1 second ones
+ * The buckets don't need the trades once they have been added, so the trades can be
+ * taken out of the trade service while the buckets are kept
+ * Windows are to the second, the start and end are rounded up to the next whole second
+ * The buckets for each stock are held in rings covering the retention time, a
+ * {@link SymbolArray} indexed by the stock symbol id of the trade
+ * @author JohnM
+ *
+ */
+public class OhlcvAggregator implements TradeListener {
+
+	private static final long NANOS_PER_MINUTE = 60_000_000_000L;
+	private static final BarInterval[] LARGEST_FIRST = { BarInterval.FIVE_MINUTES, BarInterval.ONE_MINUTE,
+			BarInterval.ONE_SECOND };
+
+	private final SymbolArray<StockBuckets> bucketsBySymbol = new SymbolArray<>();
+	private final AtomicLong tooOld = new AtomicLong();
+	private final long retentionNanos;
+
+	/**
+	 * Keeps the buckets for an hour
+	 */
+	public OhlcvAggregator() {
+		this(60);
+	}
+
+	/**
+	 * Constructor
+	 * @param retentionMinutes how long the buckets are kept for, after the latest trade for the stock
+	 * @throws IllegalArgumentException if it is less than the largest bucket
+	 */
+	public OhlcvAggregator(long retentionMinutes) {
+		if (retentionMinutes * NANOS_PER_MINUTE < BarInterval.FIVE_MINUTES.getNanos())
+			throw new IllegalArgumentException("Retention must be at least 5 minutes " + retentionMinutes);
+		this.retentionNanos = retentionMinutes * NANOS_PER_MINUTE;
+	}
+
+	/**
+	 * Adds the trade to the buckets for its stock, a trade older than the
+	 * buckets kept is counted and ignored
+	 * @see {@link TradeListener}
+	 * @throws IllegalArgumentException if the trade price * quantity or the sums in any of the
+	 * buckets overflow, the trade isn't added to any of them
+	 */
+	@Override
+	public void onTrade(Trade trade) {
+		StockBuckets stockBuckets = bucketsBySymbol.computeIfAbsent(trade.getStockSymbolId(),
+				stockSymbolId -> new StockBuckets(retentionNanos));
+		if (!stockBuckets.add(trade.getTradeTimeNanos(), trade.getTradePrice(), trade.getQuantityShares()))
+			tooOld.incrementAndGet();
+	}
+
+	/**
+	 * The buckets of one size with trades in them, oldest first
+	 * @param stockSymbol
+	 * @param barInterval the size of the buckets
+	 * @param fromNanos nanoseconds since the epoch, the bucket it falls in is the first
+	 * @param toNanos nanoseconds since the epoch, exclusive
+	 * @return the bars, empty if there are no trades for the stock
+	 */
+	public List<OhlcvBar> getBars(String stockSymbol, BarInterval barInterval, long fromNanos, long toNanos) {
+		List<OhlcvBar> bars = new ArrayList<>();
+		StockBuckets stockBuckets = bucketsBySymbol.get(SymbolDictionary.global().findId(stockSymbol));
+		if (stockBuckets != null)
+			stockBuckets.bars(stockSymbol, barInterval, fromNanos, toNanos, bars);
+		return bars;
+	}
+
+	/**
+	 * The trades in a window added up from the buckets
+	 * @param stockSymbol
+	 * @param fromNanos nanoseconds since the epoch, rounded up to the next second
+	 * @param toNanos nanoseconds since the epoch, rounded up to the next second, exclusive
+	 * @return the bar for the window, null if there are no trades for the stock in it
+	 * @throws IllegalArgumentException if the sums of the buckets overflow
+	 */
+	public OhlcvBar getBar(String stockSymbol, long fromNanos, long toNanos) {
+		StockBuckets stockBuckets = bucketsBySymbol.get(SymbolDictionary.global().findId(stockSymbol));
+		if (stockBuckets == null)
+			return null;
+		return stockBuckets.bar(stockSymbol, roundUp(fromNanos), roundUp(toNanos));
+	}
+
+	/**
+	 * The volume weighted stock price of the trades after the window start, the
+	 * same as the {@link StockCalculator} gives to the second
+	 * @param stockSymbol
+	 * @param windowStartNanos nanoseconds since the epoch
+	 * @return the stock price
+	 * @throws IllegalArgumentException if there are no trades for the stock in the window
+	 * or the sums of the buckets overflow
+	 */
+	public BigDecimal calculateStockPrice(String stockSymbol, long windowStartNanos) {
+		OhlcvBar bar = getBar(stockSymbol, windowStartNanos, Long.MAX_VALUE - BarInterval.ONE_SECOND.getNanos());
+		if (bar == null)  throw new IllegalArgumentException("Total Traded Quantity is Zero !!");
+		return bar.getVolumeWeightedPrice();
+	}
+
+	/**
+	 * Same as {@link #calculateStockPrice(String, long)} for the window of the calculator
+	 * @param stockSymbol
+	 * @param stockCalculator gives the start of the window
+	 * @return the stock price
+	 * @throws IllegalArgumentException if there are no trades for the stock in the window
+	 */
+	public BigDecimal calculateStockPrice(String stockSymbol, StockCalculator stockCalculator) {
+		return calculateStockPrice(stockSymbol, stockCalculator.getWindowStartNanos());
+	}
+
+	/**
+	 *
+	 * @return the number of trades ignored as they were older than the buckets kept
+	 */
+	public long getTooOld() {
+		return tooOld.get();
+	}
+
+	/**
+	 *
+	 * @return how long the buckets are kept for in nanoseconds
+	 */
+	public long getRetentionNanos() {
+		return retentionNanos;
+	}
+
+	private static long roundUp(long epochNanos) {
+		long second = BarInterval.ONE_SECOND.getNanos();
+		return -Math.floorDiv(-epochNanos, second) * second;
+	}
+
+	/**
+	 * The buckets for one stock, a ring for each {@link BarInterval}
+	 */
+	private static final class StockBuckets {
+
+		private final long retentionNanos;
+		private final BucketRing[] rings = new BucketRing[BarInterval.values().length];
+		private long latestNanos = Long.MIN_VALUE;
+
+		StockBuckets(long retentionNanos) {
+			this.retentionNanos = retentionNanos;
+			for (BarInterval barInterval : BarInterval.values()) {
+				rings[barInterval.ordinal()] = new BucketRing(barInterval,
+						(int)(retentionNanos / barInterval.getNanos()) + 1);
+			}
+		}
+
+		/**
+		 * Every ring is checked before any is changed so a trade that overflows
+		 * one of them isn't left in the others
+		 * @return false if the trade is older than the buckets kept
+		 */
+		synchronized boolean add(long tradeNanos, long tradePrice, long quantity) {
+			if (latestNanos != Long.MIN_VALUE && tradeNanos < latestNanos - retentionNanos)
+				return false;
+			long notional;
+			try {
+				notional = Math.multiplyExact(quantity, tradePrice);
+				for (BucketRing ring : rings) {
+					ring.checkAdd(tradeNanos, quantity, notional);
+				}
+			} catch (ArithmeticException ae) {
+				throw new IllegalArgumentException("Trade price*quantity overflows " + quantity + " * " + tradePrice, ae);
+			}
+			latestNanos = Math.max(latestNanos, tradeNanos);
+			for (BucketRing ring : rings) {
+				ring.add(tradeNanos, tradePrice, quantity, notional);
+			}
+			return true;
+		}
+
+		synchronized void bars(String stockSymbol, BarInterval barInterval, long fromNanos, long toNanos,
+				List<OhlcvBar> bars) {
+			if (latestNanos == Long.MIN_VALUE)
+				return;
+			BucketRing ring = rings[barInterval.ordinal()];
+			long intervalNanos = barInterval.getNanos();
+			long first = Math.max(barInterval.bucketStart(fromNanos), oldestKept(barInterval));
+			long last = Math.min(toNanos, barInterval.bucketStart(latestNanos) + intervalNanos);
+			for (long bucketStart = first; bucketStart < last; bucketStart += intervalNanos) {
+				BucketTotals totals = new BucketTotals();
+				if (ring.addTo(bucketStart, totals))
+					bars.add(totals.toBar(stockSymbol, bucketStart, bucketStart + intervalNanos));
+			}
+		}
+
+		/**
+		 * Uses the largest bucket that starts at the current time and fits before
+		 * the end, both are whole seconds so a 1 second bucket always fits
+		 */
+		synchronized OhlcvBar bar(String stockSymbol, long fromNanos, long toNanos) {
+			if (latestNanos == Long.MIN_VALUE)
+				return null;
+			long from = Math.max(fromNanos, oldestKept(BarInterval.ONE_SECOND));
+			long to = Math.min(toNanos, BarInterval.ONE_SECOND.bucketStart(latestNanos)
+					+ BarInterval.ONE_SECOND.getNanos());
+			BucketTotals totals = new BucketTotals();
+			long bucketStart = from;
+			while (bucketStart < to) {
+				for (BarInterval barInterval : LARGEST_FIRST) {
+					long intervalNanos = barInterval.getNanos();
+					if (Math.floorMod(bucketStart, intervalNanos) == 0 && bucketStart + intervalNanos <= to) {
+						rings[barInterval.ordinal()].addTo(bucketStart, totals);
+						bucketStart += intervalNanos;
+						break;
+					}
+				}
+			}
+			return totals.tradeCount == 0 ? null : totals.toBar(stockSymbol, fromNanos, toNanos);
+		}
+
+		private long oldestKept(BarInterval barInterval) {
+			return barInterval.bucketStart(latestNanos - retentionNanos);
+		}
+	}
+
+	/**
+	 * The buckets of one size for one stock, the slot for a bucket is worked
+	 * out from its start time and the slot is reused once the ring has gone round
+	 * The open and close are taken from the earliest and latest trade so a late
+	 * trade doesn't change them
+	 */
+	private static final class BucketRing {
+
+		private final long intervalNanos;
+		private final long[] bucketStarts;
+		private final long[] openNanos;
+		private final long[] opens;
+		private final long[] highs;
+		private final long[] lows;
+		private final long[] closeNanos;
+		private final long[] closes;
+		private final long[] volumes;
+		private final long[] notionals;
+		private final long[] tradeCounts;
+
+		BucketRing(BarInterval barInterval, int size) {
+			this.intervalNanos = barInterval.getNanos();
+			this.bucketStarts = new long[size];
+			this.openNanos = new long[size];
+			this.opens = new long[size];
+			this.highs = new long[size];
+			this.lows = new long[size];
+			this.closeNanos = new long[size];
+			this.closes = new long[size];
+			this.volumes = new long[size];
+			this.notionals = new long[size];
+			this.tradeCounts = new long[size];
+			Arrays.fill(bucketStarts, Long.MIN_VALUE);
+		}
+
+		/**
+		 * @throws ArithmeticException if adding the trade to its bucket would overflow
+		 */
+		void checkAdd(long tradeNanos, long quantity, long notional) {
+			long bucketStart = Math.floorDiv(tradeNanos, intervalNanos) * intervalNanos;
+			int slot = slot(bucketStart);
+			if (bucketStarts[slot] == bucketStart) {
+				Math.addExact(volumes[slot], quantity);
+				Math.addExact(notionals[slot], notional);
+			}
+		}
+
+		void add(long tradeNanos, long tradePrice, long quantity, long notional) {
+			long bucketStart = Math.floorDiv(tradeNanos, intervalNanos) * intervalNanos;
+			int slot = slot(bucketStart);
+			if (bucketStarts[slot] != bucketStart) {
+				if (bucketStarts[slot] > bucketStart)
+					return;
+				bucketStarts[slot] = bucketStart;
+				openNanos[slot] = tradeNanos;
+				opens[slot] = tradePrice;
+				highs[slot] = tradePrice;
+				lows[slot] = tradePrice;
+				closeNanos[slot] = tradeNanos;
+				closes[slot] = tradePrice;
+				volumes[slot] = 0L;
+				notionals[slot] = 0L;
+				tradeCounts[slot] = 0L;
+			}
+			if (tradeNanos < openNanos[slot]) {
+				openNanos[slot] = tradeNanos;
+				opens[slot] = tradePrice;
+			}
+			if (tradeNanos >= closeNanos[slot]) {
+				closeNanos[slot] = tradeNanos;
+				closes[slot] = tradePrice;
+			}
+			highs[slot] = Math.max(highs[slot], tradePrice);
+			lows[slot] = Math.min(lows[slot], tradePrice);
+			volumes[slot] = Math.addExact(volumes[slot], quantity);
+			notionals[slot] = Math.addExact(notionals[slot], notional);
+			tradeCounts[slot]++;
+		}
+
+		/**
+		 * @return false if the ring doesn't hold the bucket or it has no trades
+		 */
+		boolean addTo(long bucketStart, BucketTotals totals) {
+			int slot = slot(bucketStart);
+			if (bucketStarts[slot] != bucketStart || tradeCounts[slot] == 0)
+				return false;
+			totals.add(openNanos[slot], opens[slot], highs[slot], lows[slot], closeNanos[slot], closes[slot],
+					volumes[slot], notionals[slot], tradeCounts[slot]);
+			return true;
+		}
+
+		private int slot(long bucketStart) {
+			return (int)Math.floorMod(Math.floorDiv(bucketStart, intervalNanos), (long)bucketStarts.length);
+		}
+	}
+
+	/**
+	 * The buckets added up for a window
+	 */
+	private static final class BucketTotals {
+
+		private long openNanos = Long.MAX_VALUE;
+		private long open;
+		private long high = Long.MIN_VALUE;
+		private long low = Long.MAX_VALUE;
+		private long closeNanos = Long.MIN_VALUE;
+		private long close;
+		private long volume;
+		private long notional;
+		private long tradeCount;
+
+		/**
+		 * @throws IllegalArgumentException if the volume or notional overflows
+		 */
+		void add(long bucketOpenNanos, long bucketOpen, long bucketHigh, long bucketLow, long bucketCloseNanos,
+				long bucketClose, long bucketVolume, long bucketNotional, long bucketTradeCount) {
+			if (bucketOpenNanos < openNanos) {
+				openNanos = bucketOpenNanos;
+				open = bucketOpen;
+			}
+			if (bucketCloseNanos >= closeNanos) {
+				closeNanos = bucketCloseNanos;
+				close = bucketClose;
+			}
+			high = Math.max(high, bucketHigh);
+			low = Math.min(low, bucketLow);
+			try {
+				volume = Math.addExact(volume, bucketVolume);
+				notional = Math.addExact(notional, bucketNotional);
+			} catch (ArithmeticException ae) {
+				throw new IllegalArgumentException("Sum of trade price*quantity overflows", ae);
+			}
+			tradeCount += bucketTradeCount;
+		}
+
+		OhlcvBar toBar(String stockSymbol, long startNanos, long endNanos) {
+			return new OhlcvBar(stockSymbol, startNanos, endNanos, open, high, low, close, volume, notional,
+					tradeCount);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package uk.co.abank.stocks.calculators;
+
+import java.math.BigDecimal;
+
+/**
+ * The open, high, low and close trade price, the volume and the notional (trade
+ * price * quantity) of the trades in one stock between two times
+ * final class so that it can't be modified once created, made by the {@link OhlcvAggregator}
+ * either for one bucket or for a window made up of several buckets
+ * @author JohnM
+ *
+ */
+public final class OhlcvBar {
+
+	private final String stockSymbol;
+	private final long startNanos;
+	private final long endNanos;
+	private final long open;
+	private final long high;
+	private final long low;
+	private final long close;
+	private final long volume;
+	private final long notional;
+	private final long tradeCount;
+
+	OhlcvBar(String stockSymbol, long startNanos, long endNanos, long open, long high, long low, long close,
+			long volume, long notional, long tradeCount) {
+		this.stockSymbol = stockSymbol;
+		this.startNanos = startNanos;
+		this.endNanos = endNanos;
+		this.open = open;
+		this.high = high;
+		this.low = low;
+		this.close = close;
+		this.volume = volume;
+		this.notional = notional;
+		this.tradeCount = tradeCount;
+	}
+
+	/**
+	 *
+	 * @return the stock symbol
+	 */
+	public String getStockSymbol() {
+		return stockSymbol;
+	}
+
+	/**
+	 *
+	 * @return the start of the bar in nanoseconds since the epoch, inclusive
+	 */
+	public long getStartNanos() {
+		return startNanos;
+	}
+
+	/**
+	 *
+	 * @return the end of the bar in nanoseconds since the epoch, exclusive
+	 */
+	public long getEndNanos() {
+		return endNanos;
+	}
+
+	/**
+	 *
+	 * @return the trade price of the earliest trade
+	 */
+	public long getOpen() {
+		return open;
+	}
+
+	/**
+	 *
+	 * @return the highest trade price
+	 */
+	public long getHigh() {
+		return high;
+	}
+
+	/**
+	 *
+	 * @return the lowest trade price
+	 */
+	public long getLow() {
+		return low;
+	}
+
+	/**
+	 *
+	 * @return the trade price of the latest trade
+	 */
+	public long getClose() {
+		return close;
+	}
+
+	/**
+	 *
+	 * @return the sum of the quantity of the trades
+	 */
+	public long getVolume() {
+		return volume;
+	}
+
+	/**
+	 *
+	 * @return the sum of the trade price * quantity of the trades
+	 */
+	public long getNotional() {
+		return notional;
+	}
+
+	/**
+	 *
+	 * @return the number of trades
+	 */
+	public long getTradeCount() {
+		return tradeCount;
+	}
+
+	/**
+	 * The volume weighted price, the same as {@link StockCalculator} works out
+	 * from the trades, exactly to 5dp using {@link FixedPrice}
+	 * @return the volume weighted price
+	 * @throws IllegalArgumentException if the volume is zero
+	 */
+	public BigDecimal getVolumeWeightedPrice() {
+		if (volume == 0)  throw new IllegalArgumentException("Total Traded Quantity is Zero !!");
+		return FixedPrice.toBigDecimal(FixedPrice.ofRatio(notional, volume));
+	}
+
+	@Override
+	public String toString() {
+		return "OhlcvBar [stockSymbol=" + stockSymbol + ", startNanos=" + startNanos + ", endNanos=" + endNanos
+				+ ", open=" + open + ", high=" + high + ", low=" + low + ", close=" + close + ", volume=" + volume
+				+ ", notional=" + notional + ", tradeCount=" + tradeCount + "]";
+	}
+}
@@ -0,0 +1,283 @@
+package uk.co.abank.stocks.calculators;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import uk.co.abank.stocks.dataobjects.SymbolArray;
+import uk.co.abank.stocks.dataobjects.SymbolDictionary;
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.services.TradeListener;
+
+/**
+ * Keeps the volume weighted stock price for each stock up to date as the trades
+ * are recorded, rather than working it out from all the trades on every call
+ * Keeps a running sum of the quantity and the trade price * quantity for each stock,
+ * trades are added as they arrive and taken off again as they drop out of the window
+ * Reading the stock price is O(1) and doesn't create any objects, the windows are
+ * held in a {@link SymbolArray} indexed by the stock symbol id of the trade
+ * Add to a {@link uk.co.abank.stocks.services.ListeningTradeService} to get the trades
+ * The new price for the stock is passed on to the {@link StockPriceListener}'s after each trade,
+ * and {@link #expireWindows()} tells them when a stock no longer has any trades in the window
+ * @author JohnM
+ *
+ */
+public class SlidingWindowStockPriceEngine implements TradeListener {
+
+	private static final int INITIAL_CAPACITY = 64;
+	private static final long NANOS_PER_MILLI = 1_000_000L;
+
+	private final SymbolArray<StockWindow> windowsBySymbol = new SymbolArray<>();
+	private final List<StockPriceListener> stockPriceListeners = new CopyOnWriteArrayList<>();
+	private final Clock clock;
+	private final long windowMillis;
+
+	/**
+	 * Uses the system clock and the window from {@link StockCalculator#tradeTime}
+	 */
+	public SlidingWindowStockPriceEngine() {
+		this(Clock.systemDefaultZone(), StockCalculator.tradeTime);
+	}
+
+	/**
+	 * Constructor
+	 * @param clock used to work out which trades have dropped out of the window
+	 * @param windowMinutes the length of the window in minutes
+	 */
+	public SlidingWindowStockPriceEngine(Clock clock, long windowMinutes) {
+		this.clock = clock;
+		this.windowMillis = windowMinutes * 60_000L;
+	}
+
+	/**
+	 * 
+	 * @param stockPriceListener told the new stock price after each trade
+	 */
+	public void addStockPriceListener(StockPriceListener stockPriceListener) {
+		stockPriceListeners.add(stockPriceListener);
+	}
+
+	/**
+	 * 
+	 * @param stockPriceListener
+	 */
+	public void removeStockPriceListener(StockPriceListener stockPriceListener) {
+		stockPriceListeners.remove(stockPriceListener);
+	}
+
+	/**
+	 * Adds the trade to the window for its stock, trades already outside
+	 * the window are ignored
+	 * @see {@link TradeListener}
+	 * @throws IllegalArgumentException if the trade price * quantity or the sums overflow,
+	 * the trade isn't added
+	 */
+	@Override
+	public void onTrade(Trade trade) {
+		long tradeMillis = Math.floorDiv(trade.getTradeTimeNanos(), NANOS_PER_MILLI);
+		long windowStart = clock.millis() - windowMillis;
+		if (tradeMillis <= windowStart)
+			return;
+
+		StockWindow stockWindow = windowsBySymbol.computeIfAbsent(trade.getStockSymbolId(), 
+				stockSymbolId -> new StockWindow(trade.getStockSymbol()));
+		double stockPrice = stockWindow.add(tradeMillis, trade.getQuantityShares(), trade.getTradePrice(), windowStart);
+		if (!Double.isNaN(stockPrice)) {
+			for (StockPriceListener stockPriceListener : stockPriceListeners) {
+				stockPriceListener.onStockPrice(trade.getStockSymbol(), stockPrice);
+			}
+		}
+	}
+
+	/**
+	 * Gets the volume weighted stock price for the trades in the window
+	 * Rounding is left to the caller as it would create a BigDecimal
+	 * @param stockSymbol
+	 * @return the stock price
+	 * @throws IllegalArgumentException if there are no trades for the stock in the window
+	 */
+	public double getStockPrice(String stockSymbol) {
+		return getStockPrice(SymbolDictionary.global().findId(stockSymbol));
+	}
+
+	/**
+	 * Same as {@link #getStockPrice(String)} without looking up the symbol
+	 * @param stockSymbolId the id from {@link SymbolDictionary#global()}
+	 * @return the stock price
+	 * @throws IllegalArgumentException if there are no trades for the stock in the window
+	 */
+	public double getStockPrice(int stockSymbolId) {
+		StockWindow stockWindow = windowsBySymbol.get(stockSymbolId);
+		if (stockWindow == null)
+			throw new IllegalArgumentException("Total Traded Quantity is Zero !!");
+		return stockWindow.stockPrice(clock.millis() - windowMillis);
+	}
+
+	/**
+	 *
+	 * @param stockSymbol
+	 * @return <code>true</code> if there are trades for the stock in the window
+	 */
+	public boolean hasStockPrice(String stockSymbol) {
+		return hasStockPrice(SymbolDictionary.global().findId(stockSymbol));
+	}
+
+	/**
+	 *
+	 * @param stockSymbolId the id from {@link SymbolDictionary#global()}
+	 * @return <code>true</code> if there are trades for the stock in the window
+	 */
+	public boolean hasStockPrice(int stockSymbolId) {
+		StockWindow stockWindow = windowsBySymbol.get(stockSymbolId);
+		return stockWindow != null && stockWindow.sumQuantity(clock.millis() - windowMillis) != 0;
+	}
+
+	/**
+	 * Takes the trades that have dropped out of the window off every stock, the
+	 * {@link StockPriceListener}'s are told about each stock that now has no trades
+	 * in the window, once until it trades again
+	 * @return the number of stocks that no longer have a stock price
+	 */
+	public int expireWindows() {
+		long windowStart = clock.millis() - windowMillis;
+		List<String> removed = new ArrayList<>();
+		windowsBySymbol.forEach(stockWindow -> {
+			if (stockWindow.expireEmptied(windowStart))
+				removed.add(stockWindow.stockSymbol);
+		});
+		for (String stockSymbol : removed) {
+			for (StockPriceListener stockPriceListener : stockPriceListeners) {
+				stockPriceListener.onStockPriceRemoved(stockSymbol);
+			}
+		}
+		return removed.size();
+	}
+
+	/**
+	 * The trades in the window for one stock held in a ring in trade time order,
+	 * oldest first, so the ones leaving the window are always at the head
+	 * Trades nearly always arrive in time order so are just added at the tail,
+	 * a late trade is moved back to its place in the ring
+	 */
+	private static final class StockWindow {
+
+		private final String stockSymbol;
+		private long[] tradeMillis = new long[INITIAL_CAPACITY];
+		private long[] quantities = new long[INITIAL_CAPACITY];
+		private long[] tradePriceQuants = new long[INITIAL_CAPACITY];
+		private int head;
+		private int size;
+
+		private long sumQuantity;
+		private long sumTradePriceQuantity;
+		// a price has been passed on and the listeners haven't been told it was removed
+		private boolean priced;
+
+		StockWindow(String stockSymbol) {
+			this.stockSymbol = stockSymbol;
+		}
+
+		/**
+		 * @return the stock price after the trade is added, NaN if there is no quantity
+		 */
+		synchronized double add(long millis, long quantity, long tradePrice, long windowStart) {
+			expire(windowStart);
+			long tradePriceQuantity;
+			long newSumQuantity;
+			long newSumTradePriceQuantity;
+			try {
+				tradePriceQuantity = Math.multiplyExact(quantity, tradePrice);
+				newSumQuantity = Math.addExact(sumQuantity, quantity);
+				newSumTradePriceQuantity = Math.addExact(sumTradePriceQuantity, tradePriceQuantity);
+			} catch (ArithmeticException ae) {
+				throw new IllegalArgumentException("Trade price*quantity overflows " + quantity + " * " + tradePrice, ae);
+			}
+			if (size == tradeMillis.length)
+				grow();
+			insert(millis, quantity, tradePriceQuantity);
+			sumQuantity = newSumQuantity;
+			sumTradePriceQuantity = newSumTradePriceQuantity;
+			if (sumQuantity == 0)
+				return Double.NaN;
+			priced = true;
+			return (double)sumTradePriceQuantity/sumQuantity;
+		}
+
+		/**
+		 * @return <code>true</code> the first time there is no quantity left after a price was passed on
+		 */
+		synchronized boolean expireEmptied(long windowStart) {
+			expire(windowStart);
+			if (!priced || sumQuantity != 0)
+				return false;
+			priced = false;
+			return true;
+		}
+
+		/**
+		 * Moves the later trades along one until the place for the trade is found,
+		 * trades with the same time are kept in the order they arrived
+		 */
+		private void insert(long millis, long quantity, long tradePriceQuantity) {
+			int mask = tradeMillis.length - 1;
+			int position = size;
+			while (position > 0 && tradeMillis[(head + position - 1) & mask] > millis) {
+				int from = (head + position - 1) & mask;
+				int to = (head + position) & mask;
+				tradeMillis[to] = tradeMillis[from];
+				quantities[to] = quantities[from];
+				tradePriceQuants[to] = tradePriceQuants[from];
+				position--;
+			}
+			int slot = (head + position) & mask;
+			tradeMillis[slot] = millis;
+			quantities[slot] = quantity;
+			tradePriceQuants[slot] = tradePriceQuantity;
+			size++;
+		}
+
+		synchronized double stockPrice(long windowStart) {
+			expire(windowStart);
+			if (sumQuantity == 0)  throw new IllegalArgumentException("Total Traded Quantity is Zero !!");
+			return (double)sumTradePriceQuantity/sumQuantity;
+		}
+
+		synchronized long sumQuantity(long windowStart) {
+			expire(windowStart);
+			return sumQuantity;
+		}
+
+		/**
+		 * Takes the trades that have dropped out of the window off the running sums
+		 */
+		private void expire(long windowStart) {
+			int mask = tradeMillis.length - 1;
+			while (size > 0 && tradeMillis[head] <= windowStart) {
+				sumQuantity -= quantities[head];
+				sumTradePriceQuantity -= tradePriceQuants[head];
+				head = (head + 1) & mask;
+				size--;
+			}
+		}
+
+		/**
+		 * Doubles the ring, keeping the length a power of 2 so the index can be masked
+		 */
+		private void grow() {
+			int capacity = tradeMillis.length << 1;
+			tradeMillis = copy(tradeMillis, capacity);
+			quantities = copy(quantities, capacity);
+			tradePriceQuants = copy(tradePriceQuants, capacity);
+			head = 0;
+		}
+
+		private long[] copy(long[] ring, int capacity) {
+			long[] copy = new long[capacity];
+			int firstPart = Math.min(size, ring.length - head);
+			System.arraycopy(ring, head, copy, 0, firstPart);
+			System.arraycopy(ring, 0, copy, firstPart, size - firstPart);
+			return copy;
+		}
+	}
+}
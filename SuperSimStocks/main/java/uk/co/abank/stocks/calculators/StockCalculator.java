@@ -1,14 +1,21 @@
 package uk.co.abank.stocks.calculators;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.OptionalDouble;
-import java.util.stream.Stream;
+import java.util.Map;
 
+import uk.co.abank.stocks.collector.KeyedStockPriceStats;
+import uk.co.abank.stocks.collector.KeyedStockPriceStatsCollector;
 import uk.co.abank.stocks.collector.StockPriceStats;
 import uk.co.abank.stocks.collector.StockPriceStatsCollector;
+import uk.co.abank.stocks.dataobjects.SymbolDictionary;
 import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.dataobjects.TradeTimes;
 
 
 /**
@@ -22,8 +29,32 @@ public class StockCalculator {
 	
 	// Static used to determine the trade time, enhancement maybe to use a resource file
 	// or a as -D option to run it
+	// Only the default for calculators created with no window, each calculator keeps its own
 	public static long tradeTime = 15;
 	
+	private final Clock clock;
+	private final long windowMinutes;
+	
+	/**
+	 * Uses the system clock and a window of {@link #tradeTime} minutes
+	 */
+	public StockCalculator() {
+		this(Clock.systemUTC(), tradeTime);
+	}
+	
+	/**
+	 * Constructor, the calculator can be shared between threads as the clock
+	 * and window can't be changed
+	 * @param clock gives the end of the window, e.g. a replay clock to run against recorded trades
+	 * @param windowMinutes the length of the window in minutes
+	 */
+	public StockCalculator(Clock clock, long windowMinutes) {
+		if (windowMinutes <= 0)
+			throw new IllegalArgumentException("Window must be greater than zero minutes " + windowMinutes);
+		this.clock = clock;
+		this.windowMinutes = windowMinutes;
+	}
+	
 	
 	/**
 	 * Takes in a list of trades and uses streams to perform the filtering
@@ -35,41 +66,150 @@ public class StockCalculator {
 	 */
 	public BigDecimal calculateStockPriceStreams(List<Trade> trades) {
 		
+		long windowStartNanos = getWindowStartNanos();
 		StockPriceStats stockPriceStats = trades
 			.stream()
-			.filter(trade -> {
-				LocalDateTime beginTrade = LocalDateTime.now().minusMinutes(tradeTime);
-				return beginTrade.isBefore(trade.getTradeTime());
-			})
+			.filter(trade -> trade.getTradeTimeNanos() > windowStartNanos)
 			.collect(new StockPriceStatsCollector());
-		return calculateStockPrice(stockPriceStats.getQuantity().getSum(), 
-				stockPriceStats.getTradePriceQuant().getSum());
+		return calculateStockPrice(stockPriceStats.getSumQuantity(), 
+				stockPriceStats.getSumTradePriceQuantity());
+	}
+	
+	/**
+	 * Same as {@link #calculateStockPriceStreams(List)} but uses a parallel stream
+	 * so the filtering and collecting is split across the cores, only worth it 
+	 * for a large number of trades
+	 * Assumes all the trades are for one stock only
+	 * @param trades the list of stock trades
+	 * @return the calculated stock price
+	 */
+	public BigDecimal calculateStockPriceParallelStreams(List<Trade> trades) {
+		
+		long windowStartNanos = getWindowStartNanos();
+		StockPriceStats stockPriceStats = trades
+			.parallelStream()
+			.filter(trade -> trade.getTradeTimeNanos() > windowStartNanos)
+			.collect(new StockPriceStatsCollector());
+		return calculateStockPrice(stockPriceStats.getSumQuantity(), 
+				stockPriceStats.getSumTradePriceQuantity());
 	}
 	
 	/**
 	 * Takes a list of trades and uses iteration to perform the filtering and summing
-	 * the price*quantity and quantity less efficient than the stream way
+	 * the price*quantity and quantity, see StockPriceBenchmark in SuperSimStocksBenchmarks
+	 * for how it compares to the stream ways
 	 * Assumes all the trades are for the one stock only
 	 * @param trades the list of stock trades
 	 * @return the calculated stock price
 	 */
 	public BigDecimal calculateStockPrice(List<Trade> trades) {
-		long sumQuantity = 0L;
-		long sumTradePriceMultQuant = 0L;
+		StockPriceStats stockPriceStats = new StockPriceStats();
+		long windowStartNanos = getWindowStartNanos();
 		
 		for (Trade trade: trades) {
-			LocalDateTime minus15 = LocalDateTime.now().minusMinutes(tradeTime);
-			if (trade.getTradeTime().isAfter(minus15)) {
-				sumQuantity +=  trade.getQuantityShares();
-				sumTradePriceMultQuant += trade.getTradePrice()* trade.getQuantityShares();	
+			if (trade.getTradeTimeNanos() > windowStartNanos) {
+				stockPriceStats.accept(trade);
 			}
 		}
-		return calculateStockPrice(sumQuantity, sumTradePriceMultQuant);
+		return calculateStockPrice(stockPriceStats.getSumQuantity(), 
+				stockPriceStats.getSumTradePriceQuantity());
+	}
+	
+	/**
+	 * Takes a list of trades that are already known to be inside the window
+	 * e.g. from a time ordered trade log using {@link #getWindowStart()}
+	 * so no filtering is done and only the trades in the window are read
+	 * Assumes all the trades are for the one stock only
+	 * @param windowTrades the trades after the start of the window
+	 * @return the calculated stock price
+	 */
+	public BigDecimal calculateStockPriceInWindow(List<Trade> windowTrades) {
+		StockPriceStats stockPriceStats = new StockPriceStats();
+		
+		for (Trade trade: windowTrades) {
+			stockPriceStats.accept(trade);
+		}
+		return calculateStockPrice(stockPriceStats.getSumQuantity(), 
+				stockPriceStats.getSumTradePriceQuantity());
+	}
+	
+	/**
+	 * Works out the stock price of every stock in the trades in one pass
+	 * rather than splitting the trades by stock and calculating each one,
+	 * the trades can be for any number of stocks
+	 * Stocks with no trades in the window aren't in the map
+	 * @param trades the trades for any of the stocks
+	 * @return the stock prices by stock symbol, in the order of the symbol ids
+	 */
+	public Map<String, BigDecimal> calculateStockPrices(List<Trade> trades) {
+		return calculateStockPrices(collectStockPriceStats(trades, false));
+	}
+	
+	/**
+	 * Same as {@link #calculateStockPrices(List)} but uses a parallel stream,
+	 * each part of the stream keeps its own sums for every stock which are
+	 * added together at the end
+	 * @param trades the trades for any of the stocks
+	 * @return the stock prices by stock symbol, in the order of the symbol ids
+	 */
+	public Map<String, BigDecimal> calculateStockPricesParallel(List<Trade> trades) {
+		return calculateStockPrices(collectStockPriceStats(trades, true));
+	}
+	
+	/**
+	 * The sums for each stock, use when the prices are wanted by id
+	 * rather than by symbol e.g. for arrays indexed by the stock symbol id
+	 * @param trades the trades for any of the stocks
+	 * @param parallel true to use a parallel stream
+	 * @return the sums for the trades in the window by stock symbol id
+	 */
+	public KeyedStockPriceStats collectStockPriceStats(List<Trade> trades, boolean parallel) {
+		long windowStartNanos = getWindowStartNanos();
+		return (parallel ? trades.parallelStream() : trades.stream())
+			.filter(trade -> trade.getTradeTimeNanos() > windowStartNanos)
+			.collect(new KeyedStockPriceStatsCollector());
+	}
+	
+	private Map<String, BigDecimal> calculateStockPrices(KeyedStockPriceStats keyedStockPriceStats) {
+		Map<String, BigDecimal> stockPrices = new LinkedHashMap<>();
+		for (int id = 0; id < keyedStockPriceStats.size(); id++) {
+			if (keyedStockPriceStats.hasTrades(id)) {
+				stockPrices.put(SymbolDictionary.global().getSymbol(id), 
+						calculateStockPrice(keyedStockPriceStats.getSumQuantity(id), 
+								keyedStockPriceStats.getSumTradePriceQuantity(id)));
+			}
+		}
+		return stockPrices;
+	}
+	
+	/**
+	 * 
+	 * @return the start of the window of trades used for the stock price
+	 */
+	public Instant getWindowStart() {
+		return clock.instant().minus(windowMinutes, ChronoUnit.MINUTES);
+	}
+	
+	/**
+	 * 
+	 * @return the length of the window in minutes
+	 */
+	public long getWindowMinutes() {
+		return windowMinutes;
+	}
+	
+	/**
+	 * Worked out once per calculation, the trades after it are in the window
+	 * @return the start of the window in nanoseconds since the epoch
+	 */
+	public long getWindowStartNanos() {
+		return TradeTimes.toEpochNanos(getWindowStart());
 	}
 		
 		
 	/**
-	 * Calculates the stock price from the {@link Trade} objects
+	 * Calculates the stock price from the {@link Trade} objects, exactly to 5dp
+	 * from the sums using {@link FixedPrice}
 	 * Checks if the sum quantity is 0 to prevent exception being thrown
 	 * this shouldn't happen as the check is done earlier
 	 * @param sumQuantity
@@ -79,8 +219,7 @@ public class StockCalculator {
 	private BigDecimal calculateStockPrice(long sumQuantity, long sumTradePriceQuantity) {
 		if (sumQuantity == 0)  throw new IllegalArgumentException("Total Traded Quantity is Zero !!");
 		
-		double stockPrice = (double)sumTradePriceQuantity/sumQuantity;
-		return roundTo5DP(stockPrice);
+		return FixedPrice.toBigDecimal(FixedPrice.ofRatio(sumTradePriceQuantity, sumQuantity));
 	}
 	
 	/**
@@ -90,34 +229,33 @@ public class StockCalculator {
 	 * @return
 	 */
 	private BigDecimal roundTo5DP(double number) {
-		return new BigDecimal(Math.round(number * 100000d) / 100000d);
+		return FixedPrice.toBigDecimal(FixedPrice.ofDouble(number));
 	}
 		 
 	/**
 	 * Calculates the share index from a list of sharePrices, and performs the rounding
 	 * depending on final use rounding may not be performed
-	 * Uses a stream to perform the calculation, with a reduction multiply each share price together
+	 * Uses a stream to perform the calculation, summing the log of each share price and taking
+	 * the exponential of the mean, the same as the n-th root of the product of the prices but
+	 * without the product overflowing to Infinity or underflowing to 0 for a few hundred prices
 	 * Checks to ensure the list is not empty to ensure that exception is not generated from the calculation
 	 * Not checking for zero share prices as they should get to this point
 	 * however they could be removed, using a filter and only valid share prices returned
+	 * Use {@link AllShareIndexEngine} to keep the index up to date as prices change
+	 * Takes any collection so the values of {@link #calculateStockPrices(List)} can be passed straight in
 	 * @param sharePrices list of share prices
 	 * @return
 	 */
-	public BigDecimal calculateAllShareIndex(List<BigDecimal> sharePrices) {
+	public BigDecimal calculateAllShareIndex(Collection<BigDecimal> sharePrices) {
 		
 		if (sharePrices.isEmpty()) 
 			throw new IllegalArgumentException("There are no Share Prices");
 		
-		Stream<BigDecimal> sharePricesStream = sharePrices.stream();
-		
-		OptionalDouble shareProduct = sharePricesStream
-				.mapToDouble(bg -> bg.doubleValue())
-				.reduce((a,b)-> a*b);
+		double sumLogPrices = sharePrices
+				.stream()
+				.mapToDouble(bg -> Math.log(bg.doubleValue()))
+				.sum();
 		
-		if (shareProduct.isPresent()) { 
-			return roundTo5DP(Math.pow(shareProduct.getAsDouble(), (double)1/sharePrices.size()));
-		} else {
-			return new BigDecimal(Double.NaN);
-		}
+		return roundTo5DP(Math.exp(sumLogPrices / sharePrices.size()));
 	}
 }
\ No newline at end of file
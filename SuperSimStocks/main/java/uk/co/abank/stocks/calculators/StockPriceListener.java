@@ -0,0 +1,25 @@
+package uk.co.abank.stocks.calculators;
+
+/**
+ * Interface to be told when the stock price for a stock changes
+ * @author JohnM
+ *
+ */
+public interface StockPriceListener {
+
+	/**
+	 * Called with the new volume weighted stock price, not rounded
+	 * called on the thread recording the trade so should be quick
+	 * @param stockSymbol
+	 * @param stockPrice
+	 */
+	void onStockPrice(String stockSymbol, double stockPrice);
+
+	/**
+	 * Called when the last trade for the stock has left the window, so there is
+	 * no longer a stock price for it, does nothing unless overridden
+	 * @param stockSymbol
+	 */
+	default void onStockPriceRemoved(String stockSymbol) {
+	}
+}
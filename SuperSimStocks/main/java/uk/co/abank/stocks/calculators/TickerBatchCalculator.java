@@ -0,0 +1,130 @@
+package uk.co.abank.stocks.calculators;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import uk.co.abank.stocks.dataobjects.Stock;
+
+/**
+ * Works out the dividend yield and P/E ratio for a whole screen of stocks in one go
+ * The stocks and ticker prices are passed in as arrays and the results filled into
+ * long arrays of {@link FixedPrice} values, so nothing is created per stock
+ * The dividend held by each stock is used for both results, large
+ * batches are split across the cores with fork/join
+ * A result that can't be worked out, e.g. a zero ticker price or zero dividend,
+ * is set to {@link #NO_VALUE} rather than stopping the rest of the batch
+ * @author JohnM
+ *
+ */
+public class TickerBatchCalculator {
+
+	/**
+	 * Set in the results when the yield or P/E ratio can't be worked out
+	 */
+	public static final long NO_VALUE = Long.MIN_VALUE;
+
+	// Below this the batch is worked out on the calling thread
+	private static final int THRESHOLD = 1024;
+
+	private final TickerCalculator tickerCalculator = new TickerCalculator();
+	private final ForkJoinPool forkJoinPool;
+
+	/**
+	 * Uses the common fork/join pool
+	 */
+	public TickerBatchCalculator() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 *
+	 * @param forkJoinPool the pool large batches are split across
+	 */
+	public TickerBatchCalculator(ForkJoinPool forkJoinPool) {
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	/**
+	 * Fills in the dividend yield and P/E ratio of each stock for its ticker price
+	 * @param stocks
+	 * @param tickerPrices the ticker price of the stock at the same index
+	 * @param dividendYields filled in with the dividend yields or {@link #NO_VALUE}
+	 * @param peRatios filled in with the P/E ratios or {@link #NO_VALUE}
+	 * @throws IllegalArgumentException if the arrays are not all the same length
+	 */
+	public void calculate(Stock[] stocks, long[] tickerPrices, long[] dividendYields, long[] peRatios) {
+		int length = stocks.length;
+		if (tickerPrices.length != length || dividendYields.length != length || peRatios.length != length)
+			throw new IllegalArgumentException("Arrays are different lengths stocks=" + length
+					+ ", tickerPrices=" + tickerPrices.length + ", dividendYields=" + dividendYields.length
+					+ ", peRatios=" + peRatios.length);
+
+		TickerBatch tickerBatch = new TickerBatch(stocks, tickerPrices, dividendYields, peRatios, 0, length);
+		if (length <= THRESHOLD) {
+			tickerBatch.compute();
+		} else {
+			forkJoinPool.invoke(tickerBatch);
+		}
+	}
+
+	/**
+	 * Works out one stock from the dividend the stock worked out when it was created
+	 */
+	private void calculate(Stock stock, long tickerPrice, long[] dividendYields, long[] peRatios, int index) {
+		long dividendNumerator = stock.getDividendNumerator();
+		long dividendDenominator = stock.getDividendDenominator();
+
+		try {
+			dividendYields[index] = tickerPrice == 0 ? NO_VALUE
+					: FixedPrice.ofRatio(dividendNumerator,
+							tickerCalculator.multiply(dividendDenominator, tickerPrice, stock));
+		} catch (IllegalArgumentException e) {
+			dividendYields[index] = NO_VALUE;
+		}
+
+		try {
+			peRatios[index] = stock.isDividendZero() ? NO_VALUE
+					: FixedPrice.ofRatio(tickerCalculator.multiply(tickerPrice, dividendDenominator, stock),
+							dividendNumerator);
+		} catch (IllegalArgumentException e) {
+			peRatios[index] = NO_VALUE;
+		}
+	}
+
+	/**
+	 * Splits the range in half until it is below the threshold
+	 */
+	private final class TickerBatch extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Stock[] stocks;
+		private final long[] tickerPrices;
+		private final long[] dividendYields;
+		private final long[] peRatios;
+		private final int from;
+		private final int to;
+
+		TickerBatch(Stock[] stocks, long[] tickerPrices, long[] dividendYields, long[] peRatios, int from, int to) {
+			this.stocks = stocks;
+			this.tickerPrices = tickerPrices;
+			this.dividendYields = dividendYields;
+			this.peRatios = peRatios;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= THRESHOLD) {
+				for (int i = from; i < to; i++) {
+					calculate(stocks[i], tickerPrices[i], dividendYields, peRatios, i);
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new TickerBatch(stocks, tickerPrices, dividendYields, peRatios, from, middle),
+					new TickerBatch(stocks, tickerPrices, dividendYields, peRatios, middle, to));
+		}
+	}
+}
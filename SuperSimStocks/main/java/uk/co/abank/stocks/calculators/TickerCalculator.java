@@ -4,76 +4,76 @@ import java.math.BigDecimal;
 
 import uk.co.abank.stocks.dataobjects.Stock;
 
+/**
+ * Works out the dividend yield and P/E ratio of a stock for a ticker price
+ * The dividend is worked out once by the {@link Stock} as a fraction of two longs
+ * so the results are exact {@link FixedPrice} values, the BigDecimal methods wrap the fixed ones
+ * @author JohnM
+ *
+ */
 public class TickerCalculator {
 	
 	/**
-	 * Default shouldn't be needed in switch statement but just to make 
+	 * 
 	 * @param stock
-	 * @return
+	 * @param tickerPrice
+	 * @return the dividend yield to 5dp
 	 */
 	public BigDecimal calculateDividendYield(Stock stock, long tickerPrice) {
 		
-		if (tickerPrice == 0 ) 
-			throw new IllegalArgumentException("Ticker price is zero" + stock.toString());
-		
-		double dividendByYield = getDividend(stock)/tickerPrice;
-		
-		
-		return roundTo5DP(dividendByYield);
+		return FixedPrice.toBigDecimal(calculateDividendYieldFixed(stock, tickerPrice));
 		
 	}
 	
 	/**
-	 * 
+	 * Dividend yield, dividend / ticker price, without creating any objects
 	 * @param stock
 	 * @param tickerPrice
-	 * @return
+	 * @return the dividend yield as a {@link FixedPrice}
 	 */
-	private double getDividend(Stock stock) {
-	
-		double dividend = 0D;
-		
+	public long calculateDividendYieldFixed(Stock stock, long tickerPrice) {
 		
-		switch (stock.getStockType()) {
-			case Common:
-				dividend = (double)stock.getLastDividend();
-				break;
-			case Preferred:
-				dividend = (double)(stock.getFixedDividend()/100.0D)* stock.getParValue();
-				break;
-			default:
-				throw new IllegalArgumentException("Stock has no stocktype" + stock.toString());
-		}
+		if (tickerPrice == 0 ) 
+			throw new IllegalArgumentException("Ticker price is zero" + stock.toString());
 		
-		return dividend;
+		return FixedPrice.ofRatio(stock.getDividendNumerator(), 
+				multiply(stock.getDividendDenominator(), tickerPrice, stock));
 	}
 	
 	/**
 	 * 
-	 * @param number
+	 * @param stock
+	 * @param tickerPrice
 	 * @return
 	 */
-	private BigDecimal roundTo5DP(double number) {
-	
-		return new BigDecimal(Math.round(number * 100000d) / 100000d);
+	public BigDecimal calculatePERatio(Stock stock, long tickerPrice) {
+
+		return FixedPrice.toBigDecimal(calculatePERatioFixed(stock, tickerPrice));
+		
 	}
 	
-	
 	/**
-	 * 
+	 * P/E ratio, ticker price / dividend, without creating any objects
+	 * A dividend that rounds to zero is treated as zero
 	 * @param stock
 	 * @param tickerPrice
-	 * @return
+	 * @return the P/E ratio as a {@link FixedPrice}
 	 */
-	public BigDecimal calculatePERatio(Stock stock, long tickerPrice) {
+	public long calculatePERatioFixed(Stock stock, long tickerPrice) {
 
-		double dividend = getDividend(stock);
-		if (Math.round(dividend) == 0)
+		if (stock.isDividendZero())
 				throw new IllegalArgumentException("Dividend is zero" + stock.toString());
 		
-		double pERatio = tickerPrice/dividend;
+		return FixedPrice.ofRatio(multiply(tickerPrice, stock.getDividendDenominator(), stock), 
+				stock.getDividendNumerator());
 		
-		return roundTo5DP(pERatio);
-		
-	}	
+	}
+	
+	long multiply(long x, long y, Stock stock) {
+		try {
+			return Math.multiplyExact(x, y);
+		} catch (ArithmeticException e) {
+			throw new IllegalArgumentException("Ticker price overflows" + stock.toString());
+		}
+	}
 }
@@ -0,0 +1,125 @@
+package uk.co.abank.stocks.collector;
+
+import java.util.Arrays;
+
+import uk.co.abank.stocks.dataobjects.SymbolDictionary;
+import uk.co.abank.stocks.dataobjects.Trade;
+
+/**
+ * The same sums as {@link StockPriceStats} but kept for every stock at once,
+ * in arrays indexed by the stock symbol id from {@link SymbolDictionary#global()}
+ * so one pass over trades for any number of stocks gives all the sums
+ * The arrays grow if a trade has an id past the end
+ * @author JohnM
+ *
+ */
+public class KeyedStockPriceStats {
+
+	private long[] sumQuantity;
+	private long[] sumTradePriceQuantity;
+
+	/**
+	 * Sized for the symbols in the global dictionary
+	 */
+	public KeyedStockPriceStats() {
+		this(SymbolDictionary.global().size());
+	}
+
+	/**
+	 * Constructor
+	 * @param size the number of ids to start with
+	 */
+	public KeyedStockPriceStats(int size) {
+		sumQuantity = new long[Math.max(size, 1)];
+		sumTradePriceQuantity = new long[sumQuantity.length];
+	}
+
+	/**
+	 * Adds the trade into the sums for its stock
+	 * @param trade
+	 * @throws IllegalArgumentException if either of the sums overflows, the sums are left as they were
+	 */
+	public void accept(Trade trade) {
+		int id = trade.getStockSymbolId();
+		if (id >= sumQuantity.length)
+			grow(id + 1);
+		long newSumQuantity;
+		long newSumTradePriceQuantity;
+		try {
+			long tradePriceQuantity = Math.multiplyExact(trade.getQuantityShares(), trade.getTradePrice());
+			newSumQuantity = Math.addExact(sumQuantity[id], trade.getQuantityShares());
+			newSumTradePriceQuantity = Math.addExact(sumTradePriceQuantity[id], tradePriceQuantity);
+		} catch (ArithmeticException ae) {
+			throw new IllegalArgumentException("Trade price*quantity overflows" + trade.toString(), ae);
+		}
+		sumQuantity[id] = newSumQuantity;
+		sumTradePriceQuantity[id] = newSumTradePriceQuantity;
+	}
+
+	/**
+	 * Folds the other sums into these, stock by stock
+	 * @param other
+	 * @return this
+	 * @throws IllegalArgumentException if any of the sums overflows, the sums are left as they were
+	 */
+	public KeyedStockPriceStats combine(KeyedStockPriceStats other) {
+		if (other.sumQuantity.length > sumQuantity.length)
+			grow(other.sumQuantity.length);
+		// checked for every stock before any are changed
+		try {
+			for (int id = 0; id < other.sumQuantity.length; id++) {
+				Math.addExact(sumQuantity[id], other.sumQuantity[id]);
+				Math.addExact(sumTradePriceQuantity[id], other.sumTradePriceQuantity[id]);
+			}
+		} catch (ArithmeticException ae) {
+			throw new IllegalArgumentException("Sum of trade price*quantity overflows", ae);
+		}
+		for (int id = 0; id < other.sumQuantity.length; id++) {
+			sumQuantity[id] += other.sumQuantity[id];
+			sumTradePriceQuantity[id] += other.sumTradePriceQuantity[id];
+		}
+		return this;
+	}
+
+	/**
+	 *
+	 * @param stockSymbolId
+	 * @return true if there are any shares traded for the stock
+	 */
+	public boolean hasTrades(int stockSymbolId) {
+		return getSumQuantity(stockSymbolId) != 0L;
+	}
+
+	/**
+	 *
+	 * @param stockSymbolId
+	 * @return the sum of the share quantities for the stock
+	 */
+	public long getSumQuantity(int stockSymbolId) {
+		return stockSymbolId >= 0 && stockSymbolId < sumQuantity.length ? sumQuantity[stockSymbolId] : 0L;
+	}
+
+	/**
+	 *
+	 * @param stockSymbolId
+	 * @return the sum of the tradeprice*quantity for the stock
+	 */
+	public long getSumTradePriceQuantity(int stockSymbolId) {
+		return stockSymbolId >= 0 && stockSymbolId < sumTradePriceQuantity.length
+				? sumTradePriceQuantity[stockSymbolId] : 0L;
+	}
+
+	/**
+	 *
+	 * @return the number of ids held, all the ids with trades are less than this
+	 */
+	public int size() {
+		return sumQuantity.length;
+	}
+
+	private void grow(int minSize) {
+		int newSize = Math.max(minSize, sumQuantity.length << 1);
+		sumQuantity = Arrays.copyOf(sumQuantity, newSize);
+		sumTradePriceQuantity = Arrays.copyOf(sumTradePriceQuantity, newSize);
+	}
+}
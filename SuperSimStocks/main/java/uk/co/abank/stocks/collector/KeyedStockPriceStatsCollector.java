@@ -0,0 +1,65 @@
+package uk.co.abank.stocks.collector;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+
+/**
+ * The keyed version of the {@link StockPriceStatsCollector}, takes a stream
+ * of trades for any number of stocks and works out the sums for each stock
+ * in the one pass, rather than splitting the trades by stock first
+ * @author JohnM
+ *
+ */
+public class KeyedStockPriceStatsCollector implements Collector<Trade, KeyedStockPriceStats, KeyedStockPriceStats> {
+
+	private static final Set<Characteristics> CHARACTERISTICS =
+			Collections.unmodifiableSet(EnumSet.of(Characteristics.IDENTITY_FINISH, Characteristics.UNORDERED));
+
+	/**
+	 * Adds the trade into the sums for its stock
+	 */
+	@Override
+	public BiConsumer<KeyedStockPriceStats, Trade> accumulator() {
+		return KeyedStockPriceStats::accept;
+	}
+
+	/**
+	 * Same as the {@link StockPriceStatsCollector} the sums don't depend on the order
+	 */
+	@Override
+	public Set<java.util.stream.Collector.Characteristics> characteristics() {
+		return CHARACTERISTICS;
+	}
+
+	/**
+	 * Folds one partial result into the other stock by stock
+	 */
+	@Override
+	public BinaryOperator<KeyedStockPriceStats> combiner() {
+		return KeyedStockPriceStats::combine;
+	}
+
+	/**
+	 * No final transformation is required
+	 */
+	@Override
+	public Function<KeyedStockPriceStats, KeyedStockPriceStats> finisher() {
+		return (keyedStockPriceStats -> keyedStockPriceStats);
+	}
+
+	/**
+	 * Provides the result container, sized for the symbols known so far
+	 */
+	@Override
+	public Supplier<KeyedStockPriceStats> supplier() {
+		return KeyedStockPriceStats::new;
+	}
+}
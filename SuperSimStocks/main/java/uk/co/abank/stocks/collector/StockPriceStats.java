@@ -1,51 +1,73 @@
 package uk.co.abank.stocks.collector;
 
-import java.util.LongSummaryStatistics;
+import uk.co.abank.stocks.dataobjects.Trade;
 
 /**
  * Class used to contain the statistics for the stream collector
- * Contains the stats for the sum of the quantities and the 
+ * Contains the sum of the quantities and the 
  * sum of the trade price* quantity
+ * Only the two sums are kept, the sums are checked for overflow
+ * rather than silently wrapping round on large trades
  * @author JohnM
  *
  */
 public class StockPriceStats {
 	
+	private long sumQuantity;
+	private long sumTradePriceQuantity;
 	
-	private LongSummaryStatistics quantity = new LongSummaryStatistics();
-    private LongSummaryStatistics tradePriceQuant = new LongSummaryStatistics();
-	
-    
-    /**
-     * 
-     * @return the stats associated with the quantity
-     */
-    public LongSummaryStatistics getQuantity() {
-		return quantity;
+	/**
+	 * Adds the trade into the sums
+	 * @param trade
+	 * @throws IllegalArgumentException if either of the sums overflows, the sums are left as they were
+	 */
+	public void accept(Trade trade) {
+		long newSumQuantity;
+		long newSumTradePriceQuantity;
+		try {
+			long tradePriceQuantity = Math.multiplyExact(trade.getQuantityShares(), trade.getTradePrice());
+			newSumQuantity = Math.addExact(sumQuantity, trade.getQuantityShares());
+			newSumTradePriceQuantity = Math.addExact(sumTradePriceQuantity, tradePriceQuantity);
+		} catch (ArithmeticException ae) {
+			throw new IllegalArgumentException("Trade price*quantity overflows" + trade.toString(), ae);
+		}
+		sumQuantity = newSumQuantity;
+		sumTradePriceQuantity = newSumTradePriceQuantity;
 	}
-    
-    /**
-     * 
-     * @param quantity statistics associated with the summation of share quantities
-     */
-	public void setQuantity(LongSummaryStatistics quantity) {
-		this.quantity = quantity;
+	
+	/**
+	 * Folds the other sums into these
+	 * @param other
+	 * @return this
+	 * @throws IllegalArgumentException if either of the sums overflows, the sums are left as they were
+	 */
+	public StockPriceStats combine(StockPriceStats other) {
+		long newSumQuantity;
+		long newSumTradePriceQuantity;
+		try {
+			newSumQuantity = Math.addExact(sumQuantity, other.sumQuantity);
+			newSumTradePriceQuantity = Math.addExact(sumTradePriceQuantity, other.sumTradePriceQuantity);
+		} catch (ArithmeticException ae) {
+			throw new IllegalArgumentException("Sum of trade price*quantity overflows", ae);
+		}
+		sumQuantity = newSumQuantity;
+		sumTradePriceQuantity = newSumTradePriceQuantity;
+		return this;
 	}
 	
 	/**
 	 * 
-	 * @return the stats associated with the tradeprice*quantity
+	 * @return the sum of the share quantities
 	 */
-	public LongSummaryStatistics getTradePriceQuant() {
-		return tradePriceQuant;
+	public long getSumQuantity() {
+		return sumQuantity;
 	}
 	
 	/**
 	 * 
-	 * @param tradePriceQuant the statistic associates with the tradeprice*quantity
-	 * of shares
+	 * @return the sum of the tradeprice*quantity
 	 */
-	public void setTradePriceQuant(LongSummaryStatistics tradePriceQuant) {
-		this.tradePriceQuant = tradePriceQuant;
+	public long getSumTradePriceQuantity() {
+		return sumTradePriceQuantity;
 	}
 }
@@ -1,6 +1,7 @@
 package uk.co.abank.stocks.collector;
 
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
@@ -22,6 +23,9 @@ import uk.co.abank.stocks.dataobjects.Trade;
  */
 public class StockPriceStatsCollector implements Collector<Trade, StockPriceStats, StockPriceStats>{
 
+	private static final Set<Characteristics> CHARACTERISTICS = 
+			Collections.unmodifiableSet(EnumSet.of(Characteristics.IDENTITY_FINISH, Characteristics.UNORDERED));
+
 
 	/**
 	 * Performs the combining of the stocks and trade into the 
@@ -29,18 +33,17 @@ public class StockPriceStatsCollector implements Collector<Trade, StockPriceStat
 	 */
 	@Override
 	public BiConsumer<StockPriceStats, Trade> accumulator() {
-		return (stockPriceStats, trade) -> {
-			stockPriceStats.getQuantity().accept(trade.getQuantityShares());
-			stockPriceStats.getTradePriceQuant().accept(trade.getQuantityShares()*trade.getTradePrice());			
-		};
+		return StockPriceStats::accept;
 	}
 
 	/**
 	 * The final function being identity function, so can be ommitted
+	 * The sums don't depend on the order of the trades so the stream
+	 * doesn't have to keep them in order, which helps parallel streams
 	 */
 	@Override
 	public Set<java.util.stream.Collector.Characteristics> characteristics() {
-		return Collections.singleton(Characteristics.IDENTITY_FINISH);
+		return CHARACTERISTICS;
 	}
 	
 	/**
@@ -49,11 +52,7 @@ public class StockPriceStatsCollector implements Collector<Trade, StockPriceStat
 	 */
 	@Override
 	public BinaryOperator<StockPriceStats> combiner() {
-		return (stockPriceStats, otherSPS) -> {
-			stockPriceStats.getQuantity().combine(otherSPS.getQuantity());
-			stockPriceStats.getTradePriceQuant().combine(otherSPS.getTradePriceQuant());
-			return stockPriceStats;
-		};
+		return StockPriceStats::combine;
 	}
 
 	/**
@@ -72,7 +71,7 @@ public class StockPriceStatsCollector implements Collector<Trade, StockPriceStat
 	 */
 	@Override
 	public Supplier<StockPriceStats> supplier() {
-		return () -> new StockPriceStats();
+		return StockPriceStats::new;
 	}
 
 }
\ No newline at end of file
@@ -4,17 +4,29 @@ package uk.co.abank.stocks.dataobjects;
  * Class used to represent the Global Beverage Corporation Exchange data
  * final class so that it can't be modified once created
  * Uses {@link StockBuilder} to build them
+ * The dividend is worked out once when the stock is created, held as a fraction
+ * so it is exact, and whether it rounds to zero is flagged for the P/E ratio
+ * The stock symbol is given an id from {@link SymbolDictionary#global()}, the same
+ * id as the trades in the stock
  * @author JohnM
  *
  */
 public final class Stock {
 	
 	private final String stockSymbol;
+	private final int stockSymbolId;
 	private final StockType stockType;
 	private final long lastDividend;
 	private final long fixedDividend;
 	private final long parValue;
 	
+	// Preferred is fixedDividend percent of the par value
+	private static final long PERCENT = 100L;
+	
+	private final long dividendNumerator;
+	private final long dividendDenominator;
+	private final boolean dividendZero;
+	
 	/**
 	 * Constructor 
 	 * @param stockSymbol 
@@ -25,11 +37,51 @@ public final class Stock {
 	 */
 	public Stock(String stockSymbol, StockType stockType, 
 			long lastDividend, long fixedDividend, long parValue) {
-		this.stockSymbol = stockSymbol;
+		if (stockSymbol == null) {
+			this.stockSymbolId = -1;
+			this.stockSymbol = null;
+		} else {
+			this.stockSymbolId = SymbolDictionary.global().getId(stockSymbol);
+			this.stockSymbol = SymbolDictionary.global().getSymbol(stockSymbolId);
+		}
 		this.stockType = stockType;
 		this.lastDividend = lastDividend;
 		this.fixedDividend = fixedDividend;
 		this.parValue = parValue;
+		
+		if (stockType == null)
+			throw new IllegalArgumentException("Stock has no stocktype" + toString());
+		switch (stockType) {
+			case Common:
+				this.dividendNumerator = lastDividend;
+				this.dividendDenominator = 1L;
+				break;
+			case Preferred:
+				this.dividendNumerator = preferredDividend(fixedDividend, parValue);
+				this.dividendDenominator = PERCENT;
+				break;
+			default:
+				throw new IllegalArgumentException("Stock has no stocktype" + toString());
+		}
+		long remainder = Math.abs(dividendNumerator % dividendDenominator);
+		this.dividendZero = dividendNumerator / dividendDenominator == 0 
+				&& remainder < dividendDenominator - remainder;
+	}
+	
+	/**
+	 * Fixed dividend percent of the par value, before dividing by 100
+	 * @param fixedDividend
+	 * @param parValue
+	 * @return
+	 * @throws IllegalArgumentException if it overflows a long
+	 */
+	static long preferredDividend(long fixedDividend, long parValue) {
+		try {
+			return Math.multiplyExact(fixedDividend, parValue);
+		} catch (ArithmeticException e) {
+			throw new IllegalArgumentException("Dividend overflows fixedDividend=" + fixedDividend 
+					+ ", parValue=" + parValue);
+		}
 	}
 	
 	/**
@@ -40,6 +92,14 @@ public final class Stock {
 		return stockSymbol;
 	}
 
+	/**
+	 * 
+	 * @return the id of the stock symbol in {@link SymbolDictionary#global()}, -1 if there is no symbol
+	 */
+	public int getStockSymbolId() {
+		return stockSymbolId;
+	}
+
 	/**
 	 * 
 	 * @return the stock type
@@ -72,6 +132,30 @@ public final class Stock {
 		return parValue;
 	}
 
+	/**
+	 * The dividend is getDividendNumerator / getDividendDenominator
+	 * @return the last dividend for common stock, the fixed dividend * par value for preferred
+	 */
+	public long getDividendNumerator() {
+		return dividendNumerator;
+	}
+	
+	/**
+	 * 
+	 * @return 1 for common stock, 100 for preferred
+	 */
+	public long getDividendDenominator() {
+		return dividendDenominator;
+	}
+	
+	/**
+	 * 
+	 * @return <code>true</code> if the dividend rounds half up to zero
+	 */
+	public boolean isDividendZero() {
+		return dividendZero;
+	}
+
 	/**
 	 * Used for logging in case of exception being produced
 	 */
@@ -89,7 +173,7 @@ public final class Stock {
 		result = prime * result + (int) (fixedDividend ^ (fixedDividend >>> 32));
 		result = prime * result + (int) (lastDividend ^ (lastDividend >>> 32));
 		result = prime * result + (int) (parValue ^ (parValue >>> 32));
-		result = prime * result + ((stockSymbol == null) ? 0 : stockSymbol.hashCode());
+		result = prime * result + stockSymbolId;
 		result = prime * result + ((stockType == null) ? 0 : stockType.hashCode());
 		return result;
 	}
@@ -109,10 +193,7 @@ public final class Stock {
 			return false;
 		if (parValue != other.parValue)
 			return false;
-		if (stockSymbol == null) {
-			if (other.stockSymbol != null)
-				return false;
-		} else if (!stockSymbol.equals(other.stockSymbol))
+		if (stockSymbolId != other.stockSymbolId)
 			return false;
 		if (stockType != other.stockType)
 			return false;
@@ -108,6 +108,7 @@ public class StockBuilder extends Validated implements Builder<Stock>, Validator
 		validateStockSymbol();
 		validateStockType();
 		validateFixedDividend();
+		validateDividend();
 		setValidated(true);
 		return this;
 	}
@@ -166,4 +167,16 @@ public class StockBuilder extends Validated implements Builder<Stock>, Validator
 			}
 		}	
 	}
+	
+	/**
+	 * Used to validate the dividend worked out by the stock doesn't overflow
+	 */
+	private void validateDividend() {
+		if (stockType != StockType.Preferred) return;
+		try {
+			Stock.preferredDividend(fixedDividend, parValue);
+		} catch (IllegalArgumentException iae) {
+			validationErrors.add(iae.getMessage());
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+package uk.co.abank.stocks.dataobjects;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Holds a value per stock in an array indexed by the stock symbol id from a
+ * {@link SymbolDictionary}, used instead of a map keyed by the stock symbol
+ * so a lookup is an array read with no hashing
+ * Reads don't lock, adding a value for a new stock locks and grows the array
+ * @author JohnM
+ *
+ * @param <T> the value held for each stock
+ */
+public final class SymbolArray<T> {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private volatile AtomicReferenceArray<T> values = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+	private volatile int count;
+
+	/**
+	 *
+	 * @param stockSymbolId
+	 * @return the value for the stock or null if there isn't one
+	 */
+	public T get(int stockSymbolId) {
+		AtomicReferenceArray<T> current = values;
+		if (stockSymbolId < 0 || stockSymbolId >= current.length())
+			return null;
+		return current.get(stockSymbolId);
+	}
+
+	/**
+	 * Gets the value for the stock, creating it if there isn't one
+	 * @param stockSymbolId
+	 * @param create makes the value from the id, only called once per stock
+	 * @return the value for the stock
+	 */
+	public T computeIfAbsent(int stockSymbolId, IntFunction<? extends T> create) {
+		T value = get(stockSymbolId);
+		if (value != null)
+			return value;
+		return add(stockSymbolId, create);
+	}
+
+	/**
+	 * Passes each value to the consumer in stock symbol id order
+	 * @param consumer
+	 */
+	public void forEach(Consumer<? super T> consumer) {
+		AtomicReferenceArray<T> current = values;
+		for (int i = 0; i < current.length(); i++) {
+			T value = current.get(i);
+			if (value != null)
+				consumer.accept(value);
+		}
+	}
+
+	/**
+	 *
+	 * @return the number of stocks with a value
+	 */
+	public int size() {
+		return count;
+	}
+
+	private synchronized T add(int stockSymbolId, IntFunction<? extends T> create) {
+		if (stockSymbolId < 0)
+			throw new IllegalArgumentException("Stock symbol id is negative " + stockSymbolId);
+		AtomicReferenceArray<T> current = values;
+		if (stockSymbolId >= current.length()) {
+			int capacity = current.length();
+			while (capacity <= stockSymbolId) {
+				capacity <<= 1;
+			}
+			AtomicReferenceArray<T> grown = new AtomicReferenceArray<>(capacity);
+			for (int i = 0; i < current.length(); i++) {
+				grown.set(i, current.get(i));
+			}
+			values = grown;
+			current = grown;
+		}
+		T value = current.get(stockSymbolId);
+		if (value == null) {
+			value = create.apply(stockSymbolId);
+			current.set(stockSymbolId, value);
+			count++;
+		}
+		return value;
+	}
+}
@@ -0,0 +1,85 @@
+package uk.co.abank.stocks.dataobjects;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Gives each stock symbol a small int id, the ids are handed out in order
+ * starting at 0 so they can be used as an index into an array
+ * Once a symbol has an id it keeps it
+ * {@link #global()} is the dictionary the {@link Trade} and {@link Stock} ids come from,
+ * so anything keyed by stock can be an array indexed by the id, see {@link SymbolArray}
+ * @author JohnM
+ *
+ */
+public final class SymbolDictionary {
+
+	private static final SymbolDictionary GLOBAL = new SymbolDictionary();
+
+	private final ConcurrentMap<String, Integer> idsBySymbol = new ConcurrentHashMap<>();
+	private volatile String[] symbols = new String[16];
+	private volatile int size;
+
+	/**
+	 * 
+	 * @return the dictionary used by the {@link TradeBuilder} and {@link StockBuilder}
+	 */
+	public static SymbolDictionary global() {
+		return GLOBAL;
+	}
+
+	/**
+	 * Gets the id for the symbol, giving it the next id if it hasn't been seen before
+	 * @param stockSymbol
+	 * @return the id for the stock symbol
+	 */
+	public int getId(String stockSymbol) {
+		Integer id = idsBySymbol.get(stockSymbol);
+		if (id != null)
+			return id;
+		return addSymbol(stockSymbol);
+	}
+
+	/**
+	 *
+	 * @param stockSymbol
+	 * @return the id for the stock symbol, or -1 if the symbol doesn't have one
+	 */
+	public int findId(String stockSymbol) {
+		Integer id = idsBySymbol.get(stockSymbol);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 *
+	 * @param id
+	 * @return the stock symbol with the id
+	 */
+	public String getSymbol(int id) {
+		if (id < 0 || id >= size)
+			throw new IllegalArgumentException("No stock symbol for id " + id);
+		return symbols[id];
+	}
+
+	/**
+	 *
+	 * @return the number of symbols, all the ids are less than this
+	 */
+	public int size() {
+		return size;
+	}
+
+	private synchronized int addSymbol(String stockSymbol) {
+		Integer id = idsBySymbol.get(stockSymbol);
+		if (id != null)
+			return id;
+		int newId = size;
+		if (newId == symbols.length)
+			symbols = Arrays.copyOf(symbols, newId << 1);
+		symbols[newId] = stockSymbol;
+		size = newId + 1;
+		idsBySymbol.put(stockSymbol, newId);
+		return newId;
+	}
+}
@@ -6,19 +6,26 @@ import java.time.LocalDateTime;
  * Class used to represent a Trade
  * final class so that it can't be modified once created
  * Uses {@link TradeBuilder} to build it
+ * The stock symbol is given an id from {@link SymbolDictionary#global()} when the
+ * trade is created, trades are compared on the id and it can be used to index
+ * arrays of per stock data
+ * The trade time is held as nanoseconds since the epoch (UTC) so comparing trade
+ * times is one long comparison, {@link #getTradeTime()} is kept for code that
+ * still wants a {@link LocalDateTime}
  * @author JohnM
  *
  */
 public final class Trade {
 	
 	private final String stockSymbol;
+	private final int stockSymbolId;
 	private final long quantityShares;
 	private final boolean buyNotSell;
-	private final LocalDateTime tradeTime;
+	private final long tradeTimeNanos;
 	private final long tradePrice;
 	
 	/**
-	 * Constructor
+	 * Constructor, the trade time is taken as being in {@link TradeTimes#ZONE}
 	 * @param stockSymbol
 	 * @param quantityShares
 	 * @param buyNotSell
@@ -27,21 +34,67 @@ public final class Trade {
 	 */
 	public Trade(String stockSymbol, long quantityShares, boolean buyNotSell, LocalDateTime tradeTime,
 			long tradePrice) {
+		this(stockSymbol, quantityShares, buyNotSell, TradeTimes.toEpochNanos(tradeTime), tradePrice);
+	}
+	
+	/**
+	 * Constructor
+	 * @param stockSymbol
+	 * @param quantityShares
+	 * @param buyNotSell
+	 * @param tradeTimeNanos nanoseconds since the epoch
+	 * @param tradePrice
+	 */
+	public Trade(String stockSymbol, long quantityShares, boolean buyNotSell, long tradeTimeNanos,
+			long tradePrice) {
 		super();
-		this.stockSymbol = stockSymbol;
+		if (stockSymbol == null) {
+			this.stockSymbolId = -1;
+			this.stockSymbol = null;
+		} else {
+			this.stockSymbolId = SymbolDictionary.global().getId(stockSymbol);
+			this.stockSymbol = SymbolDictionary.global().getSymbol(stockSymbolId);
+		}
 		this.quantityShares = quantityShares;
 		this.buyNotSell = buyNotSell;
-		this.tradeTime = tradeTime;
+		this.tradeTimeNanos = tradeTimeNanos;
 		this.tradePrice = tradePrice;
 	}
 	
 	/**
-	 * @return
+	 * Constructor for a stock symbol that already has an id, used where the
+	 * trades are held by id e.g. the columnar trade store
+	 * @param stockSymbolId the id from {@link SymbolDictionary#global()}
+	 * @param quantityShares
+	 * @param buyNotSell
+	 * @param tradeTimeNanos nanoseconds since the epoch
+	 * @param tradePrice
+	 */
+	public Trade(int stockSymbolId, long quantityShares, boolean buyNotSell, long tradeTimeNanos,
+			long tradePrice) {
+		this.stockSymbol = SymbolDictionary.global().getSymbol(stockSymbolId);
+		this.stockSymbolId = stockSymbolId;
+		this.quantityShares = quantityShares;
+		this.buyNotSell = buyNotSell;
+		this.tradeTimeNanos = tradeTimeNanos;
+		this.tradePrice = tradePrice;
+	}
+	
+	/**
+	 * @return the stock symbol, the same String for every trade of the stock
 	 */
 	public String getStockSymbol() {
 		return stockSymbol;
 	}
 	
+	/**
+	 * 
+	 * @return the id of the stock symbol in {@link SymbolDictionary#global()}, -1 if there is no symbol
+	 */
+	public int getStockSymbolId() {
+		return stockSymbolId;
+	}
+	
 	/**
 	 * 
 	 * @return
@@ -51,11 +104,20 @@ public final class Trade {
 	}
 	
 	/**
-	 * 
+	 * Creates the {@link LocalDateTime} in {@link TradeTimes#ZONE} each time,
+	 * use {@link #getTradeTimeNanos()} to compare trade times
 	 * @return
 	 */
 	public LocalDateTime getTradeTime() {
-		return tradeTime;
+		return TradeTimes.toTradeTime(tradeTimeNanos);
+	}
+	
+	/**
+	 * 
+	 * @return the trade time in nanoseconds since the epoch
+	 */
+	public long getTradeTimeNanos() {
+		return tradeTimeNanos;
 	}
 	
 	/**
@@ -77,7 +139,7 @@ public final class Trade {
 	@Override
 	public String toString() {
 		return "Trade [stockSymbol=" + stockSymbol + ", quantityShares=" + quantityShares + ", buyNotSell=" + buyNotSell
-				+ ", tradeTime=" + tradeTime + ", tradePrice=" + tradePrice + "]";
+				+ ", tradeTime=" + getTradeTime() + ", tradePrice=" + tradePrice + "]";
 	}
 
 	@Override
@@ -86,9 +148,9 @@ public final class Trade {
 		int result = 1;
 		result = prime * result + (buyNotSell ? 1231 : 1237);
 		result = prime * result + (int) (quantityShares ^ (quantityShares >>> 32));
-		result = prime * result + ((stockSymbol == null) ? 0 : stockSymbol.hashCode());
+		result = prime * result + stockSymbolId;
 		result = prime * result + (int) (tradePrice ^ (tradePrice >>> 32));
-		result = prime * result + ((tradeTime == null) ? 0 : tradeTime.hashCode());
+		result = prime * result + (int) (tradeTimeNanos ^ (tradeTimeNanos >>> 32));
 		return result;
 	}
 
@@ -105,17 +167,11 @@ public final class Trade {
 			return false;
 		if (quantityShares != other.quantityShares)
 			return false;
-		if (stockSymbol == null) {
-			if (other.stockSymbol != null)
-				return false;
-		} else if (!stockSymbol.equals(other.stockSymbol))
+		if (stockSymbolId != other.stockSymbolId)
 			return false;
 		if (tradePrice != other.tradePrice)
 			return false;
-		if (tradeTime == null) {
-			if (other.tradeTime != null)
-				return false;
-		} else if (!tradeTime.equals(other.tradeTime))
+		if (tradeTimeNanos != other.tradeTimeNanos)
 			return false;
 		return true;
 	}
@@ -1,5 +1,6 @@
 package uk.co.abank.stocks.dataobjects;
 
+import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -11,6 +12,7 @@ import java.util.List;
  * Also performs some validation of the input variables that can be inferred
  * from the spec
  * It assumes tradeTime is supplied from system, so doesn't require validation
+ * if it isn't set the trade time is taken from the clock when the trade is built
  * this could easily be altered, if human input 
  * i.e. convert from string to date object etc and for the other fields if there was a
  * set of validation rules
@@ -24,7 +26,9 @@ public class TradeBuilder extends Validated implements Builder<Trade>, Validator
 	private String stockSymbol;
 	private long quantityShares;
 	private boolean buyNotSell;
-	private LocalDateTime tradeTime;
+	private long tradeTimeNanos;
+	private boolean tradeTimeSet;
+	private final Clock clock;
 	private long tradePrice;
 
 	/**
@@ -32,6 +36,21 @@ public class TradeBuilder extends Validated implements Builder<Trade>, Validator
 	 */
 	private List<String> validationErrors = new ArrayList<>();
 		
+	/**
+	 * Uses the system clock for trades without a trade time
+	 */
+	public TradeBuilder() {
+		this(Clock.systemUTC());
+	}
+	
+	/**
+	 * 
+	 * @param clock gives the trade time for trades without one, e.g. a replay clock
+	 */
+	public TradeBuilder(Clock clock) {
+		this.clock = clock;
+	}
+	
 	/**
 	 * As the stock symbol appears to be unique must validate
 	 * to ensure it is populated
@@ -59,7 +78,20 @@ public class TradeBuilder extends Validated implements Builder<Trade>, Validator
 	 * @return
 	 */
 	public TradeBuilder setTradeTime(LocalDateTime tradeTime) {
-		this.tradeTime = tradeTime;
+		this.tradeTimeSet = tradeTime != null;
+		if (tradeTimeSet)
+			this.tradeTimeNanos = TradeTimes.toEpochNanos(tradeTime);
+		return this;
+	}
+	
+	/**
+	 * 
+	 * @param tradeTimeNanos nanoseconds since the epoch
+	 * @return
+	 */
+	public TradeBuilder setTradeTimeNanos(long tradeTimeNanos) {
+		this.tradeTimeNanos = tradeTimeNanos;
+		this.tradeTimeSet = true;
 		return this;
 	}
 
@@ -103,6 +135,7 @@ public class TradeBuilder extends Validated implements Builder<Trade>, Validator
 		if (!isValidated()) throw new IllegalStateException("Trade has not been validated");
 		if (validationErrors.size() > 0)
 			throw new IllegalArgumentException("Invalid Trade" + validationErrors.toString());
+		long tradeTime = tradeTimeSet ? tradeTimeNanos : TradeTimes.toEpochNanos(clock.instant());
 		return new Trade(stockSymbol, quantityShares, buyNotSell, tradeTime, tradePrice);
 	}
 	
@@ -0,0 +1,71 @@
+package uk.co.abank.stocks.dataobjects;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Conversions between the nanoseconds since the epoch held on a {@link Trade},
+ * {@link Instant} and {@link LocalDateTime}. A LocalDateTime trade time is
+ * taken as being in the system default zone as it came from LocalDateTime.now()
+ * @author JohnM
+ *
+ */
+public final class TradeTimes {
+
+	/**
+	 * Zone the trade times are assumed to be recorded in
+	 */
+	public static final ZoneId ZONE = ZoneId.systemDefault();
+
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+	private TradeTimes() {
+	}
+
+	/**
+	 *
+	 * @param tradeTime
+	 * @return the instant on the time line for the trade time
+	 */
+	public static Instant toInstant(LocalDateTime tradeTime) {
+		return tradeTime.atZone(ZONE).toInstant();
+	}
+
+	/**
+	 *
+	 * @param instant
+	 * @return the trade time for the instant on the time line
+	 */
+	public static LocalDateTime toTradeTime(Instant instant) {
+		return LocalDateTime.ofInstant(instant, ZONE);
+	}
+
+	/**
+	 *
+	 * @param tradeTime
+	 * @return the nanoseconds since the epoch for the trade time
+	 */
+	public static long toEpochNanos(LocalDateTime tradeTime) {
+		return toEpochNanos(toInstant(tradeTime));
+	}
+
+	/**
+	 *
+	 * @param instant
+	 * @return the nanoseconds since the epoch for the instant
+	 */
+	public static long toEpochNanos(Instant instant) {
+		return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), NANOS_PER_SECOND), instant.getNano());
+	}
+
+	/**
+	 *
+	 * @param epochNanos nanoseconds since the epoch
+	 * @return the trade time for the nanoseconds since the epoch
+	 */
+	public static LocalDateTime toTradeTime(long epochNanos) {
+		return toTradeTime(Instant.ofEpochSecond(Math.floorDiv(epochNanos, NANOS_PER_SECOND),
+				Math.floorMod(epochNanos, NANOS_PER_SECOND)));
+	}
+}
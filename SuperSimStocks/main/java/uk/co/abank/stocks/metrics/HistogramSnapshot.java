@@ -0,0 +1,93 @@
+package uk.co.abank.stocks.metrics;
+
+import java.util.Locale;
+
+/**
+ * The values of a {@link LatencyHistogram} at the time the snapshot was taken
+ * The percentiles are the highest value in their bucket so are never under
+ * the real value and are over it by at most 1/64
+ * @author JohnM
+ *
+ */
+public final class HistogramSnapshot {
+
+	private final long count;
+	private final double mean;
+	private final long max;
+	private final long p50;
+	private final long p90;
+	private final long p99;
+	private final long p999;
+
+	HistogramSnapshot(long count, double mean, long max, long p50, long p90, long p99, long p999) {
+		this.count = count;
+		this.mean = mean;
+		this.max = max;
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p99 = p99;
+		this.p999 = p999;
+	}
+
+	/**
+	 *
+	 * @return the number of values recorded
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 *
+	 * @return the mean of the values recorded
+	 */
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 *
+	 * @return the largest value recorded
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 *
+	 * @return the median
+	 */
+	public long getP50() {
+		return p50;
+	}
+
+	/**
+	 *
+	 * @return the 90th percentile
+	 */
+	public long getP90() {
+		return p90;
+	}
+
+	/**
+	 *
+	 * @return the 99th percentile
+	 */
+	public long getP99() {
+		return p99;
+	}
+
+	/**
+	 *
+	 * @return the 99.9th percentile
+	 */
+	public long getP999() {
+		return p999;
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + count + " mean=" + String.format(Locale.ROOT, "%.1f", mean) + " p50=" + p50 + " p90=" + p90
+				+ " p99=" + p99 + " p999=" + p999 + " max=" + max;
+	}
+}
@@ -0,0 +1,106 @@
+package uk.co.abank.stocks.metrics;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.Collection;
+import java.util.List;
+
+import uk.co.abank.stocks.calculators.StockCalculator;
+import uk.co.abank.stocks.collector.KeyedStockPriceStats;
+import uk.co.abank.stocks.dataobjects.Trade;
+
+/**
+ * A {@link StockCalculator} that times each calculation and records how many
+ * trades each one was given to scan
+ * The grouped stock prices all go through {@link #collectStockPriceStats(List, boolean)}
+ * so are only timed there
+ * @author JohnM
+ *
+ */
+public class InstrumentedStockCalculator extends StockCalculator {
+
+	private final LatencyHistogram stockPriceNanos;
+	private final LatencyHistogram stockPricesNanos;
+	private final LatencyHistogram allShareIndexNanos;
+	private final LatencyHistogram tradesScanned;
+
+	/**
+	 * Constructor
+	 * @param clock gives the end of the window
+	 * @param windowMinutes the length of the window in minutes
+	 * @param metricsRegistry
+	 */
+	public InstrumentedStockCalculator(Clock clock, long windowMinutes, MetricsRegistry metricsRegistry) {
+		super(clock, windowMinutes);
+		this.stockPriceNanos = metricsRegistry.histogram("stockCalculator.calculateStockPrice");
+		this.stockPricesNanos = metricsRegistry.histogram("stockCalculator.calculateStockPrices");
+		this.allShareIndexNanos = metricsRegistry.histogram("stockCalculator.calculateAllShareIndex");
+		this.tradesScanned = metricsRegistry.histogram("stockCalculator.tradesScanned");
+	}
+
+	@Override
+	public BigDecimal calculateStockPriceStreams(List<Trade> trades) {
+		long startNanos = System.nanoTime();
+		try {
+			return super.calculateStockPriceStreams(trades);
+		} finally {
+			recordStockPrice(startNanos, trades.size());
+		}
+	}
+
+	@Override
+	public BigDecimal calculateStockPriceParallelStreams(List<Trade> trades) {
+		long startNanos = System.nanoTime();
+		try {
+			return super.calculateStockPriceParallelStreams(trades);
+		} finally {
+			recordStockPrice(startNanos, trades.size());
+		}
+	}
+
+	@Override
+	public BigDecimal calculateStockPrice(List<Trade> trades) {
+		long startNanos = System.nanoTime();
+		try {
+			return super.calculateStockPrice(trades);
+		} finally {
+			recordStockPrice(startNanos, trades.size());
+		}
+	}
+
+	@Override
+	public BigDecimal calculateStockPriceInWindow(List<Trade> windowTrades) {
+		long startNanos = System.nanoTime();
+		try {
+			return super.calculateStockPriceInWindow(windowTrades);
+		} finally {
+			recordStockPrice(startNanos, windowTrades.size());
+		}
+	}
+
+	@Override
+	public KeyedStockPriceStats collectStockPriceStats(List<Trade> trades, boolean parallel) {
+		long startNanos = System.nanoTime();
+		try {
+			return super.collectStockPriceStats(trades, parallel);
+		} finally {
+			stockPricesNanos.recordSince(startNanos);
+			tradesScanned.record(trades.size());
+		}
+	}
+
+	@Override
+	public BigDecimal calculateAllShareIndex(Collection<BigDecimal> sharePrices) {
+		long startNanos = System.nanoTime();
+		try {
+			return super.calculateAllShareIndex(sharePrices);
+		} finally {
+			allShareIndexNanos.recordSince(startNanos);
+		}
+	}
+
+	private void recordStockPrice(long startNanos, int tradeCount) {
+		stockPriceNanos.recordSince(startNanos);
+		tradesScanned.record(tradeCount);
+	}
+}
@@ -0,0 +1,46 @@
+package uk.co.abank.stocks.metrics;
+
+import uk.co.abank.stocks.calculators.TickerCalculator;
+import uk.co.abank.stocks.dataobjects.Stock;
+
+/**
+ * A {@link TickerCalculator} that times the dividend yield and P/E ratio
+ * The BigDecimal methods wrap the fixed ones so every calculation is timed
+ * once whichever is called
+ * @author JohnM
+ *
+ */
+public class InstrumentedTickerCalculator extends TickerCalculator {
+
+	private final LatencyHistogram dividendYieldNanos;
+	private final LatencyHistogram peRatioNanos;
+
+	/**
+	 * Constructor
+	 * @param metricsRegistry
+	 */
+	public InstrumentedTickerCalculator(MetricsRegistry metricsRegistry) {
+		this.dividendYieldNanos = metricsRegistry.histogram("tickerCalculator.calculateDividendYield");
+		this.peRatioNanos = metricsRegistry.histogram("tickerCalculator.calculatePERatio");
+	}
+
+	@Override
+	public long calculateDividendYieldFixed(Stock stock, long tickerPrice) {
+		long startNanos = System.nanoTime();
+		try {
+			return super.calculateDividendYieldFixed(stock, tickerPrice);
+		} finally {
+			dividendYieldNanos.recordSince(startNanos);
+		}
+	}
+
+	@Override
+	public long calculatePERatioFixed(Stock stock, long tickerPrice) {
+		long startNanos = System.nanoTime();
+		try {
+			return super.calculatePERatioFixed(stock, tickerPrice);
+		} finally {
+			peRatioNanos.recordSince(startNanos);
+		}
+	}
+}
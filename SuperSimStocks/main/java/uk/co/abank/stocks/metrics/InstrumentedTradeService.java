@@ -0,0 +1,66 @@
+package uk.co.abank.stocks.metrics;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.services.TradeService;
+
+/**
+ * Wraps a {@link TradeService} and times each call into the {@link MetricsRegistry}
+ * the recording and retrieval of the trades is left to the wrapped service
+ * Use {@link Metrics#instrument(TradeService)} so nothing is wrapped when the
+ * metrics are switched off
+ * @author JohnM
+ *
+ */
+public class InstrumentedTradeService implements TradeService {
+
+	private final TradeService tradeService;
+	private final LatencyHistogram recordTradeNanos;
+	private final LatencyHistogram getTradesNanos;
+	private final LongAdder recorded;
+	private final LongAdder notRecorded;
+
+	/**
+	 * Constructor
+	 * @param tradeService the service that records the trades
+	 * @param metricsRegistry
+	 */
+	public InstrumentedTradeService(TradeService tradeService, MetricsRegistry metricsRegistry) {
+		this.tradeService = tradeService;
+		this.recordTradeNanos = metricsRegistry.histogram("tradeService.recordTrade");
+		this.getTradesNanos = metricsRegistry.histogram("tradeService.getTrades");
+		this.recorded = metricsRegistry.counter("tradeService.recorded");
+		this.notRecorded = metricsRegistry.counter("tradeService.notRecorded");
+	}
+
+	@Override
+	public boolean recordTrade(Trade trade) {
+		long startNanos = System.nanoTime();
+		boolean tradeRecorded = tradeService.recordTrade(trade);
+		recordTradeNanos.recordSince(startNanos);
+		(tradeRecorded ? recorded : notRecorded).increment();
+		return tradeRecorded;
+	}
+
+	@Override
+	public List<Trade> getTrades() {
+		long startNanos = System.nanoTime();
+		try {
+			return tradeService.getTrades();
+		} finally {
+			getTradesNanos.recordSince(startNanos);
+		}
+	}
+
+	@Override
+	public List<Trade> getTrades(String stockSymbol) {
+		long startNanos = System.nanoTime();
+		try {
+			return tradeService.getTrades(stockSymbol);
+		} finally {
+			getTradesNanos.recordSince(startNanos);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package uk.co.abank.stocks.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of long values, e.g. nanoseconds taken or number of trades scanned
+ * The buckets are laid out the same way as HdrHistogram, every value below 128
+ * has its own bucket then each power of two is split into 64 buckets, so any
+ * value is held to within 1/64 of itself with a fixed array of 3776 counts
+ * Recording is lock free and doesn't create any objects so it can be used on
+ * the hot path from any number of threads, {@link #snapshot()} copies the counts
+ * @author JohnM
+ *
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKET_HALF = 1 << SUB_BUCKET_BITS;
+	private static final int SUB_BUCKET_COUNT = SUB_BUCKET_HALF << 1;
+	static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF + SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder totalCount = new LongAdder();
+	private final LongAdder totalValue = new LongAdder();
+	private final AtomicLong maxValue = new AtomicLong();
+
+	/**
+	 * Records the value, negative values are recorded as zero
+	 * @param value
+	 */
+	public void record(long value) {
+		if (value < 0L)
+			value = 0L;
+		counts.incrementAndGet(bucketIndex(value));
+		totalCount.increment();
+		totalValue.add(value);
+		long max = maxValue.get();
+		while (value > max && !maxValue.compareAndSet(max, value)) {
+			max = maxValue.get();
+		}
+	}
+
+	/**
+	 * Records the time since the start
+	 * @param startNanos from {@link System#nanoTime()}
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * The counts are read one by one while values may still be recorded,
+	 * so a snapshot taken under load can be a few values out, never more
+	 * @return the count, mean, max and percentiles so far
+	 */
+	public HistogramSnapshot snapshot() {
+		long[] snapshotCounts = new long[BUCKET_COUNT];
+		long count = 0L;
+		for (int index = 0; index < BUCKET_COUNT; index++) {
+			snapshotCounts[index] = counts.get(index);
+			count += snapshotCounts[index];
+		}
+		long max = maxValue.get();
+		return new HistogramSnapshot(count, count == 0L ? 0D : (double)totalValue.sum() / totalCount.sum(), max,
+				valueAtPercentile(snapshotCounts, count, 50D, max),
+				valueAtPercentile(snapshotCounts, count, 90D, max),
+				valueAtPercentile(snapshotCounts, count, 99D, max),
+				valueAtPercentile(snapshotCounts, count, 99.9D, max));
+	}
+
+	static int bucketIndex(long value) {
+		if (value < SUB_BUCKET_COUNT)
+			return (int)value;
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return shift * SUB_BUCKET_HALF + (int)(value >>> shift);
+	}
+
+	/**
+	 *
+	 * @param index
+	 * @return the highest value that goes in the bucket
+	 */
+	static long highestValue(int index) {
+		if (index < SUB_BUCKET_COUNT)
+			return index;
+		int shift = (index >> SUB_BUCKET_BITS) - 1;
+		long subBucket = index - shift * SUB_BUCKET_HALF;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	private static long valueAtPercentile(long[] counts, long count, double percentile, long max) {
+		if (count == 0L)
+			return 0L;
+		long countAtPercentile = Math.max(1L, (long)Math.ceil(count * percentile / 100D));
+		long seen = 0L;
+		for (int index = 0; index < counts.length; index++) {
+			seen += counts[index];
+			if (seen >= countAtPercentile)
+				return Math.min(highestValue(index), max);
+		}
+		return max;
+	}
+}
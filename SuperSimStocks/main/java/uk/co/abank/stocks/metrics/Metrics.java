@@ -0,0 +1,78 @@
+package uk.co.abank.stocks.metrics;
+
+import java.time.Clock;
+
+import uk.co.abank.stocks.calculators.StockCalculator;
+import uk.co.abank.stocks.calculators.TickerCalculator;
+import uk.co.abank.stocks.services.TradeService;
+
+/**
+ * Switches the metrics on or off for the whole run and gives out the
+ * instrumented trade service and calculators
+ * Switched on with -Duk.co.abank.stocks.metrics=true, when off the plain
+ * objects are given out so there is nothing in the way of the calls
+ * e.g. <code>System.out.print(Metrics.global().snapshot().toText())</code> to dump them
+ * @author JohnM
+ *
+ */
+public final class Metrics {
+
+	/**
+	 * The system property that switches the metrics on
+	 */
+	public static final String ENABLED_PROPERTY = "uk.co.abank.stocks.metrics";
+
+	/**
+	 * Read once when the class is loaded
+	 */
+	public static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+	private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+	private Metrics() {
+	}
+
+	/**
+	 *
+	 * @return the registry the instrumented objects given out here record into
+	 */
+	public static MetricsRegistry global() {
+		return GLOBAL;
+	}
+
+	/**
+	 *
+	 * @param tradeService
+	 * @return the service wrapped if the metrics are on otherwise the service itself
+	 */
+	public static TradeService instrument(TradeService tradeService) {
+		return ENABLED ? new InstrumentedTradeService(tradeService, GLOBAL) : tradeService;
+	}
+
+	/**
+	 *
+	 * @return a calculator using the system clock and the default window
+	 */
+	public static StockCalculator stockCalculator() {
+		return stockCalculator(Clock.systemUTC(), StockCalculator.tradeTime);
+	}
+
+	/**
+	 *
+	 * @param clock gives the end of the window
+	 * @param windowMinutes the length of the window in minutes
+	 * @return an instrumented calculator if the metrics are on
+	 */
+	public static StockCalculator stockCalculator(Clock clock, long windowMinutes) {
+		return ENABLED ? new InstrumentedStockCalculator(clock, windowMinutes, GLOBAL)
+				: new StockCalculator(clock, windowMinutes);
+	}
+
+	/**
+	 *
+	 * @return an instrumented calculator if the metrics are on
+	 */
+	public static TickerCalculator tickerCalculator() {
+		return ENABLED ? new InstrumentedTickerCalculator(GLOBAL) : new TickerCalculator();
+	}
+}
@@ -0,0 +1,75 @@
+package uk.co.abank.stocks.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds the named counters and histograms, look them up once when the
+ * instrumented object is created and keep hold of them, the lookup isn't
+ * meant for the hot path
+ * A gauge is read when the snapshot is taken and shows with the counters
+ * @author JohnM
+ *
+ */
+public class MetricsRegistry {
+
+	private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+	/**
+	 *
+	 * @param name
+	 * @return the counter with the name, created if it doesn't exist
+	 */
+	public LongAdder counter(String name) {
+		return counters.computeIfAbsent(name, key -> new LongAdder());
+	}
+
+	/**
+	 *
+	 * @param name
+	 * @return the histogram with the name, created if it doesn't exist
+	 */
+	public LatencyHistogram histogram(String name) {
+		return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+	}
+
+	/**
+	 * Registers a value that is read rather than counted e.g. the size of a store,
+	 * the registry holds on to the gauge until it is removed
+	 * @param name
+	 * @param gauge read each time a snapshot is taken
+	 * @throws IllegalStateException if another gauge is already registered with the name
+	 */
+	public void gauge(String name, LongSupplier gauge) {
+		if (gauges.putIfAbsent(name, gauge) != null)
+			throw new IllegalStateException("Gauge already registered " + name);
+	}
+
+	/**
+	 * Lets go of the gauge, e.g. when the object it reads is closed
+	 * @param name
+	 * @param gauge only removed if it is the one registered with the name
+	 */
+	public void removeGauge(String name, LongSupplier gauge) {
+		gauges.remove(name, gauge);
+	}
+
+	/**
+	 *
+	 * @return the counters, gauges and histograms so far, sorted by name
+	 */
+	public MetricsSnapshot snapshot() {
+		Map<String, Long> counterValues = new TreeMap<>();
+		counters.forEach((name, counter) -> counterValues.put(name, counter.sum()));
+		gauges.forEach((name, gauge) -> counterValues.put(name, gauge.getAsLong()));
+		Map<String, HistogramSnapshot> histogramSnapshots = new TreeMap<>();
+		histograms.forEach((name, histogram) -> histogramSnapshots.put(name, histogram.snapshot()));
+		return new MetricsSnapshot(counterValues, histogramSnapshots);
+	}
+}
@@ -0,0 +1,98 @@
+package uk.co.abank.stocks.metrics;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The counters and histograms of a {@link MetricsRegistry} at one time,
+ * can be written out as plain text, one metric per line, or as JSON
+ * The histograms of times are in nanoseconds
+ * @author JohnM
+ *
+ */
+public final class MetricsSnapshot {
+
+	private final Map<String, Long> counters;
+	private final Map<String, HistogramSnapshot> histograms;
+
+	MetricsSnapshot(Map<String, Long> counters, Map<String, HistogramSnapshot> histograms) {
+		this.counters = Collections.unmodifiableMap(counters);
+		this.histograms = Collections.unmodifiableMap(histograms);
+	}
+
+	/**
+	 *
+	 * @param name
+	 * @return the value of the counter or 0 if there isn't one
+	 */
+	public long getCounter(String name) {
+		Long value = counters.get(name);
+		return value == null ? 0L : value;
+	}
+
+	/**
+	 *
+	 * @param name
+	 * @return the histogram or null if there isn't one
+	 */
+	public HistogramSnapshot getHistogram(String name) {
+		return histograms.get(name);
+	}
+
+	/**
+	 *
+	 * @return the counter values by name
+	 */
+	public Map<String, Long> getCounters() {
+		return counters;
+	}
+
+	/**
+	 *
+	 * @return the histograms by name
+	 */
+	public Map<String, HistogramSnapshot> getHistograms() {
+		return histograms;
+	}
+
+	/**
+	 * e.g. <code>tradeService.recordTrade count=10 mean=250.0 p50=240 ...</code>
+	 * @return one line per counter then one line per histogram
+	 */
+	public String toText() {
+		StringBuilder text = new StringBuilder();
+		counters.forEach((name, value) -> text.append(name).append(' ').append(value).append('\n'));
+		histograms.forEach((name, histogram) -> text.append(name).append(' ').append(histogram).append('\n'));
+		return text.toString();
+	}
+
+	/**
+	 * The names don't need escaping as they are chosen by the instrumented classes
+	 * @return an object with a counters object and a histograms object
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder("{\"counters\":{");
+		String separator = "";
+		for (Map.Entry<String, Long> counter : counters.entrySet()) {
+			json.append(separator).append('"').append(counter.getKey()).append("\":").append(counter.getValue());
+			separator = ",";
+		}
+		json.append("},\"histograms\":{");
+		separator = "";
+		for (Map.Entry<String, HistogramSnapshot> entry : histograms.entrySet()) {
+			HistogramSnapshot histogram = entry.getValue();
+			json.append(separator).append('"').append(entry.getKey()).append("\":{")
+				.append("\"count\":").append(histogram.getCount())
+				.append(",\"mean\":").append(String.format(Locale.ROOT, "%.1f", histogram.getMean()))
+				.append(",\"p50\":").append(histogram.getP50())
+				.append(",\"p90\":").append(histogram.getP90())
+				.append(",\"p99\":").append(histogram.getP99())
+				.append(",\"p999\":").append(histogram.getP999())
+				.append(",\"max\":").append(histogram.getMax())
+				.append('}');
+			separator = ",";
+		}
+		return json.append("}}").toString();
+	}
+}
@@ -0,0 +1,75 @@
+package uk.co.abank.stocks.pipeline;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * A position in the {@link TradeRingBuffer}, only ever written by the one
+ * thread that owns it and read by the others
+ * The value is padded on both sides so two sequences never share a cache line
+ * and a write to one doesn't slow down the threads reading the other
+ * @author JohnM
+ *
+ */
+public class Sequence extends SequenceValue {
+
+	// padding after the value, the padding before it is in SequencePadding
+	protected long p9, p10, p11, p12, p13, p14, p15;
+
+	private static final AtomicLongFieldUpdater<SequenceValue> VALUE =
+			AtomicLongFieldUpdater.newUpdater(SequenceValue.class, "value");
+
+	/**
+	 * Starts at -1, nothing has been published or handled
+	 */
+	public Sequence() {
+		this(-1L);
+	}
+
+	/**
+	 * Constructor
+	 * @param initialValue
+	 */
+	public Sequence(long initialValue) {
+		VALUE.lazySet(this, initialValue);
+	}
+
+	/**
+	 *
+	 * @return the value
+	 */
+	public long get() {
+		return value;
+	}
+
+	/**
+	 * Ordered write, cheaper than a volatile write and the readers still see
+	 * everything written before it
+	 * @param newValue
+	 */
+	public void set(long newValue) {
+		VALUE.lazySet(this, newValue);
+	}
+
+	/**
+	 *
+	 * @param expectedValue
+	 * @param newValue
+	 * @return true if the value was the expected value and has been set
+	 */
+	public boolean compareAndSet(long expectedValue, long newValue) {
+		return VALUE.compareAndSet(this, expectedValue, newValue);
+	}
+
+	@Override
+	public String toString() {
+		return Long.toString(get());
+	}
+}
+
+class SequencePadding {
+	protected long p1, p2, p3, p4, p5, p6, p7;
+}
+
+class SequenceValue extends SequencePadding {
+	protected volatile long value;
+}
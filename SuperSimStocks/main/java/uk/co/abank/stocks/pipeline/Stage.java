@@ -0,0 +1,72 @@
+package uk.co.abank.stocks.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * One stage of the {@link TradePipeline}, runs on its own thread waiting for
+ * the stage before it and handing every trade it has passed to the handler
+ * All the trades available are handled as one batch before the stage's
+ * sequence is moved on, so the sequence is written once per batch
+ * @author JohnM
+ *
+ */
+class Stage implements Runnable {
+
+	private final String name;
+	private final TradeRingBuffer ringBuffer;
+	private final Sequence dependency;
+	private final TradeHandler tradeHandler;
+	private final WaitStrategy waitStrategy;
+	private final BooleanSupplier running;
+	private final Sequence sequence = new Sequence();
+	private final AtomicLong failures = new AtomicLong();
+
+	Stage(String name, TradeRingBuffer ringBuffer, Sequence dependency, TradeHandler tradeHandler,
+			WaitStrategy waitStrategy, BooleanSupplier running) {
+		this.name = name;
+		this.ringBuffer = ringBuffer;
+		this.dependency = dependency;
+		this.tradeHandler = tradeHandler;
+		this.waitStrategy = waitStrategy;
+		this.running = running;
+	}
+
+	/**
+	 * An exception from the handler is counted and the stage carries on with
+	 * the next trade, otherwise every stage after it would stop
+	 */
+	@Override
+	public void run() {
+		long next = sequence.get() + 1;
+		while (true) {
+			long available = waitStrategy.waitFor(next, dependency, running);
+			if (available < next) {
+				if (!running.getAsBoolean())
+					return;
+				continue;
+			}
+			for (long handled = next; handled <= available; handled++) {
+				try {
+					tradeHandler.onTradeEvent(ringBuffer.get(handled), handled, handled == available);
+				} catch (RuntimeException e) {
+					failures.incrementAndGet();
+				}
+			}
+			sequence.set(available);
+			next = available + 1;
+		}
+	}
+
+	String getName() {
+		return name;
+	}
+
+	Sequence getSequence() {
+		return sequence;
+	}
+
+	long getFailures() {
+		return failures.get();
+	}
+}
@@ -0,0 +1,56 @@
+package uk.co.abank.stocks.pipeline;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+
+/**
+ * A slot in the {@link TradeRingBuffer}, created once when the ring is created
+ * and reused for every trade that passes through the slot
+ * The stages mark the trade as they go, only the stage that owns the
+ * event at the time writes to it
+ * @author JohnM
+ *
+ */
+public final class TradeEvent {
+
+	private Trade trade;
+	private int errors;
+	private boolean recorded;
+
+	void publish(Trade trade) {
+		this.trade = trade;
+		this.errors = 0;
+		this.recorded = false;
+	}
+
+	/**
+	 *
+	 * @return the trade published into the slot
+	 */
+	public Trade getTrade() {
+		return trade;
+	}
+
+	/**
+	 *
+	 * @return the errors from the validation stage, 0 if the trade is valid
+	 */
+	public int getErrors() {
+		return errors;
+	}
+
+	void setErrors(int errors) {
+		this.errors = errors;
+	}
+
+	/**
+	 *
+	 * @return true once the store stage has recorded the trade
+	 */
+	public boolean isRecorded() {
+		return recorded;
+	}
+
+	void setRecorded(boolean recorded) {
+		this.recorded = recorded;
+	}
+}
@@ -0,0 +1,19 @@
+package uk.co.abank.stocks.pipeline;
+
+/**
+ * The work done by one stage of the {@link TradePipeline}, called on the
+ * stage's own thread for each trade in order
+ * @author JohnM
+ *
+ */
+@FunctionalInterface
+public interface TradeHandler {
+
+	/**
+	 * Must not keep hold of the event, the slot is reused once every stage is done with it
+	 * @param tradeEvent
+	 * @param sequence the position of the trade in the pipeline
+	 * @param endOfBatch true for the last trade available, e.g. to publish once per batch
+	 */
+	void onTradeEvent(TradeEvent tradeEvent, long sequence, boolean endOfBatch);
+}
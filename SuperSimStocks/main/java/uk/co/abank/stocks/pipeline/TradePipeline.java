@@ -0,0 +1,243 @@
+package uk.co.abank.stocks.pipeline;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.services.TradeIngestionValidator;
+import uk.co.abank.stocks.services.TradeListener;
+import uk.co.abank.stocks.services.TradeService;
+
+/**
+ * A {@link TradeService} where recording a trade only publishes it into a
+ * {@link TradeRingBuffer}, the work is done by stages each on their own thread
+ * The first two stages are always validation, with the {@link TradeIngestionValidator}
+ * rules, and appending to the wrapped store, then any stages added, e.g.
+ * <pre>
+ * TradePipeline tradePipeline = new TradePipeline(new TradeServicePartitionedImpl(), 1 &lt;&lt; 16, WaitStrategy.SLEEPING)
+ *     .addStage("vwap", stockPriceEngine)
+ *     .addStage("index", (tradeEvent, sequence, endOfBatch) -&gt; ...);
+ * tradePipeline.start();
+ * </pre>
+ * Each stage waits for the one before so a trade goes through the stages in order,
+ * and every stage sees the trades in the order they were published
+ * The caller never waits for the stages, if they have fallen a full ring behind
+ * {@link #recordTrade(Trade)} returns false and the trade is counted as rejected
+ * The trades are read from the store so a trade just recorded may not be there yet
+ * @author JohnM
+ *
+ */
+public class TradePipeline implements TradeService, Closeable {
+
+	private final TradeService tradeService;
+	private final TradeRingBuffer ringBuffer;
+	private final WaitStrategy waitStrategy;
+	private final List<Stage> stages = new ArrayList<>();
+	private final List<Thread> threads = new ArrayList<>();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong invalid = new AtomicLong();
+	// threads between the accepting check and the end of the publish, close waits for them
+	private final AtomicLong publishing = new AtomicLong();
+
+	private volatile boolean accepting;
+	private volatile boolean running;
+
+	/**
+	 * Constructor, adds the validation and store stages
+	 * @param tradeService the store the valid trades are recorded in
+	 * @param bufferSize the number of trades the ring holds, a power of two
+	 * @param waitStrategy how the stages wait for trades
+	 */
+	public TradePipeline(TradeService tradeService, int bufferSize, WaitStrategy waitStrategy) {
+		this.tradeService = tradeService;
+		this.ringBuffer = new TradeRingBuffer(bufferSize);
+		this.waitStrategy = waitStrategy;
+		addStage("validate", this::validate);
+		addStage("store", this::store);
+	}
+
+	/**
+	 * Adds a stage after the ones already added
+	 * @param name used for the thread and the lag
+	 * @param tradeHandler
+	 * @return this
+	 */
+	public synchronized TradePipeline addStage(String name, TradeHandler tradeHandler) {
+		if (running)
+			throw new IllegalStateException("Pipeline already started " + name);
+		Sequence dependency = stages.isEmpty() ? ringBuffer.getCursor() : stages.get(stages.size() - 1).getSequence();
+		stages.add(new Stage(name, ringBuffer, dependency, tradeHandler, waitStrategy, this::isRunning));
+		return this;
+	}
+
+	/**
+	 * Adds a stage that passes each recorded trade to the listener, e.g. a
+	 * {@link uk.co.abank.stocks.calculators.SlidingWindowStockPriceEngine}
+	 * @param name used for the thread and the lag
+	 * @param tradeListener
+	 * @return this
+	 */
+	public TradePipeline addStage(String name, TradeListener tradeListener) {
+		return addStage(name, (tradeEvent, sequence, endOfBatch) -> {
+			if (tradeEvent.isRecorded())
+				tradeListener.onTrade(tradeEvent.getTrade());
+		});
+	}
+
+	/**
+	 * Starts a daemon thread for each stage
+	 */
+	public synchronized void start() {
+		if (running)
+			throw new IllegalStateException("Pipeline already started");
+		ringBuffer.setGatingSequence(stages.get(stages.size() - 1).getSequence());
+		running = true;
+		for (Stage stage : stages) {
+			Thread thread = new Thread(stage, "trade-pipeline-" + stage.getName());
+			thread.setDaemon(true);
+			threads.add(thread);
+			thread.start();
+		}
+		accepting = true;
+	}
+
+	/**
+	 * Publishes the trade for the stages, doesn't wait for it to be recorded
+	 * @return true if published, false if the pipeline is full or not running
+	 * @see {@link TradeService}
+	 */
+	@Override
+	public boolean recordTrade(Trade trade) {
+		publishing.incrementAndGet();
+		try {
+			if (accepting && ringBuffer.tryPublish(trade))
+				return true;
+		} finally {
+			publishing.decrementAndGet();
+		}
+		rejected.incrementAndGet();
+		return false;
+	}
+
+	@Override
+	public List<Trade> getTrades() {
+		return tradeService.getTrades();
+	}
+
+	@Override
+	public List<Trade> getTrades(String stockSymbol) {
+		return tradeService.getTrades(stockSymbol);
+	}
+
+	/**
+	 * Waits for every stage to finish the trades published so far
+	 * @param timeout
+	 * @param unit
+	 * @return true if they all finished in time
+	 * @throws InterruptedException
+	 */
+	public boolean awaitDrained(long timeout, TimeUnit unit) throws InterruptedException {
+		long published = ringBuffer.getCursor().get();
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		Sequence last = stages.get(stages.size() - 1).getSequence();
+		while (last.get() < published) {
+			if (System.nanoTime() - deadline > 0)
+				return false;
+			if (Thread.interrupted())
+				throw new InterruptedException();
+			TimeUnit.MICROSECONDS.sleep(100);
+		}
+		return true;
+	}
+
+	/**
+	 * How far each stage is behind the last trade published, the stage before a
+	 * stage with a large lag is usually the one that is slow
+	 * @return the number of trades waiting for each stage, in stage order
+	 */
+	public Map<String, Long> getLags() {
+		long published = ringBuffer.getCursor().get();
+		Map<String, Long> lags = new LinkedHashMap<>();
+		for (Stage stage : stages) {
+			lags.put(stage.getName(), published - stage.getSequence().get());
+		}
+		return lags;
+	}
+
+	/**
+	 *
+	 * @return the number of exceptions thrown by the handlers of all the stages
+	 */
+	public long getFailures() {
+		return stages.stream().mapToLong(Stage::getFailures).sum();
+	}
+
+	/**
+	 *
+	 * @return the number of trades not published as the pipeline was full or not running
+	 */
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	/**
+	 *
+	 * @return the number of trades the validation stage stopped
+	 */
+	public long getInvalid() {
+		return invalid.get();
+	}
+
+	/**
+	 * Stops taking trades, waits for the trades still being published, lets the
+	 * stages finish all the ones accepted then stops the threads
+	 */
+	@Override
+	public void close() {
+		accepting = false;
+		try {
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			// a caller that saw accepting before it was cleared can still be publishing
+			while (publishing.get() != 0 || ringBuffer.getCursor().get() != ringBuffer.getClaim().get()) {
+				if (System.nanoTime() - deadline > 0)
+					break;
+				Thread.yield();
+			}
+			awaitDrained(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		running = false;
+		for (Thread thread : threads) {
+			try {
+				thread.join(TimeUnit.SECONDS.toMillis(1));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private boolean isRunning() {
+		return running;
+	}
+
+	private void validate(TradeEvent tradeEvent, long sequence, boolean endOfBatch) {
+		Trade trade = tradeEvent.getTrade();
+		int errors = TradeIngestionValidator.validate(trade.getStockSymbol(), trade.getQuantityShares(),
+				trade.getTradePrice());
+		if (errors != TradeIngestionValidator.VALID)
+			invalid.incrementAndGet();
+		tradeEvent.setErrors(errors);
+	}
+
+	private void store(TradeEvent tradeEvent, long sequence, boolean endOfBatch) {
+		tradeEvent.setRecorded(tradeEvent.getErrors() == TradeIngestionValidator.VALID
+				&& tradeService.recordTrade(tradeEvent.getTrade()));
+	}
+}
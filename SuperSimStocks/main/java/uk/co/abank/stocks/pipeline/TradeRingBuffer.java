@@ -0,0 +1,117 @@
+package uk.co.abank.stocks.pipeline;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+
+/**
+ * Fixed size ring of {@link TradeEvent}'s, all created up front so publishing
+ * a trade doesn't create anything
+ * A trade is claimed a slot by moving the claim sequence on, written into it,
+ * then made visible to the stages by moving the cursor on in claim order
+ * A slot is only reused once the last stage, the gating sequence, is past it
+ * The array has spare slots at each end so the slots in use don't share
+ * a cache line with whatever is next to the array
+ * @author JohnM
+ *
+ */
+public class TradeRingBuffer {
+
+	private static final int PADDING = 16;
+
+	private final TradeEvent[] entries;
+	private final int bufferSize;
+	private final int mask;
+	private final Sequence claim = new Sequence();
+	private final Sequence cursor = new Sequence();
+	private volatile Sequence gatingSequence = cursor;
+
+	/**
+	 * Constructor
+	 * @param bufferSize must be a power of two
+	 */
+	public TradeRingBuffer(int bufferSize) {
+		if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1)
+			throw new IllegalArgumentException("Buffer size must be a power of two " + bufferSize);
+		this.bufferSize = bufferSize;
+		this.mask = bufferSize - 1;
+		this.entries = new TradeEvent[bufferSize + 2 * PADDING];
+		for (int i = 0; i < bufferSize; i++) {
+			entries[PADDING + i] = new TradeEvent();
+		}
+	}
+
+	/**
+	 * Claims the next slot, publishes the trade into it and moves the cursor on
+	 * Never waits for the stages, if the ring is full the trade isn't published
+	 * Can be called from any number of threads, a thread only waits for other
+	 * publishing threads that claimed the slots before it
+	 * @param trade
+	 * @return true if published, false if the ring is full
+	 */
+	public boolean tryPublish(Trade trade) {
+		long current;
+		long next;
+		do {
+			current = claim.get();
+			next = current + 1;
+			if (next - bufferSize > gatingSequence.get())
+				return false;
+		} while (!claim.compareAndSet(current, next));
+
+		get(next).publish(trade);
+		while (cursor.get() != current) {
+			Thread.yield();
+		}
+		cursor.set(next);
+		return true;
+	}
+
+	/**
+	 *
+	 * @param sequence
+	 * @return the event in the slot for the sequence
+	 */
+	public TradeEvent get(long sequence) {
+		return entries[PADDING + (int)(sequence & mask)];
+	}
+
+	/**
+	 *
+	 * @return the sequence of the last trade published
+	 */
+	public Sequence getCursor() {
+		return cursor;
+	}
+
+	/**
+	 *
+	 * @return the sequence of the last slot claimed, the cursor catches up with it
+	 * once the trades being published have been written
+	 */
+	public Sequence getClaim() {
+		return claim;
+	}
+
+	/**
+	 *
+	 * @return the number of slots
+	 */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 *
+	 * @return the number of slots free to publish into
+	 */
+	public long remainingCapacity() {
+		return bufferSize - (claim.get() - gatingSequence.get());
+	}
+
+	/**
+	 * Set once, to the sequence of the last stage, before anything is published
+	 * @param gatingSequence
+	 */
+	void setGatingSequence(Sequence gatingSequence) {
+		this.gatingSequence = gatingSequence;
+	}
+}
@@ -0,0 +1,70 @@
+package uk.co.abank.stocks.pipeline;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * How a stage waits for the stage before it, trading latency against CPU
+ * {@link #BUSY_SPIN} is the lowest latency but keeps a core busy for each stage,
+ * {@link #YIELDING} gives the core to other threads while waiting,
+ * {@link #SLEEPING} parks the thread so an idle pipeline uses next to no CPU
+ * @author JohnM
+ *
+ */
+@FunctionalInterface
+public interface WaitStrategy {
+
+	/**
+	 * Spins until the trades are there
+	 */
+	WaitStrategy BUSY_SPIN = (sequence, dependency, running) -> {
+		long available;
+		while ((available = dependency.get()) < sequence && running.getAsBoolean()) {
+			// spin
+		}
+		return available;
+	};
+
+	/**
+	 * Spins for a while then yields
+	 */
+	WaitStrategy YIELDING = (sequence, dependency, running) -> {
+		long available;
+		int spins = 100;
+		while ((available = dependency.get()) < sequence && running.getAsBoolean()) {
+			if (spins > 0)
+				spins--;
+			else
+				Thread.yield();
+		}
+		return available;
+	};
+
+	/**
+	 * Spins, then yields, then parks for 100 microseconds at a time
+	 */
+	WaitStrategy SLEEPING = (sequence, dependency, running) -> {
+		long available;
+		int spins = 200;
+		while ((available = dependency.get()) < sequence && running.getAsBoolean()) {
+			if (spins > 100)
+				spins--;
+			else if (spins > 0) {
+				spins--;
+				Thread.yield();
+			} else
+				LockSupport.parkNanos(100_000L);
+		}
+		return available;
+	};
+
+	/**
+	 * Waits until the dependency has reached the sequence
+	 * @param sequence the next sequence the stage wants
+	 * @param dependency the sequence of the stage before, or the ring buffer cursor
+	 * @param running stop waiting when this turns false
+	 * @return the highest sequence available, which can be past the sequence wanted
+	 * so the stage can drain them as a batch, or before it if the pipeline stopped
+	 */
+	long waitFor(long sequence, Sequence dependency, BooleanSupplier running);
+}
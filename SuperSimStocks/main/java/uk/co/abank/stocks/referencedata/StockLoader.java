@@ -0,0 +1,366 @@
+package uk.co.abank.stocks.referencedata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import uk.co.abank.stocks.dataobjects.Stock;
+import uk.co.abank.stocks.dataobjects.StockBuilder;
+import uk.co.abank.stocks.dataobjects.StockType;
+
+/**
+ * Loads the stock reference data in bulk from a CSV file or a compact binary file
+ * straight into {@link Stock} objects, without a {@link StockBuilder} per line
+ * The CSV is read a byte at a time from a buffer, which can be a memory mapped file,
+ * and numbers are parsed from the bytes so the only objects made per line are the
+ * stock and its symbol
+ * Lines are checked with the same rules as {@link StockBuilder}, a line that fails
+ * is reported to a {@link LineErrorHandler} with its line number and a set of error
+ * bits rather than a message, use {@link #describe(int)} to turn them into text
+ * Keeps a buffer for the symbol so isn't thread safe, use one per thread
+ * @author JohnM
+ *
+ */
+public class StockLoader {
+
+	/**
+	 * Told about each line that isn't loaded
+	 */
+	public interface LineErrorHandler {
+
+		/**
+		 *
+		 * @param lineNumber the line in the CSV or the record in the binary file, from 1
+		 * @param errors the ERROR_ bits set for the line
+		 */
+		void onLineError(long lineNumber, int errors);
+	}
+
+	// Error bits, a line can have more than one
+	public static final int ERROR_STOCK_SYMBOL = 1;
+	public static final int ERROR_STOCK_TYPE = 1 << 1;
+	public static final int ERROR_LAST_DIVIDEND = 1 << 2;
+	public static final int ERROR_FIXED_DIVIDEND = 1 << 3;
+	public static final int ERROR_PAR_VALUE = 1 << 4;
+	public static final int ERROR_DIVIDEND_OVERFLOW = 1 << 5;
+	public static final int ERROR_FIELD_COUNT = 1 << 6;
+	public static final int ERROR_TRUNCATED = 1 << 7;
+
+	private static final String[] ERROR_DESCRIPTIONS = {
+			"StockSymbol: is empty",
+			"StockType is not correctly defined",
+			"Last dividend is not a number",
+			"Fixed dividend is not a number",
+			"Par value is not a number",
+			"Dividend overflows",
+			"Wrong number of fields",
+			"Record is truncated"
+	};
+
+	/**
+	 * Binary file starts with this then the number of records
+	 */
+	public static final int BINARY_MAGIC = 0x47424345;
+
+	private static final int FIELD_COUNT = 5;
+	// Long.MIN_VALUE can't be loaded, it is used to mark a field that isn't a number
+	private static final long NOT_A_NUMBER = Long.MIN_VALUE;
+	private static final int MAX_SYMBOL_LENGTH = 255;
+
+	private static final byte[] COMMON = "Common".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] PREFERRED = "Preferred".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte STOCK_TYPE_COMMON = 0;
+	private static final byte STOCK_TYPE_PREFERRED = 1;
+
+	private final byte[] symbol = new byte[MAX_SYMBOL_LENGTH];
+
+	// the fields of the line being parsed
+	private int symbolLength;
+	private StockType stockType;
+	private long lastDividend;
+	private long fixedDividend;
+	private long parValue;
+
+	/**
+	 * Memory maps the CSV file and loads it
+	 * @param csvFile stockSymbol,stockType,lastDividend,fixedDividend,parValue per line
+	 * @param header <code>true</code> if the first line is a header and is skipped
+	 * @param stocks given each stock loaded
+	 * @param lineErrorHandler told about each line not loaded
+	 * @return the number of stocks loaded
+	 * @throws IOException
+	 */
+	public int loadCsv(Path csvFile, boolean header, Consumer<Stock> stocks, LineErrorHandler lineErrorHandler)
+			throws IOException {
+		return loadCsv(map(csvFile), header, stocks, lineErrorHandler);
+	}
+
+	/**
+	 * Loads the CSV from the buffer's position to its limit
+	 * @param csv stockSymbol,stockType,lastDividend,fixedDividend,parValue per line
+	 * @param header <code>true</code> if the first line is a header and is skipped
+	 * @param stocks given each stock loaded
+	 * @param lineErrorHandler told about each line not loaded
+	 * @return the number of stocks loaded
+	 */
+	public int loadCsv(ByteBuffer csv, boolean header, Consumer<Stock> stocks, LineErrorHandler lineErrorHandler) {
+		int loaded = 0;
+		long lineNumber = 0;
+		int position = csv.position();
+		int limit = csv.limit();
+		while (position < limit) {
+			lineNumber++;
+			int lineEnd = position;
+			while (lineEnd < limit && csv.get(lineEnd) != '\n') {
+				lineEnd++;
+			}
+			int next = lineEnd + 1;
+			if (lineEnd > position && csv.get(lineEnd - 1) == '\r')
+				lineEnd--;
+			if (lineEnd > position && !(header && lineNumber == 1)) {
+				int errors = parseCsvLine(csv, position, lineEnd);
+				if (errors == 0) {
+					stocks.accept(buildStock());
+					loaded++;
+				} else {
+					lineErrorHandler.onLineError(lineNumber, errors);
+				}
+			}
+			position = next;
+		}
+		return loaded;
+	}
+
+	/**
+	 * Memory maps the binary file and loads it
+	 * @param binaryFile written by {@link #writeBinary(Collection, ByteBuffer)}
+	 * @param stocks given each stock loaded
+	 * @param lineErrorHandler told about each record not loaded
+	 * @return the number of stocks loaded
+	 * @throws IOException
+	 */
+	public int loadBinary(Path binaryFile, Consumer<Stock> stocks, LineErrorHandler lineErrorHandler)
+			throws IOException {
+		return loadBinary(map(binaryFile), stocks, lineErrorHandler);
+	}
+
+	/**
+	 * Loads the binary records from the buffer's position, each record is
+	 * symbol length byte, symbol, stock type byte, last dividend, fixed dividend, par value
+	 * @param binary written by {@link #writeBinary(Collection, ByteBuffer)}
+	 * @param stocks given each stock loaded
+	 * @param lineErrorHandler told about each record not loaded
+	 * @return the number of stocks loaded
+	 * @throws IllegalArgumentException if it isn't a binary stock file
+	 */
+	public int loadBinary(ByteBuffer binary, Consumer<Stock> stocks, LineErrorHandler lineErrorHandler) {
+		ByteBuffer records = binary.duplicate().order(ByteOrder.BIG_ENDIAN);
+		if (records.remaining() < 8 || records.getInt() != BINARY_MAGIC)
+			throw new IllegalArgumentException("Not a binary stock file");
+		int count = records.getInt();
+		int loaded = 0;
+		for (int record = 1; record <= count; record++) {
+			if (records.remaining() < 1) {
+				lineErrorHandler.onLineError(record, ERROR_TRUNCATED);
+				break;
+			}
+			symbolLength = records.get() & 0xFF;
+			if (records.remaining() < symbolLength + 1 + 3 * Long.BYTES) {
+				lineErrorHandler.onLineError(record, ERROR_TRUNCATED);
+				break;
+			}
+			records.get(symbol, 0, symbolLength);
+			byte type = records.get();
+			stockType = type == STOCK_TYPE_COMMON ? StockType.Common
+					: type == STOCK_TYPE_PREFERRED ? StockType.Preferred : null;
+			lastDividend = records.getLong();
+			fixedDividend = records.getLong();
+			parValue = records.getLong();
+
+			int errors = validate(0);
+			if (errors == 0) {
+				stocks.accept(buildStock());
+				loaded++;
+			} else {
+				lineErrorHandler.onLineError(record, errors);
+			}
+		}
+		return loaded;
+	}
+
+	/**
+	 * Writes the stocks in the binary form read by {@link #loadBinary(ByteBuffer, Consumer, LineErrorHandler)}
+	 * @param stocks
+	 * @param binary written from its position
+	 * @throws IllegalArgumentException if a symbol is too long
+	 * @throws java.nio.BufferOverflowException if the buffer is too small
+	 */
+	public static void writeBinary(Collection<Stock> stocks, ByteBuffer binary) {
+		ByteBuffer records = binary.duplicate().order(ByteOrder.BIG_ENDIAN);
+		records.putInt(BINARY_MAGIC);
+		records.putInt(stocks.size());
+		for (Stock stock : stocks) {
+			byte[] symbolBytes = stock.getStockSymbol().getBytes(StandardCharsets.US_ASCII);
+			if (symbolBytes.length > MAX_SYMBOL_LENGTH)
+				throw new IllegalArgumentException("Stock symbol is too long " + stock.toString());
+			records.put((byte)symbolBytes.length);
+			records.put(symbolBytes);
+			records.put(stock.getStockType() == StockType.Common ? STOCK_TYPE_COMMON : STOCK_TYPE_PREFERRED);
+			records.putLong(stock.getLastDividend());
+			records.putLong(stock.getFixedDividend());
+			records.putLong(stock.getParValue());
+		}
+		binary.position(records.position());
+	}
+
+	/**
+	 *
+	 * @param stocks
+	 * @return the number of bytes {@link #writeBinary(Collection, ByteBuffer)} needs
+	 */
+	public static int binarySize(Collection<Stock> stocks) {
+		int size = 2 * Integer.BYTES;
+		for (Stock stock : stocks) {
+			size += 1 + stock.getStockSymbol().length() + 1 + 3 * Long.BYTES;
+		}
+		return size;
+	}
+
+	/**
+	 * Only used when the errors are logged
+	 * @param errors the ERROR_ bits
+	 * @return the errors as text, the same wording as {@link StockBuilder} where there is one
+	 */
+	public static String describe(int errors) {
+		StringBuilder description = new StringBuilder();
+		for (int bit = 0; bit < ERROR_DESCRIPTIONS.length; bit++) {
+			if ((errors & (1 << bit)) != 0) {
+				if (description.length() > 0)
+					description.append(", ");
+				description.append(ERROR_DESCRIPTIONS[bit]);
+			}
+		}
+		return description.toString();
+	}
+
+	/**
+	 * Splits the line on commas and parses each field, the symbol is copied into
+	 * the symbol buffer
+	 * @return the ERROR_ bits, 0 if the line is valid
+	 */
+	private int parseCsvLine(ByteBuffer csv, int start, int end) {
+		int errors = 0;
+		int field = 0;
+		int fieldStart = start;
+		for (int i = start; i <= end; i++) {
+			if (i < end && csv.get(i) != ',')
+				continue;
+			switch (field) {
+				case 0:
+					symbolLength = i - fieldStart;
+					if (symbolLength > MAX_SYMBOL_LENGTH) {
+						symbolLength = 0;
+					} else {
+						for (int j = 0; j < symbolLength; j++) {
+							symbol[j] = csv.get(fieldStart + j);
+						}
+					}
+					break;
+				case 1:
+					stockType = matches(csv, fieldStart, i, COMMON) ? StockType.Common
+							: matches(csv, fieldStart, i, PREFERRED) ? StockType.Preferred : null;
+					break;
+				case 2:
+					lastDividend = parseLong(csv, fieldStart, i);
+					if (lastDividend == NOT_A_NUMBER || fieldStart == i)
+						errors |= ERROR_LAST_DIVIDEND;
+					break;
+				case 3:
+					// empty is zero the same as the StockBuilder
+					fixedDividend = fieldStart == i ? 0L : parseLong(csv, fieldStart, i);
+					if (fixedDividend == NOT_A_NUMBER)
+						errors |= ERROR_FIXED_DIVIDEND;
+					break;
+				case 4:
+					parValue = parseLong(csv, fieldStart, i);
+					if (parValue == NOT_A_NUMBER || fieldStart == i)
+						errors |= ERROR_PAR_VALUE;
+					break;
+				default:
+					break;
+			}
+			field++;
+			fieldStart = i + 1;
+		}
+		if (field != FIELD_COUNT)
+			return errors | ERROR_FIELD_COUNT;
+		return validate(errors);
+	}
+
+	/**
+	 * The {@link StockBuilder} rules
+	 */
+	private int validate(int errors) {
+		if (symbolLength == 0)
+			errors |= ERROR_STOCK_SYMBOL;
+		if (stockType == null)
+			errors |= ERROR_STOCK_TYPE;
+		if (stockType == StockType.Preferred && (errors & (ERROR_FIXED_DIVIDEND | ERROR_PAR_VALUE)) == 0) {
+			try {
+				Math.multiplyExact(fixedDividend, parValue);
+			} catch (ArithmeticException e) {
+				errors |= ERROR_DIVIDEND_OVERFLOW;
+			}
+		}
+		return errors;
+	}
+
+	private Stock buildStock() {
+		return new Stock(new String(symbol, 0, symbolLength, StandardCharsets.US_ASCII), stockType,
+				lastDividend, fixedDividend, parValue);
+	}
+
+	/**
+	 * Parses an optionally signed whole number without creating a String
+	 * @return the number or NOT_A_NUMBER
+	 */
+	private static long parseLong(ByteBuffer csv, int start, int end) {
+		boolean negative = start < end && csv.get(start) == '-';
+		int i = negative ? start + 1 : start;
+		if (i == end)
+			return start == end ? 0L : NOT_A_NUMBER;
+		long number = 0;
+		for (; i < end; i++) {
+			int digit = csv.get(i) - '0';
+			if (digit < 0 || digit > 9 || number > (Long.MAX_VALUE - digit) / 10)
+				return NOT_A_NUMBER;
+			number = number * 10 + digit;
+		}
+		return negative ? -number : number;
+	}
+
+	private static boolean matches(ByteBuffer csv, int start, int end, byte[] expected) {
+		if (end - start != expected.length)
+			return false;
+		for (int i = 0; i < expected.length; i++) {
+			if (csv.get(start + i) != expected[i])
+				return false;
+		}
+		return true;
+	}
+
+	private static ByteBuffer map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("File is too big to map " + file);
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+}
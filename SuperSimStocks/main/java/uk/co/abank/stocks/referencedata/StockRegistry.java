@@ -0,0 +1,99 @@
+package uk.co.abank.stocks.referencedata;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import uk.co.abank.stocks.dataobjects.Stock;
+import uk.co.abank.stocks.dataobjects.StockBuilder;
+
+/**
+ * Holds the reference data for the stocks, each {@link Stock} is built once
+ * when the data is loaded and shared by everything that needs it, the stock
+ * works out its dividend when it is built so the calculators just read it
+ * The stocks are held in an unmodifiable map that is replaced in one go on a
+ * reload e.g. end of day, readers see the old or the new stocks never a mix
+ * and never take a lock
+ * @author JohnM
+ *
+ */
+public class StockRegistry {
+
+	private final AtomicReference<Map<String, Stock>> stocks = new AtomicReference<>(Collections.emptyMap());
+
+	/**
+	 * Validates and builds all the stocks then replaces the ones held
+	 * If any stock is invalid none are loaded and the old stocks are kept
+	 * @param stockBuilders the stocks to load, not yet validated
+	 * @return the number of stocks loaded
+	 * @throws IllegalArgumentException if a stock is invalid or a symbol is loaded twice
+	 */
+	public int load(Collection<StockBuilder> stockBuilders) {
+		Map<String, Stock> loaded = new HashMap<>(stockBuilders.size() * 2);
+		for (StockBuilder stockBuilder : stockBuilders) {
+			add(loaded, stockBuilder.validate().build());
+		}
+		stocks.set(Collections.unmodifiableMap(loaded));
+		return loaded.size();
+	}
+
+	/**
+	 * Replaces the stocks held with stocks that have already been built
+	 * @param stocksToLoad
+	 * @return the number of stocks loaded
+	 * @throws IllegalArgumentException if a symbol is loaded twice
+	 */
+	public int loadStocks(Collection<Stock> stocksToLoad) {
+		Map<String, Stock> loaded = new HashMap<>(stocksToLoad.size() * 2);
+		for (Stock stock : stocksToLoad) {
+			add(loaded, stock);
+		}
+		stocks.set(Collections.unmodifiableMap(loaded));
+		return loaded.size();
+	}
+
+	/**
+	 *
+	 * @param stockSymbol
+	 * @return the stock
+	 * @throws IllegalArgumentException if the stock isn't loaded
+	 */
+	public Stock getStock(String stockSymbol) {
+		Stock stock = stocks.get().get(stockSymbol);
+		if (stock == null)
+			throw new IllegalArgumentException("Stock is not loaded " + stockSymbol);
+		return stock;
+	}
+
+	/**
+	 *
+	 * @param stockSymbol
+	 * @return <code>true</code> if the stock is loaded
+	 */
+	public boolean hasStock(String stockSymbol) {
+		return stocks.get().containsKey(stockSymbol);
+	}
+
+	/**
+	 *
+	 * @return the stocks loaded, unmodifiable and not changed by a reload
+	 */
+	public Map<String, Stock> getStocks() {
+		return stocks.get();
+	}
+
+	/**
+	 *
+	 * @return the number of stocks loaded
+	 */
+	public int size() {
+		return stocks.get().size();
+	}
+
+	private static void add(Map<String, Stock> loaded, Stock stock) {
+		if (loaded.putIfAbsent(stock.getStockSymbol(), stock) != null)
+			throw new IllegalArgumentException("Stock loaded twice " + stock.toString());
+	}
+}
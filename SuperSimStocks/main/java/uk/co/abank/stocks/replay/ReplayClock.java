@@ -0,0 +1,87 @@
+package uk.co.abank.stocks.replay;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import uk.co.abank.stocks.dataobjects.TradeTimes;
+
+/**
+ * A clock that only moves when it is told to, used to replay recorded trades
+ * The {@link ReplayDriver} moves it to the time of each trade so the calculators
+ * and engines given this clock see the time the trades were made, not the wall clock
+ * It never goes backwards, a late trade leaves it where it is
+ * @author JohnM
+ *
+ */
+public final class ReplayClock extends Clock {
+
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+	private static final long NANOS_PER_MILLI = 1_000_000L;
+
+	private final ZoneId zone;
+	private volatile long nowNanos;
+
+	/**
+	 *
+	 * @param startNanos the time to start at in nanoseconds since the epoch
+	 */
+	public ReplayClock(long startNanos) {
+		this(startNanos, ZoneOffset.UTC);
+	}
+
+	private ReplayClock(long startNanos, ZoneId zone) {
+		this.nowNanos = startNanos;
+		this.zone = zone;
+	}
+
+	/**
+	 * Moves the clock forward, a time before the current time is ignored
+	 * @param epochNanos nanoseconds since the epoch
+	 * @return the time of the clock after the move
+	 */
+	public synchronized long advanceTo(long epochNanos) {
+		if (epochNanos > nowNanos)
+			nowNanos = epochNanos;
+		return nowNanos;
+	}
+
+	/**
+	 *
+	 * @return the time of the clock in nanoseconds since the epoch
+	 */
+	public long nanos() {
+		return nowNanos;
+	}
+
+	@Override
+	public long millis() {
+		return Math.floorDiv(nowNanos, NANOS_PER_MILLI);
+	}
+
+	@Override
+	public Instant instant() {
+		long now = nowNanos;
+		return Instant.ofEpochSecond(Math.floorDiv(now, NANOS_PER_SECOND), Math.floorMod(now, NANOS_PER_SECOND));
+	}
+
+	@Override
+	public ZoneId getZone() {
+		return zone;
+	}
+
+	/**
+	 * The clock in the other zone isn't moved by this one, only the zone is changed
+	 * @see java.time.Clock#withZone(java.time.ZoneId)
+	 */
+	@Override
+	public Clock withZone(ZoneId zone) {
+		return new ReplayClock(nowNanos, zone);
+	}
+
+	@Override
+	public String toString() {
+		return "ReplayClock [now=" + TradeTimes.toTradeTime(instant()) + ", zone=" + zone + "]";
+	}
+}
@@ -0,0 +1,113 @@
+package uk.co.abank.stocks.replay;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.services.TradeService;
+
+/**
+ * Replays recorded trades, e.g. from a {@link uk.co.abank.stocks.services.journal.TradeServiceJournalImpl},
+ * into a {@link TradeService} as fast as they can be recorded
+ * The {@link ReplayClock} is moved to the time of each trade before it is recorded,
+ * so a {@link uk.co.abank.stocks.calculators.StockCalculator} or
+ * {@link uk.co.abank.stocks.calculators.SlidingWindowStockPriceEngine} using the clock
+ * works out the same prices it would have done at the time, a day of trades
+ * takes as long as it takes to record them
+ * {@link ReplaySampler}'s are called at fixed intervals of replayed time
+ * @author JohnM
+ *
+ */
+public class ReplayDriver {
+
+	private final ReplayClock replayClock;
+	private final TradeService tradeService;
+	private final List<Sampler> samplers = new ArrayList<>();
+
+	/**
+	 * Constructor
+	 * @param replayClock moved to the time of each trade
+	 * @param tradeService the trades are recorded into
+	 */
+	public ReplayDriver(ReplayClock replayClock, TradeService tradeService) {
+		this.replayClock = replayClock;
+		this.tradeService = tradeService;
+	}
+
+	/**
+	 * Adds a sampler called every interval of replayed time, the first sample is
+	 * one interval after the clock's time now, so set the clock to the start of
+	 * the day being replayed first
+	 * @param intervalNanos
+	 * @param replaySampler
+	 */
+	public void addSampler(long intervalNanos, ReplaySampler replaySampler) {
+		if (intervalNanos <= 0)
+			throw new IllegalArgumentException("Sample interval must be greater than zero " + intervalNanos);
+		samplers.add(new Sampler(intervalNanos, replaySampler, replayClock.nanos() + intervalNanos));
+	}
+
+	/**
+	 * Records each trade in order, moving the clock to the trade time first and
+	 * calling the samplers for the sample times that come before it
+	 * A trade earlier than the clock is recorded without moving the clock back
+	 * @param trades in the order they were recorded
+	 * @return the number of trades recorded
+	 */
+	public long replay(Iterable<Trade> trades) {
+		long recorded = 0;
+		for (Trade trade : trades) {
+			sample(trade.getTradeTimeNanos(), false);
+			replayClock.advanceTo(trade.getTradeTimeNanos());
+			if (tradeService.recordTrade(trade))
+				recorded++;
+		}
+		return recorded;
+	}
+
+	/**
+	 * Moves the clock on to the end of the replay, calling the samplers for
+	 * the sample times up to and including the end
+	 * @param endNanos e.g. the close of the day being replayed
+	 */
+	public void finish(long endNanos) {
+		sample(endNanos, true);
+		replayClock.advanceTo(endNanos);
+	}
+
+	/**
+	 * Calls the samplers in time order for every sample before the time, or up to
+	 * and including it, the clock is moved to each sample time first
+	 */
+	private void sample(long untilNanos, boolean inclusive) {
+		while (true) {
+			Sampler next = null;
+			for (Sampler sampler : samplers) {
+				if ((sampler.nextSampleNanos < untilNanos || inclusive && sampler.nextSampleNanos == untilNanos)
+						&& (next == null || sampler.nextSampleNanos < next.nextSampleNanos))
+					next = sampler;
+			}
+			if (next == null)
+				return;
+			long sampleNanos = next.nextSampleNanos;
+			next.nextSampleNanos += next.intervalNanos;
+			if (sampleNanos < replayClock.nanos())
+				continue;
+			replayClock.advanceTo(sampleNanos);
+			next.replaySampler.onSample(sampleNanos);
+		}
+	}
+
+	private static final class Sampler {
+
+		private final long intervalNanos;
+		private final ReplaySampler replaySampler;
+		private long nextSampleNanos;
+
+		Sampler(long intervalNanos, ReplaySampler replaySampler, long nextSampleNanos) {
+			this.intervalNanos = intervalNanos;
+			this.replaySampler = replaySampler;
+			this.nextSampleNanos = nextSampleNanos;
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package uk.co.abank.stocks.replay;
+
+/**
+ * Called by the {@link ReplayDriver} at fixed points in replayed time, e.g. to
+ * work out the stock prices every minute of the trading day
+ * @author JohnM
+ *
+ */
+@FunctionalInterface
+public interface ReplaySampler {
+
+	/**
+	 * The replay clock is at the sample time and all the trades up to it
+	 * have been recorded
+	 * @param sampleNanos the sample time in nanoseconds since the epoch
+	 */
+	void onSample(long sampleNanos);
+}
@@ -0,0 +1,86 @@
+package uk.co.abank.stocks.services;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+
+/**
+ * Wraps a {@link TradeService} and passes each trade that is recorded
+ * on to the {@link TradeListener}'s, the recording and retrieval of the
+ * trades is left to the wrapped service
+ * A listener that throws is counted in {@link #getFailures()}, the trade has
+ * already been recorded so the other listeners are still told about it
+ * @author JohnM
+ *
+ */
+public class ListeningTradeService implements TradeService {
+
+	private final TradeService tradeService;
+	private final List<TradeListener> tradeListeners = new CopyOnWriteArrayList<>();
+	private final AtomicLong failures = new AtomicLong();
+
+	/**
+	 * Constructor
+	 * @param tradeService the service that records the trades
+	 */
+	public ListeningTradeService(TradeService tradeService) {
+		this.tradeService = tradeService;
+	}
+
+	/**
+	 * 
+	 * @param tradeListener told about every trade recorded after it is added
+	 */
+	public void addTradeListener(TradeListener tradeListener) {
+		tradeListeners.add(tradeListener);
+	}
+
+	/**
+	 * 
+	 * @param tradeListener
+	 */
+	public void removeTradeListener(TradeListener tradeListener) {
+		tradeListeners.remove(tradeListener);
+	}
+
+	/**
+	 * Records the trade, the listeners are only told about the trade
+	 * if it has been recorded
+	 * @see {@link TradeService}
+	 */
+	@Override
+	public boolean recordTrade(Trade trade) {
+		boolean recorded = tradeService.recordTrade(trade);
+		if (recorded) {
+			for (TradeListener tradeListener : tradeListeners) {
+				try {
+					tradeListener.onTrade(trade);
+				} catch (RuntimeException e) {
+					// e.g. an overflow, throwing would have the caller record the trade again
+					failures.incrementAndGet();
+				}
+			}
+		}
+		return recorded;
+	}
+
+	/**
+	 *
+	 * @return the number of exceptions from the listeners
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	@Override
+	public List<Trade> getTrades() {
+		return tradeService.getTrades();
+	}
+
+	@Override
+	public List<Trade> getTrades(String stockSymbol) {
+		return tradeService.getTrades(stockSymbol);
+	}
+}
@@ -0,0 +1,134 @@
+package uk.co.abank.stocks.services;
+
+import uk.co.abank.stocks.dataobjects.TradeBuilder;
+import uk.co.abank.stocks.services.memory.ColumnarTradeStore;
+
+/**
+ * Validates incoming trades with the same rules as the {@link TradeBuilder}
+ * and appends the valid ones straight into a {@link ColumnarTradeStore}
+ * No builder, list of errors, {@link uk.co.abank.stocks.dataobjects.Trade} or
+ * exception is created per trade, the errors are returned as bits and counted,
+ * use {@link #describe(int)} to turn them into the {@link TradeBuilder} messages
+ * The counts aren't synchronized so use one validator per ingestion thread,
+ * any number of them can append to the same store
+ * @author JohnM
+ *
+ */
+public class TradeIngestionValidator {
+
+	/**
+	 * Returned when the trade is valid and recorded
+	 */
+	public static final int VALID = 0;
+	public static final int ERROR_STOCK_SYMBOL = 1;
+	public static final int ERROR_TRADE_PRICE = 1 << 1;
+	public static final int ERROR_QUANTITY_SHARES = 1 << 2;
+
+	private static final String[] ERROR_DESCRIPTIONS = {
+			"StockSymbol: is empty",
+			"Trade Price cannot be zero",
+			"Quantity of shares cannot be zero"
+	};
+
+	private final ColumnarTradeStore tradeStore;
+
+	private long accepted;
+	private long rejected;
+	private final long[] errorCounts = new long[ERROR_DESCRIPTIONS.length];
+
+	/**
+	 * Constructor
+	 * @param tradeStore the valid trades are appended to
+	 */
+	public TradeIngestionValidator(ColumnarTradeStore tradeStore) {
+		this.tradeStore = tradeStore;
+	}
+
+	/**
+	 * Validates the trade and records it in the store if it is valid
+	 * @param stockSymbol
+	 * @param quantityShares
+	 * @param buyNotSell
+	 * @param tradeTimeNanos nanoseconds since the epoch
+	 * @param tradePrice
+	 * @return {@link #VALID} if recorded otherwise the ERROR_ bits
+	 */
+	public int ingest(String stockSymbol, long quantityShares, boolean buyNotSell, long tradeTimeNanos,
+			long tradePrice) {
+		int errors = validate(stockSymbol, quantityShares, tradePrice);
+		if (errors != VALID) {
+			rejected++;
+			for (int bit = 0; bit < errorCounts.length; bit++) {
+				if ((errors & (1 << bit)) != 0)
+					errorCounts[bit]++;
+			}
+			return errors;
+		}
+		tradeStore.append(stockSymbol, quantityShares, buyNotSell, tradeTimeNanos, tradePrice);
+		accepted++;
+		return VALID;
+	}
+
+	/**
+	 * The {@link TradeBuilder} rules, the symbol must be set and the price and
+	 * quantity must not be zero
+	 * @param stockSymbol
+	 * @param quantityShares
+	 * @param tradePrice
+	 * @return {@link #VALID} or the ERROR_ bits
+	 */
+	public static int validate(String stockSymbol, long quantityShares, long tradePrice) {
+		int errors = VALID;
+		if (stockSymbol == null || stockSymbol.isEmpty())
+			errors |= ERROR_STOCK_SYMBOL;
+		if (tradePrice == 0L)
+			errors |= ERROR_TRADE_PRICE;
+		if (quantityShares == 0L)
+			errors |= ERROR_QUANTITY_SHARES;
+		return errors;
+	}
+
+	/**
+	 * Only used when the errors are logged
+	 * @param errors the ERROR_ bits
+	 * @return the same messages as the {@link TradeBuilder}
+	 */
+	public static String describe(int errors) {
+		StringBuilder description = new StringBuilder();
+		for (int bit = 0; bit < ERROR_DESCRIPTIONS.length; bit++) {
+			if ((errors & (1 << bit)) != 0) {
+				if (description.length() > 0)
+					description.append(", ");
+				description.append(ERROR_DESCRIPTIONS[bit]);
+			}
+		}
+		return description.toString();
+	}
+
+	/**
+	 *
+	 * @return the number of trades recorded
+	 */
+	public long getAccepted() {
+		return accepted;
+	}
+
+	/**
+	 *
+	 * @return the number of trades not recorded
+	 */
+	public long getRejected() {
+		return rejected;
+	}
+
+	/**
+	 *
+	 * @param error one of the ERROR_ bits
+	 * @return the number of trades rejected with that error
+	 */
+	public long getErrorCount(int error) {
+		if (Integer.bitCount(error) != 1 || error >= 1 << errorCounts.length)
+			throw new IllegalArgumentException("Not an error bit " + error);
+		return errorCounts[Integer.numberOfTrailingZeros(error)];
+	}
+}
@@ -0,0 +1,20 @@
+package uk.co.abank.stocks.services;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+
+/**
+ * Interface to be told about each trade as it is recorded
+ * used to keep calculations up to date as the trades arrive
+ * rather than working them out from the full list of trades
+ * @author JohnM
+ *
+ */
+public interface TradeListener {
+
+	/**
+	 * Called once the trade has been recorded by the {@link TradeService}
+	 * called on the thread recording the trade so should be quick
+	 * @param trade
+	 */
+	void onTrade(Trade trade);
+}
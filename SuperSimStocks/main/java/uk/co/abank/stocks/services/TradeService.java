@@ -24,4 +24,12 @@ public interface TradeService {
 	 * @return
 	 */
 	public List<Trade> getTrades();
+
+	/**
+	 * Gets the list of trades recorded against the one stock symbol
+	 * returns an empty list if no trades have been recorded for the symbol
+	 * @param stockSymbol
+	 * @return
+	 */
+	public List<Trade> getTrades(String stockSymbol);
 }
@@ -0,0 +1,53 @@
+package uk.co.abank.stocks.services.async;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.services.TradeService;
+
+/**
+ * The asynchronous version of the {@link TradeService}, the calls return straight
+ * away with a future so callers can have a number of trades on their way at once
+ * A future completes exceptionally with a {@link java.util.concurrent.RejectedExecutionException}
+ * when the service has too much work queued, the caller should slow down and retry
+ * @author JohnM
+ *
+ */
+public interface AsyncTradeService {
+
+	/**
+	 * Records the trade
+	 * @param trade
+	 * @return completes with <code>true</code> once recorded or <code>false</code> if not recorded
+	 */
+	CompletableFuture<Boolean> recordTradeAsync(Trade trade);
+
+	/**
+	 * Records the trades as one piece of work, cheaper than one at a time
+	 * @param trades
+	 * @return completes with the number of trades recorded
+	 */
+	CompletableFuture<Integer> recordTrades(Collection<Trade> trades);
+
+	/**
+	 * Includes every trade whose future has completed
+	 * @return completes with all the trades
+	 */
+	CompletableFuture<List<Trade>> getTradesAsync();
+
+	/**
+	 *
+	 * @param stockSymbol
+	 * @return completes with the trades for the stock
+	 */
+	CompletableFuture<List<Trade>> getTradesAsync(String stockSymbol);
+
+	/**
+	 * A subscriber is sent each trade recorded after it subscribes, no faster
+	 * than it requests them
+	 * @return the publisher of the trades as they are recorded
+	 */
+	Flow.Publisher<Trade> trades();
+}
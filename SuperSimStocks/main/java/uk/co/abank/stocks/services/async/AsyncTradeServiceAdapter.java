@@ -0,0 +1,242 @@
+package uk.co.abank.stocks.services.async;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.services.TradeService;
+import uk.co.abank.stocks.services.memory.TradeServiceMemoryImpl;
+
+/**
+ * Makes any {@link TradeService} an {@link AsyncTradeService}, the calls are put on
+ * a bounded queue and run in order by one writer thread, so a read sees every
+ * write whose future has completed
+ * When the queue is full the future fails straight away with a
+ * {@link RejectedExecutionException} rather than the caller waiting, that is the
+ * signal to slow down. Each subscriber has its own bounded buffer, see {@link TradeSubscription}
+ * @author JohnM
+ *
+ */
+public class AsyncTradeServiceAdapter implements AsyncTradeService, Closeable {
+
+	/**
+	 * Queue size used by the default constructor
+	 */
+	public static final int DEFAULT_QUEUE_SIZE = 1024;
+
+	/**
+	 * Subscriber buffer size used by the default constructor
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 256;
+
+	private static final int BATCH_SIZE = 64;
+
+	private final TradeService tradeService;
+	private final BlockingQueue<Request<?>> requests;
+	private final int bufferSize;
+	private final Executor executor;
+	private final List<TradeSubscription> subscriptions = new CopyOnWriteArrayList<>();
+	private final AtomicLong rejected = new AtomicLong();
+	private final Thread writer;
+
+	private volatile boolean closed;
+	private volatile boolean stopped;
+
+	/**
+	 * Over a {@link TradeServiceMemoryImpl} with the default queue and buffer sizes
+	 */
+	public AsyncTradeServiceAdapter() {
+		this(new TradeServiceMemoryImpl(), DEFAULT_QUEUE_SIZE, DEFAULT_BUFFER_SIZE, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor, starts the writer thread
+	 * @param tradeService the service that records the trades
+	 * @param queueSize the number of calls that can be waiting for the writer
+	 * @param bufferSize the number of trades held for each subscriber
+	 * @param executor the trades are sent to the subscribers on
+	 */
+	public AsyncTradeServiceAdapter(TradeService tradeService, int queueSize, int bufferSize, Executor executor) {
+		if (queueSize <= 0 || bufferSize <= 0)
+			throw new IllegalArgumentException("Queue and buffer sizes must be greater than zero "
+					+ queueSize + " " + bufferSize);
+		this.tradeService = tradeService;
+		this.requests = new ArrayBlockingQueue<>(queueSize);
+		this.bufferSize = bufferSize;
+		this.executor = executor;
+		this.writer = new Thread(this::write, "async-trade-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	@Override
+	public CompletableFuture<Boolean> recordTradeAsync(Trade trade) {
+		return submit(service -> record(service, trade));
+	}
+
+	@Override
+	public CompletableFuture<Integer> recordTrades(Collection<Trade> trades) {
+		return submit(service -> {
+			int recorded = 0;
+			for (Trade trade : trades) {
+				if (record(service, trade))
+					recorded++;
+			}
+			return recorded;
+		});
+	}
+
+	@Override
+	public CompletableFuture<List<Trade>> getTradesAsync() {
+		return submit(TradeService::getTrades);
+	}
+
+	@Override
+	public CompletableFuture<List<Trade>> getTradesAsync(String stockSymbol) {
+		return submit(service -> service.getTrades(stockSymbol));
+	}
+
+	@Override
+	public Flow.Publisher<Trade> trades() {
+		return this::subscribe;
+	}
+
+	/**
+	 *
+	 * @return the number of calls turned away because the queue was full or the service closed
+	 */
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	/**
+	 *
+	 * @return the number of calls the queue can still take
+	 */
+	public int remainingCapacity() {
+		return requests.remainingCapacity();
+	}
+
+	/**
+	 * Stops taking calls, runs the ones already queued then completes the subscribers
+	 */
+	@Override
+	public void close() {
+		if (closed)
+			return;
+		closed = true;
+		try {
+			requests.put(new Request<>(null, null));
+			writer.join(TimeUnit.SECONDS.toMillis(10));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void subscribe(Flow.Subscriber<? super Trade> subscriber) {
+		TradeSubscription subscription = new TradeSubscription(subscriber, bufferSize, executor, subscriptions::remove);
+		subscriber.onSubscribe(subscription);
+		subscriptions.add(subscription);
+		if (closed)
+			subscription.complete();
+	}
+
+	private boolean record(TradeService service, Trade trade) {
+		boolean recorded = service.recordTrade(trade);
+		if (recorded) {
+			for (TradeSubscription subscription : subscriptions) {
+				subscription.offer(trade);
+			}
+		}
+		return recorded;
+	}
+
+	private <T> CompletableFuture<T> submit(Function<TradeService, T> work) {
+		Request<T> request = new Request<>(work, new CompletableFuture<>());
+		if (closed || !requests.offer(request)) {
+			rejected.incrementAndGet();
+			request.future.completeExceptionally(new RejectedExecutionException(
+					closed ? "Trade service is closed" : "Trade service queue is full " + requests.size()));
+		} else if (stopped) {
+			// queued after the writer stopped, it will never be run
+			failQueued();
+		}
+		return request.future;
+	}
+
+	/**
+	 * Takes the calls off the queue in batches until the close marker
+	 */
+	private void write() {
+		List<Request<?>> batch = new ArrayList<>(BATCH_SIZE);
+		try {
+			while (true) {
+				batch.add(requests.take());
+				requests.drainTo(batch, BATCH_SIZE - 1);
+				for (Request<?> request : batch) {
+					if (stopped)
+						request.fail();
+					else if (request.work == null)
+						stopped = true;
+					else
+						request.run(tradeService);
+				}
+				batch.clear();
+				if (stopped) {
+					for (TradeSubscription subscription : subscriptions) {
+						subscription.complete();
+					}
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			stopped = true;
+			failQueued();
+		}
+	}
+
+	private void failQueued() {
+		Request<?> request;
+		while ((request = requests.poll()) != null) {
+			request.fail();
+		}
+	}
+
+	private static final class Request<T> {
+
+		private final Function<TradeService, T> work;
+		private final CompletableFuture<T> future;
+
+		Request(Function<TradeService, T> work, CompletableFuture<T> future) {
+			this.work = work;
+			this.future = future;
+		}
+
+		void run(TradeService tradeService) {
+			try {
+				future.complete(work.apply(tradeService));
+			} catch (RuntimeException e) {
+				future.completeExceptionally(e);
+			}
+		}
+
+		void fail() {
+			if (future != null)
+				future.completeExceptionally(new RejectedExecutionException("Trade service is closed"));
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package uk.co.abank.stocks.services.async;
+
+/**
+ * The reactive streams interfaces, the same as java.util.concurrent.Flow
+ * which isn't there on Java 8. The methods and rules are the same, so moving
+ * to Java 9 or later is just a change of import
+ * @author JohnM
+ *
+ */
+public final class Flow {
+
+	private Flow() {
+	}
+
+	/**
+	 * Gives items to the subscribers, no more than each has requested
+	 * @param <T> the type of item
+	 */
+	@FunctionalInterface
+	public interface Publisher<T> {
+
+		/**
+		 * @param subscriber told about the subscription with onSubscribe before anything else
+		 */
+		void subscribe(Subscriber<? super T> subscriber);
+	}
+
+	/**
+	 * Receives the items, the calls are never made at the same time
+	 * @param <T> the type of item
+	 */
+	public interface Subscriber<T> {
+
+		/**
+		 * Nothing is sent until items are requested on the subscription
+		 * @param subscription
+		 */
+		void onSubscribe(Subscription subscription);
+
+		/**
+		 * @param item
+		 */
+		void onNext(T item);
+
+		/**
+		 * No more calls are made after an error
+		 * @param throwable
+		 */
+		void onError(Throwable throwable);
+
+		/**
+		 * No more calls are made once complete
+		 */
+		void onComplete();
+	}
+
+	/**
+	 * The link between a publisher and a subscriber
+	 */
+	public interface Subscription {
+
+		/**
+		 * Adds to the number of items the subscriber is ready for
+		 * @param n must be greater than zero
+		 */
+		void request(long n);
+
+		/**
+		 * Stops sending items, some already on their way may still arrive
+		 */
+		void cancel();
+	}
+}
@@ -0,0 +1,128 @@
+package uk.co.abank.stocks.services.async;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+
+/**
+ * A subscriber's link to the {@link AsyncTradeServiceAdapter}, the trades are
+ * held in a bounded buffer until the subscriber requests them and are sent on
+ * the executor, one call at a time
+ * The writer never waits for a subscriber, if the buffer fills up because the
+ * subscriber isn't requesting fast enough it is sent an error and cancelled
+ * @author JohnM
+ *
+ */
+class TradeSubscription implements Flow.Subscription, Runnable {
+
+	private final Flow.Subscriber<? super Trade> subscriber;
+	private final ArrayBlockingQueue<Trade> buffer;
+	private final Executor executor;
+	private final Consumer<TradeSubscription> onCancel;
+	private final AtomicLong demand = new AtomicLong();
+	private final AtomicInteger work = new AtomicInteger();
+
+	private volatile boolean cancelled;
+	private volatile boolean completed;
+	private volatile Throwable error;
+
+	TradeSubscription(Flow.Subscriber<? super Trade> subscriber, int bufferSize, Executor executor,
+			Consumer<TradeSubscription> onCancel) {
+		this.subscriber = subscriber;
+		this.buffer = new ArrayBlockingQueue<>(bufferSize);
+		this.executor = executor;
+		this.onCancel = onCancel;
+	}
+
+	/**
+	 * Called by the writer for each trade recorded
+	 * @param trade
+	 */
+	void offer(Trade trade) {
+		if (cancelled || error != null)
+			return;
+		if (!buffer.offer(trade))
+			error = new IllegalStateException("Subscriber buffer is full, trades not requested fast enough "
+					+ buffer.size());
+		schedule();
+	}
+
+	/**
+	 * Called when the service is closed, the subscriber is told once it has had
+	 * the trades already in the buffer
+	 */
+	void complete() {
+		completed = true;
+		schedule();
+	}
+
+	@Override
+	public void request(long n) {
+		if (n <= 0L) {
+			error = new IllegalArgumentException("Request must be greater than zero " + n);
+		} else {
+			long current;
+			long next;
+			do {
+				current = demand.get();
+				next = current + n < 0L ? Long.MAX_VALUE : current + n;
+			} while (!demand.compareAndSet(current, next));
+		}
+		schedule();
+	}
+
+	@Override
+	public void cancel() {
+		if (!cancelled) {
+			cancelled = true;
+			onCancel.accept(this);
+		}
+	}
+
+	/**
+	 * Only one run is ever going at a time, a schedule while one is going
+	 * makes it go round again rather than starting another
+	 */
+	@Override
+	public void run() {
+		int missed = 1;
+		do {
+			while (!cancelled) {
+				if (error != null) {
+					cancel();
+					buffer.clear();
+					subscriber.onError(error);
+					return;
+				}
+				if (demand.get() == 0L)
+					break;
+				Trade trade = buffer.poll();
+				if (trade == null)
+					break;
+				if (demand.get() != Long.MAX_VALUE)
+					demand.decrementAndGet();
+				try {
+					subscriber.onNext(trade);
+				} catch (RuntimeException e) {
+					cancel();
+					return;
+				}
+			}
+			if (!cancelled && completed && buffer.isEmpty()) {
+				cancel();
+				subscriber.onComplete();
+				return;
+			}
+			missed = work.addAndGet(-missed);
+		} while (missed != 0);
+	}
+
+	private void schedule() {
+		if (work.getAndIncrement() == 0)
+			executor.execute(this);
+	}
+}
@@ -0,0 +1,430 @@
+package uk.co.abank.stocks.services.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+import uk.co.abank.stocks.dataobjects.SymbolDictionary;
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.services.TradeService;
+
+/**
+ * Records trades into memory mapped journal files so they survive a restart
+ * and the day's trades don't have to be held on the heap
+ * Each trade is written as a fixed width record of the stock symbol id, buy/sell,
+ * quantity, price and trade time in nanoseconds since the epoch, followed by a
+ * checksum and a commit marker which is written last. The journal is split into
+ * segment files of a fixed number of records, a new one is started when one fills up
+ * The stock symbols are written once each into their own file in id order
+ * On start up the segments are replayed up to the first record that isn't committed,
+ * the pages of a mapped file can reach the disk in any order so everything from that
+ * record on is wiped, and any later segments deleted, and recording carries on from it
+ * A new symbol is forced to disk before any trade uses its id
+ * Nothing is forced to disk on each trade, {@link #force()} should be called
+ * where the trades must be durable against the machine going down
+ * @author JohnM
+ *
+ */
+public class TradeServiceJournalImpl implements TradeService, Closeable {
+
+	/**
+	 * Size of a trade record and a symbol record in bytes
+	 */
+	static final int RECORD_SIZE = 40;
+
+	private static final int SYMBOL_ID = 0;
+	private static final int BUY_NOT_SELL = 4;
+	private static final int QUANTITY = 8;
+	private static final int TRADE_PRICE = 16;
+	private static final int TRADE_TIME = 24;
+	private static final int SYMBOL_LENGTH = 4;
+	private static final int SYMBOL_BYTES = 8;
+	private static final int MAX_SYMBOL_BYTES = 24;
+	private static final int CHECKSUM = 32;
+	private static final int COMMIT = 36;
+	private static final int COMMITTED = 0x54524144;
+
+	private static final int MAX_SYMBOLS = 1 << 16;
+	private static final String SYMBOL_FILE = "symbols.journal";
+	private static final String SEGMENT_PREFIX = "trades-";
+	private static final String SEGMENT_SUFFIX = ".journal";
+
+	/**
+	 * Default number of records in a segment, 40MB a segment
+	 */
+	public static final int DEFAULT_RECORDS_PER_SEGMENT = 1 << 20;
+
+	/**
+	 * The most records in a segment, a mapped file has to fit in an int
+	 */
+	public static final int MAX_RECORDS_PER_SEGMENT = Integer.MAX_VALUE / RECORD_SIZE;
+
+	private final Path directory;
+	private final int recordsPerSegment;
+	private final SymbolDictionary symbolDictionary = new SymbolDictionary();
+
+	private final MappedByteBuffer symbolBuffer;
+	private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+	private volatile int size;
+	private int tornRecords;
+	private int forcedSegment;
+
+	/**
+	 * Opens the journal with the default segment size
+	 * @param directory the directory holding the journal files, created if it doesn't exist
+	 * @throws IOException
+	 */
+	public TradeServiceJournalImpl(Path directory) throws IOException {
+		this(directory, DEFAULT_RECORDS_PER_SEGMENT);
+	}
+
+	/**
+	 * Opens the journal, replaying any segments that are already in the directory
+	 * @param directory the directory holding the journal files, created if it doesn't exist
+	 * @param recordsPerSegment the number of trades in each segment file, up to {@link #MAX_RECORDS_PER_SEGMENT}
+	 * @throws IOException
+	 */
+	public TradeServiceJournalImpl(Path directory, int recordsPerSegment) throws IOException {
+		if (recordsPerSegment <= 0)
+			throw new IllegalArgumentException("Records per segment must be greater than zero " + recordsPerSegment);
+		if (recordsPerSegment > MAX_RECORDS_PER_SEGMENT)
+			throw new IllegalArgumentException("Records per segment must not be more than "
+					+ MAX_RECORDS_PER_SEGMENT + " " + recordsPerSegment);
+		this.directory = Files.createDirectories(directory);
+		this.recordsPerSegment = recordsPerSegment;
+		this.symbolBuffer = map(directory.resolve(SYMBOL_FILE), (long)MAX_SYMBOLS * RECORD_SIZE);
+		replaySymbols();
+		replaySegments();
+	}
+
+	/**
+	 * Writes the trade into the next record, the commit marker is written last
+	 * so a trade that is only partly written is never read back
+	 * @see {@link TradeService}
+	 */
+	@Override
+	public synchronized boolean recordTrade(Trade trade) {
+		int symbolId = symbolId(trade.getStockSymbol());
+		int index = size;
+		MappedByteBuffer segment = segmentForWrite(index);
+		int position = (index % recordsPerSegment) * RECORD_SIZE;
+
+		int buyNotSell = trade.isBuyNotSell() ? 1 : 0;
+		long quantity = trade.getQuantityShares();
+		long tradePrice = trade.getTradePrice();
+		long tradeTimeNanos = trade.getTradeTimeNanos();
+
+		segment.putInt(position + SYMBOL_ID, symbolId);
+		segment.putInt(position + BUY_NOT_SELL, buyNotSell);
+		segment.putLong(position + QUANTITY, quantity);
+		segment.putLong(position + TRADE_PRICE, tradePrice);
+		segment.putLong(position + TRADE_TIME, tradeTimeNanos);
+		segment.putInt(position + CHECKSUM, checksum(symbolId, buyNotSell, quantity, tradePrice, tradeTimeNanos));
+		segment.putInt(position + COMMIT, COMMITTED);
+
+		size = index + 1;
+		return true;
+	}
+
+	/**
+	 * The list is fixed at the number of trades when called, each {@link Trade}
+	 * is read from the journal when it is asked for
+	 * @return unmodifiable list of all the trades
+	 */
+	@Override
+	public List<Trade> getTrades() {
+		return new JournalView(size);
+	}
+
+	/**
+	 * Scans the journal for the trades for the stock
+	 * @return unmodifiable list of the trades for the stock
+	 */
+	@Override
+	public List<Trade> getTrades(String stockSymbol) {
+		int stockSymbolId = symbolDictionary.findId(stockSymbol);
+		if (stockSymbolId < 0)
+			return Collections.emptyList();
+
+		// size first so the segments read are at least as new as it
+		int count = size;
+		MappedByteBuffer[] segments = this.segments;
+		List<Trade> trades = new ArrayList<>();
+		for (int index = 0; index < count; index++) {
+			MappedByteBuffer segment = segments[index / recordsPerSegment];
+			if (segment.getInt((index % recordsPerSegment) * RECORD_SIZE + SYMBOL_ID) == stockSymbolId)
+				trades.add(readTrade(segments, index));
+		}
+		return Collections.unmodifiableList(trades);
+	}
+
+	/**
+	 *
+	 * @return the number of trades in the journal
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 *
+	 * @return the number of records found and wiped when the journal was opened, from the first
+	 * one that isn't committed to the end of its segment
+	 */
+	public int getTornRecords() {
+		return tornRecords;
+	}
+
+	/**
+	 * Forces the symbols and the segments written since the last force to disk
+	 */
+	public synchronized void force() {
+		symbolBuffer.force();
+		MappedByteBuffer[] segments = this.segments;
+		for (int segmentIndex = forcedSegment; segmentIndex < segments.length; segmentIndex++) {
+			segments[segmentIndex].force();
+		}
+		forcedSegment = Math.max(0, segments.length - 1);
+	}
+
+	/**
+	 * Forces the journal to disk, the mapped files are released when they are garbage collected
+	 */
+	@Override
+	public void close() {
+		force();
+	}
+
+	/**
+	 * Gets the id for the symbol, writing the symbol to the symbol file the first
+	 * time it is seen and forcing it to disk so it is there before any trade uses it
+	 */
+	private int symbolId(String stockSymbol) {
+		int symbolId = symbolDictionary.findId(stockSymbol);
+		if (symbolId >= 0)
+			return symbolId;
+
+		byte[] symbolBytes = stockSymbol.getBytes(StandardCharsets.UTF_8);
+		if (symbolBytes.length > MAX_SYMBOL_BYTES)
+			throw new IllegalArgumentException("Stock symbol too long for the journal " + stockSymbol);
+		symbolId = symbolDictionary.size();
+		if (symbolId >= MAX_SYMBOLS)
+			throw new IllegalStateException("Journal symbol file is full " + stockSymbol);
+
+		int position = symbolId * RECORD_SIZE;
+		symbolBuffer.putInt(position + SYMBOL_ID, symbolId);
+		symbolBuffer.putInt(position + SYMBOL_LENGTH, symbolBytes.length);
+		for (int i = 0; i < symbolBytes.length; i++) {
+			symbolBuffer.put(position + SYMBOL_BYTES + i, symbolBytes[i]);
+		}
+		symbolBuffer.putInt(position + CHECKSUM, symbolChecksum(symbolBuffer, position));
+		symbolBuffer.putInt(position + COMMIT, COMMITTED);
+		symbolBuffer.force();
+		return symbolDictionary.getId(stockSymbol);
+	}
+
+	/**
+	 * Gets the segment for the record, starting a new segment if the record
+	 * is the first in it
+	 */
+	private MappedByteBuffer segmentForWrite(int index) {
+		int segmentIndex = index / recordsPerSegment;
+		MappedByteBuffer[] segments = this.segments;
+		if (segmentIndex < segments.length)
+			return segments[segmentIndex];
+		try {
+			MappedByteBuffer segment = map(segmentPath(segmentIndex), (long)recordsPerSegment * RECORD_SIZE);
+			MappedByteBuffer[] rolled = Arrays.copyOf(segments, segmentIndex + 1);
+			rolled[segmentIndex] = segment;
+			this.segments = rolled;
+			return segment;
+		} catch (IOException ioe) {
+			throw new UncheckedIOException("Unable to start journal segment " + segmentIndex, ioe);
+		}
+	}
+
+	/**
+	 * Reads the symbols back in id order so each gets the same id it was written with,
+	 * everything from the first symbol that isn't committed on is wiped
+	 */
+	private void replaySymbols() {
+		for (int symbolId = 0; symbolId < MAX_SYMBOLS; symbolId++) {
+			int position = symbolId * RECORD_SIZE;
+			if (symbolBuffer.getInt(position + COMMIT) != COMMITTED
+					|| symbolBuffer.getInt(position + CHECKSUM) != symbolChecksum(symbolBuffer, position)) {
+				if (wipeFrom(symbolBuffer, position, MAX_SYMBOLS * RECORD_SIZE) > 0)
+					symbolBuffer.force();
+				return;
+			}
+			int length = symbolBuffer.getInt(position + SYMBOL_LENGTH);
+			byte[] symbolBytes = new byte[length];
+			for (int i = 0; i < length; i++) {
+				symbolBytes[i] = symbolBuffer.get(position + SYMBOL_BYTES + i);
+			}
+			symbolDictionary.getId(new String(symbolBytes, StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * Maps each segment in turn and counts the committed records, stopping at
+	 * the first record that isn't. The segments after it can only hold records
+	 * that were written before a crash and are deleted, otherwise they would come
+	 * back once the records in front of them had been written again
+	 */
+	private void replaySegments() throws IOException {
+		int segmentIndex = 0;
+		List<MappedByteBuffer> replayed = new ArrayList<>();
+		while (Files.exists(segmentPath(segmentIndex))) {
+			MappedByteBuffer segment = map(segmentPath(segmentIndex), (long)recordsPerSegment * RECORD_SIZE);
+			replayed.add(segment);
+			int records = replaySegment(segment);
+			size += records;
+			if (records < recordsPerSegment) {
+				int later = segmentIndex + 1;
+				while (Files.deleteIfExists(segmentPath(later)))
+					later++;
+				break;
+			}
+			segmentIndex++;
+		}
+		segments = replayed.toArray(new MappedByteBuffer[replayed.size()]);
+	}
+
+	/**
+	 * A record with a symbol id that isn't in the symbol file is treated the same as
+	 * one that isn't committed, its symbol didn't make it to disk before the crash
+	 * Everything from the first record that isn't committed to the end of the segment
+	 * is wiped, records after it may have reached the disk before it
+	 * @return the number of committed records at the start of the segment
+	 */
+	private int replaySegment(MappedByteBuffer segment) {
+		for (int record = 0; record < recordsPerSegment; record++) {
+			int position = record * RECORD_SIZE;
+			int symbolId = segment.getInt(position + SYMBOL_ID);
+			if (segment.getInt(position + COMMIT) != COMMITTED || !checksumMatches(segment, position)
+					|| symbolId < 0 || symbolId >= symbolDictionary.size()) {
+				int wiped = wipeFrom(segment, position, recordsPerSegment * RECORD_SIZE);
+				if (wiped > 0) {
+					tornRecords += wiped;
+					segment.force();
+				}
+				return record;
+			}
+		}
+		return recordsPerSegment;
+	}
+
+	private Trade readTrade(MappedByteBuffer[] segments, int index) {
+		MappedByteBuffer segment = segments[index / recordsPerSegment];
+		int position = (index % recordsPerSegment) * RECORD_SIZE;
+		return new Trade(symbolDictionary.getSymbol(segment.getInt(position + SYMBOL_ID)),
+				segment.getLong(position + QUANTITY),
+				segment.getInt(position + BUY_NOT_SELL) != 0,
+				segment.getLong(position + TRADE_TIME),
+				segment.getLong(position + TRADE_PRICE));
+	}
+
+	private Path segmentPath(int segmentIndex) {
+		return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segmentIndex, SEGMENT_SUFFIX));
+	}
+
+	/**
+	 * Maps the whole file, the mapping stays valid once the channel is closed
+	 */
+	private static MappedByteBuffer map(Path path, long length) throws IOException {
+		try (FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			return channel.map(MapMode.READ_WRITE, 0, length);
+		}
+	}
+
+	private static boolean checksumMatches(MappedByteBuffer segment, int position) {
+		return segment.getInt(position + CHECKSUM) == checksum(segment.getInt(position + SYMBOL_ID),
+				segment.getInt(position + BUY_NOT_SELL), segment.getLong(position + QUANTITY),
+				segment.getLong(position + TRADE_PRICE), segment.getLong(position + TRADE_TIME));
+	}
+
+	/**
+	 * Simple multiply and mix checksum over the fields, it is only there to find
+	 * records where the commit marker made it to disk but some of the fields didn't
+	 */
+	private static int checksum(int symbolId, int buyNotSell, long quantity, long tradePrice, long tradeTimeNanos) {
+		long hash = 0x9E3779B97F4A7C15L;
+		hash = (hash ^ symbolId) * 0x100000001B3L;
+		hash = (hash ^ buyNotSell) * 0x100000001B3L;
+		hash = (hash ^ quantity) * 0x100000001B3L;
+		hash = (hash ^ tradePrice) * 0x100000001B3L;
+		hash = (hash ^ tradeTimeNanos) * 0x100000001B3L;
+		return (int)(hash ^ (hash >>> 32));
+	}
+
+	private static int symbolChecksum(MappedByteBuffer buffer, int position) {
+		return checksum(buffer.getInt(position + SYMBOL_ID), buffer.getInt(position + SYMBOL_LENGTH),
+				buffer.getLong(position + SYMBOL_BYTES), buffer.getLong(position + SYMBOL_BYTES + 8),
+				buffer.getLong(position + SYMBOL_BYTES + 16));
+	}
+
+	private static boolean isEmpty(MappedByteBuffer buffer, int position) {
+		for (int i = 0; i < RECORD_SIZE; i += 8) {
+			if (buffer.getLong(position + i) != 0L)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Zeroes the records from the position to the end that aren't already empty
+	 * @return the number of records zeroed
+	 */
+	private static int wipeFrom(MappedByteBuffer buffer, int position, int end) {
+		int wiped = 0;
+		for (int record = position; record < end; record += RECORD_SIZE) {
+			if (!isEmpty(buffer, record)) {
+				for (int i = 0; i < RECORD_SIZE; i += 8) {
+					buffer.putLong(record + i, 0L);
+				}
+				wiped++;
+			}
+		}
+		return wiped;
+	}
+
+	/**
+	 * Read only view of the trades up to the size when it was created
+	 */
+	private final class JournalView extends AbstractList<Trade> implements RandomAccess {
+
+		private final int size;
+		private final MappedByteBuffer[] segments;
+
+		JournalView(int size) {
+			this.size = size;
+			this.segments = TradeServiceJournalImpl.this.segments;
+		}
+
+		@Override
+		public Trade get(int index) {
+			if (index < 0 || index >= size)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			return readTrade(segments, index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+}
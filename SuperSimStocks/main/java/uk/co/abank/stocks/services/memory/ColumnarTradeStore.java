@@ -0,0 +1,268 @@
+package uk.co.abank.stocks.services.memory;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+import uk.co.abank.stocks.dataobjects.SymbolDictionary;
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.services.TradeService;
+
+/**
+ * Records trades as columns of primitives rather than keeping the {@link Trade} objects
+ * The quantity, price, trade time in nanoseconds since the epoch, stock symbol id
+ * and buy/sell bit are each held in their own arrays, which grow a chunk at a time
+ * so nothing is copied as the store grows
+ * The trades are given back as a List that creates the {@link Trade} when it
+ * is read, so the {@link uk.co.abank.stocks.calculators.StockCalculator} and
+ * {@link uk.co.abank.stocks.collector.StockPriceStatsCollector} work as before,
+ * the primitive getters can be used to read the columns without creating objects
+ * @author JohnM
+ *
+ */
+public class ColumnarTradeStore implements TradeService {
+
+	private static final int CHUNK_SHIFT = 14;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private final SymbolDictionary symbolDictionary;
+
+	private long[][] quantities = new long[1][];
+	private long[][] tradePrices = new long[1][];
+	private long[][] tradeTimeNanos = new long[1][];
+	private int[][] symbolIds = new int[1][];
+	private long[][] buyNotSellBits = new long[1][];
+
+	/**
+	 * Only changed by the writer once the columns have been written,
+	 * the readers never go past it
+	 */
+	private volatile int size;
+
+	/**
+	 * Uses the global dictionary so the stock symbol ids are the same as the
+	 * ids held by the trades
+	 */
+	public ColumnarTradeStore() {
+		this(SymbolDictionary.global());
+	}
+
+	/**
+	 * Constructor
+	 * @param symbolDictionary used to give the stock symbols their ids
+	 */
+	public ColumnarTradeStore(SymbolDictionary symbolDictionary) {
+		this.symbolDictionary = symbolDictionary;
+	}
+
+	/**
+	 * Records the trade by copying its fields into the columns
+	 * @see {@link TradeService}
+	 */
+	@Override
+	public boolean recordTrade(Trade trade) {
+		int stockSymbolId = symbolDictionary == SymbolDictionary.global() ? trade.getStockSymbolId()
+				: symbolDictionary.getId(trade.getStockSymbol());
+		return append(stockSymbolId, trade.getQuantityShares(), trade.isBuyNotSell(),
+				trade.getTradeTimeNanos(), trade.getTradePrice());
+	}
+
+	/**
+	 * Records a trade straight into the columns without a {@link Trade} being created
+	 * @param stockSymbol
+	 * @param quantityShares
+	 * @param buyNotSell
+	 * @param tradeTimeNanos nanoseconds since the epoch
+	 * @param tradePrice
+	 * @return <code>true</code> as the trade is always recorded
+	 */
+	public boolean append(String stockSymbol, long quantityShares, boolean buyNotSell,
+			long tradeTimeNanos, long tradePrice) {
+		return append(symbolDictionary.getId(stockSymbol), quantityShares, buyNotSell, tradeTimeNanos, tradePrice);
+	}
+
+	private synchronized boolean append(int stockSymbolId, long quantityShares, boolean buyNotSell,
+			long tradeTimeNanos, long tradePrice) {
+		int index = size;
+		int chunk = index >>> CHUNK_SHIFT;
+		int offset = index & CHUNK_MASK;
+		if (offset == 0)
+			addChunk(chunk);
+
+		quantities[chunk][offset] = quantityShares;
+		tradePrices[chunk][offset] = tradePrice;
+		this.tradeTimeNanos[chunk][offset] = tradeTimeNanos;
+		symbolIds[chunk][offset] = stockSymbolId;
+		if (buyNotSell)
+			buyNotSellBits[chunk][offset >>> 6] |= 1L << offset;
+
+		size = index + 1;
+		return true;
+	}
+
+	/**
+	 * The list is fixed at the number of trades when called, each {@link Trade}
+	 * is created from the columns when it is read
+	 * @return unmodifiable list of all the trades
+	 */
+	@Override
+	public List<Trade> getTrades() {
+		return new TradeView(size);
+	}
+
+	/**
+	 * Scans the stock symbol id column so only the matching trades are created
+	 * @return unmodifiable list of the trades for the stock
+	 */
+	@Override
+	public List<Trade> getTrades(String stockSymbol) {
+		int stockSymbolId = symbolDictionary.findId(stockSymbol);
+		if (stockSymbolId < 0)
+			return Collections.emptyList();
+
+		int count = size;
+		List<Trade> trades = new ArrayList<>();
+		for (int index = 0; index < count; index++) {
+			if (getStockSymbolId(index) == stockSymbolId)
+				trades.add(getTrade(index));
+		}
+		return Collections.unmodifiableList(trades);
+	}
+
+	/**
+	 *
+	 * @return the number of trades recorded
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 *
+	 * @return the dictionary the stock symbol ids come from
+	 */
+	public SymbolDictionary getSymbolDictionary() {
+		return symbolDictionary;
+	}
+
+	/**
+	 *
+	 * @param index
+	 * @return the quantity of shares for the trade at the index
+	 */
+	public long getQuantityShares(int index) {
+		checkIndex(index);
+		return quantities[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+	}
+
+	/**
+	 *
+	 * @param index
+	 * @return the trade price for the trade at the index
+	 */
+	public long getTradePrice(int index) {
+		checkIndex(index);
+		return tradePrices[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+	}
+
+	/**
+	 *
+	 * @param index
+	 * @return the trade time in nanoseconds since the epoch for the trade at the index
+	 */
+	public long getTradeTimeNanos(int index) {
+		checkIndex(index);
+		return tradeTimeNanos[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+	}
+
+	/**
+	 *
+	 * @param index
+	 * @return the stock symbol id for the trade at the index
+	 */
+	public int getStockSymbolId(int index) {
+		checkIndex(index);
+		return symbolIds[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+	}
+
+	/**
+	 *
+	 * @param index
+	 * @return <code>true</code> if the trade at the index is a buy
+	 */
+	public boolean isBuyNotSell(int index) {
+		checkIndex(index);
+		int offset = index & CHUNK_MASK;
+		return (buyNotSellBits[index >>> CHUNK_SHIFT][offset >>> 6] & (1L << offset)) != 0;
+	}
+
+	/**
+	 * Creates the {@link Trade} for the index from the columns
+	 * @param index
+	 * @return the trade
+	 */
+	public Trade getTrade(int index) {
+		int stockSymbolId = getStockSymbolId(index);
+		if (symbolDictionary == SymbolDictionary.global())
+			return new Trade(stockSymbolId, getQuantityShares(index), isBuyNotSell(index),
+					getTradeTimeNanos(index), getTradePrice(index));
+		return new Trade(symbolDictionary.getSymbol(stockSymbolId), getQuantityShares(index),
+				isBuyNotSell(index), getTradeTimeNanos(index), getTradePrice(index));
+	}
+
+	/**
+	 * Reading size first means the chunks written before it was set are seen
+	 */
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+	}
+
+	/**
+	 * Adds a new chunk to each column, only the arrays holding the chunks
+	 * are ever copied, never the trades
+	 */
+	private void addChunk(int chunk) {
+		if (chunk == quantities.length) {
+			int chunks = chunk << 1;
+			quantities = Arrays.copyOf(quantities, chunks);
+			tradePrices = Arrays.copyOf(tradePrices, chunks);
+			tradeTimeNanos = Arrays.copyOf(tradeTimeNanos, chunks);
+			symbolIds = Arrays.copyOf(symbolIds, chunks);
+			buyNotSellBits = Arrays.copyOf(buyNotSellBits, chunks);
+		}
+		quantities[chunk] = new long[CHUNK_SIZE];
+		tradePrices[chunk] = new long[CHUNK_SIZE];
+		tradeTimeNanos[chunk] = new long[CHUNK_SIZE];
+		symbolIds[chunk] = new int[CHUNK_SIZE];
+		buyNotSellBits[chunk] = new long[CHUNK_SIZE >>> 6];
+	}
+
+	/**
+	 * Read only view of the trades up to the size when it was created
+	 */
+	private final class TradeView extends AbstractList<Trade> implements RandomAccess {
+
+		private final int size;
+
+		TradeView(int size) {
+			this.size = size;
+		}
+
+		@Override
+		public Trade get(int index) {
+			if (index >= size)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			return getTrade(index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package uk.co.abank.stocks.services.memory;
+
+/**
+ * How many of the trades the {@link TradeServiceMemoryImpl} keeps, by age, by
+ * number and by an estimate of the memory they take, the first limit reached
+ * takes the oldest trades out
+ * final class so that it can't be modified once created, start from {@link #keepAll()}
+ * and add the limits wanted e.g. <code>RetentionPolicy.keepAll().withMaxAgeMinutes(15)</code>
+ * @author JohnM
+ *
+ */
+public final class RetentionPolicy {
+
+	private static final long NANOS_PER_MINUTE = 60_000_000_000L;
+	private static final long DEFAULT_SWEEP_MILLIS = 1_000L;
+	private static final RetentionPolicy KEEP_ALL = new RetentionPolicy(Long.MAX_VALUE, Long.MAX_VALUE,
+			Long.MAX_VALUE, DEFAULT_SWEEP_MILLIS);
+
+	private final long maxAgeNanos;
+	private final long maxTrades;
+	private final long maxBytes;
+	private final long sweepMillis;
+
+	private RetentionPolicy(long maxAgeNanos, long maxTrades, long maxBytes, long sweepMillis) {
+		this.maxAgeNanos = maxAgeNanos;
+		this.maxTrades = maxTrades;
+		this.maxBytes = maxBytes;
+		this.sweepMillis = sweepMillis;
+	}
+
+	/**
+	 *
+	 * @return a policy that never takes a trade out
+	 */
+	public static RetentionPolicy keepAll() {
+		return KEEP_ALL;
+	}
+
+	/**
+	 *
+	 * @param maxAgeMinutes trades older than this are taken out e.g. {@link uk.co.abank.stocks.calculators.StockCalculator#tradeTime}
+	 * @return a copy of this policy with the age limit
+	 * @throws IllegalArgumentException if it isn't greater than zero or is too long to hold in nanoseconds
+	 */
+	public RetentionPolicy withMaxAgeMinutes(long maxAgeMinutes) {
+		positive("Max age", maxAgeMinutes);
+		long maxAgeNanos;
+		try {
+			maxAgeNanos = Math.multiplyExact(maxAgeMinutes, NANOS_PER_MINUTE);
+		} catch (ArithmeticException ae) {
+			throw new IllegalArgumentException("Max age in nanoseconds overflows " + maxAgeMinutes, ae);
+		}
+		return new RetentionPolicy(maxAgeNanos, maxTrades, maxBytes, sweepMillis);
+	}
+
+	/**
+	 *
+	 * @param maxTrades the oldest trades over this number are taken out
+	 * @return a copy of this policy with the count limit
+	 * @throws IllegalArgumentException if it isn't greater than zero
+	 */
+	public RetentionPolicy withMaxTrades(long maxTrades) {
+		positive("Max trades", maxTrades);
+		return new RetentionPolicy(maxAgeNanos, maxTrades, maxBytes, sweepMillis);
+	}
+
+	/**
+	 *
+	 * @param maxBytes the oldest trades are taken out once their estimated size is over this
+	 * @return a copy of this policy with the memory budget
+	 * @throws IllegalArgumentException if it isn't greater than zero
+	 */
+	public RetentionPolicy withMaxBytes(long maxBytes) {
+		positive("Max bytes", maxBytes);
+		return new RetentionPolicy(maxAgeNanos, maxTrades, maxBytes, sweepMillis);
+	}
+
+	/**
+	 *
+	 * @param sweepMillis how often the background evictor runs, 0 for no background
+	 * evictor so {@link TradeServiceMemoryImpl#evictExpired()} has to be called
+	 * @return a copy of this policy with the sweep
+	 * @throws IllegalArgumentException if it is less than zero
+	 */
+	public RetentionPolicy withSweepMillis(long sweepMillis) {
+		if (sweepMillis < 0)
+			throw new IllegalArgumentException("Sweep millis must not be less than zero " + sweepMillis);
+		return new RetentionPolicy(maxAgeNanos, maxTrades, maxBytes, sweepMillis);
+	}
+
+	private static void positive(String limit, long value) {
+		if (value <= 0)
+			throw new IllegalArgumentException(limit + " must be greater than zero " + value);
+	}
+
+	/**
+	 *
+	 * @return <code>true</code> if there are no limits, nothing is ever taken out
+	 */
+	public boolean isKeepAll() {
+		return maxAgeNanos == Long.MAX_VALUE && maxTrades == Long.MAX_VALUE && maxBytes == Long.MAX_VALUE;
+	}
+
+	/**
+	 *
+	 * @return the age limit in nanoseconds, Long.MAX_VALUE if there isn't one
+	 */
+	public long getMaxAgeNanos() {
+		return maxAgeNanos;
+	}
+
+	/**
+	 *
+	 * @return the count limit, Long.MAX_VALUE if there isn't one
+	 */
+	public long getMaxTrades() {
+		return maxTrades;
+	}
+
+	/**
+	 *
+	 * @return the memory budget in bytes, Long.MAX_VALUE if there isn't one
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 *
+	 * @return how often the background evictor runs, 0 if there isn't one
+	 */
+	public long getSweepMillis() {
+		return sweepMillis;
+	}
+
+	/**
+	 * The count limit and the memory budget turned into a number of trades
+	 * @param bytesPerTrade the estimated size of a trade
+	 * @return the most trades that can be kept
+	 */
+	long maxTradesWithin(long bytesPerTrade) {
+		return Math.min(maxTrades, maxBytes / bytesPerTrade);
+	}
+
+	@Override
+	public String toString() {
+		return "RetentionPolicy [maxAgeNanos=" + maxAgeNanos + ", maxTrades=" + maxTrades + ", maxBytes=" + maxBytes
+				+ ", sweepMillis=" + sweepMillis + "]";
+	}
+}
@@ -0,0 +1,92 @@
+package uk.co.abank.stocks.services.memory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.dataobjects.TradeTimes;
+
+/**
+ * Holds trades in the order of their trade time so that the trades inside
+ * a window can be found with a binary search rather than testing every trade
+ * Trades nearly always arrive in time order so are just appended, a late
+ * trade is inserted at its place in the log
+ * @author JohnM
+ *
+ */
+public class TimeOrderedTradeLog {
+
+	private final List<Trade> trades = new ArrayList<>();
+
+	/**
+	 * Adds the trade at its place in time order
+	 * @param trade
+	 * @return <code>true</code> as the trade is always added
+	 */
+	public synchronized boolean add(Trade trade) {
+		int size = trades.size();
+		if (size == 0 || trade.getTradeTimeNanos() >= trades.get(size - 1).getTradeTimeNanos()) {
+			return trades.add(trade);
+		}
+		// keep trades with the same time in the order they arrived
+		trades.add(indexAfter(trade.getTradeTimeNanos()), trade);
+		return true;
+	}
+
+	/**
+	 * Finds the start of the window using a binary search, so the cost is
+	 * down to the number of trades in the window and not the size of the log
+	 * @param since start of the window
+	 * @return unmodifiable list of the trades after the instant, in time order
+	 */
+	public List<Trade> tradesSince(Instant since) {
+		return tradesSince(TradeTimes.toEpochNanos(since));
+	}
+
+	/**
+	 * Same as {@link #tradesSince(Instant)}
+	 * @param sinceNanos start of the window in nanoseconds since the epoch
+	 * @return unmodifiable list of the trades after the time, in time order
+	 */
+	public synchronized List<Trade> tradesSince(long sinceNanos) {
+		int from = indexAfter(sinceNanos);
+		return Collections.unmodifiableList(new ArrayList<>(trades.subList(from, trades.size())));
+	}
+
+	/**
+	 *
+	 * @return unmodifiable list of all the trades, in time order
+	 */
+	public synchronized List<Trade> getTrades() {
+		return Collections.unmodifiableList(new ArrayList<>(trades));
+	}
+
+	/**
+	 *
+	 * @return the number of trades in the log
+	 */
+	public synchronized int size() {
+		return trades.size();
+	}
+
+	/**
+	 * Binary search for the first trade strictly after the time
+	 * @param tradeTimeNanos
+	 * @return index of the first trade after the time, or the size if there are none
+	 */
+	private int indexAfter(long tradeTimeNanos) {
+		int low = 0;
+		int high = trades.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (trades.get(mid).getTradeTimeNanos() > tradeTimeNanos) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+}
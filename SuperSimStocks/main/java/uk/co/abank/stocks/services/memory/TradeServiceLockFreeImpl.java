@@ -0,0 +1,150 @@
+package uk.co.abank.stocks.services.memory;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.services.TradeService;
+
+/**
+ * Records trades in memory without taking any locks, for when a lot of threads
+ * are recording trades at the same time
+ * Each trade claims the next slot with a CAS and is written into append only
+ * segments which are created as they are needed, nothing is ever moved once written
+ * Readers only see the published length i.e. the slots up to the first one
+ * that hasn't been written yet, so the list they get back never changes under them
+ * The writers only touch the claim counter, the readers move the published length on
+ * @author JohnM
+ *
+ */
+public class TradeServiceLockFreeImpl implements TradeService {
+
+	private static final int SEGMENT_SHIFT = 14;
+	private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+	private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+	private static final int MAX_SEGMENTS = 1 << 16;
+
+	/**
+	 * The most trades that can be recorded, kept inside an int as the trades are returned as a List
+	 */
+	public static final long CAPACITY = (long)SEGMENT_SIZE * MAX_SEGMENTS - 1;
+
+	private final AtomicReferenceArray<AtomicReferenceArray<Trade>> segments = new AtomicReferenceArray<>(MAX_SEGMENTS);
+	private final AtomicLong claimed = new AtomicLong();
+	private final AtomicLong published = new AtomicLong();
+
+	/**
+	 * Claims a slot and writes the trade into it, returns <code>false</code>
+	 * if the store is full
+	 * @see {@link TradeService}
+	 */
+	@Override
+	public boolean recordTrade(Trade trade) {
+		Objects.requireNonNull(trade, "Trade is null");
+		long index = claimed.getAndIncrement();
+		if (index >= CAPACITY)
+			return false;
+
+		segment(index).set((int)(index & SEGMENT_MASK), trade);
+		return true;
+	}
+
+	/**
+	 * The list is fixed at the published length when called so it can be
+	 * read while trades are still being recorded
+	 * @return unmodifiable list of all the trades
+	 */
+	@Override
+	public List<Trade> getTrades() {
+		return new Snapshot((int)publishedLength());
+	}
+
+	/**
+	 * Scans the published trades for the ones for the stock
+	 * @return unmodifiable list of the trades for the stock
+	 */
+	@Override
+	public List<Trade> getTrades(String stockSymbol) {
+		List<Trade> trades = new ArrayList<>();
+		for (Trade trade : getTrades()) {
+			if (trade.getStockSymbol().equals(stockSymbol))
+				trades.add(trade);
+		}
+		return Collections.unmodifiableList(trades);
+	}
+
+	/**
+	 * Moves the published length on past all the slots that have been written
+	 * a slot that has been claimed but not yet written stops it, so the trades
+	 * up to the published length are always all there, only called by the readers
+	 * so the writers aren't held up by it
+	 * @return the number of trades that can be read
+	 */
+	long publishedLength() {
+		long length = published.get();
+		while (true) {
+			long limit = Math.min(claimed.get(), CAPACITY);
+			long next = length;
+			while (next < limit && slot(next) != null) {
+				next++;
+			}
+			if (next == length || published.compareAndSet(length, next))
+				return next;
+			length = published.get();
+		}
+	}
+
+	/**
+	 * Gets the segment for the index, creating it if this is the first
+	 * trade in it. If two threads race to create it the loser uses the
+	 * winners segment
+	 */
+	private AtomicReferenceArray<Trade> segment(long index) {
+		int segmentIndex = (int)(index >>> SEGMENT_SHIFT);
+		AtomicReferenceArray<Trade> segment = segments.get(segmentIndex);
+		if (segment == null) {
+			segment = new AtomicReferenceArray<>(SEGMENT_SIZE);
+			if (!segments.compareAndSet(segmentIndex, null, segment))
+				segment = segments.get(segmentIndex);
+		}
+		return segment;
+	}
+
+	/**
+	 * @return the trade in the slot or null if it hasn't been written yet
+	 */
+	private Trade slot(long index) {
+		AtomicReferenceArray<Trade> segment = segments.get((int)(index >>> SEGMENT_SHIFT));
+		return segment == null ? null : segment.get((int)(index & SEGMENT_MASK));
+	}
+
+	/**
+	 * Read only view of the trades up to the published length when it was created
+	 */
+	private final class Snapshot extends AbstractList<Trade> implements RandomAccess {
+
+		private final int size;
+
+		Snapshot(int size) {
+			this.size = size;
+		}
+
+		@Override
+		public Trade get(int index) {
+			if (index < 0 || index >= size)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			return slot(index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+}
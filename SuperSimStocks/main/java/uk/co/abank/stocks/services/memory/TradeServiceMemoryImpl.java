@@ -1,36 +1,313 @@
 package uk.co.abank.stocks.services.memory;
 
+import java.io.Closeable;
+import java.time.Clock;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Stack;
+import java.util.RandomAccess;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
 
 import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.dataobjects.TradeTimes;
+import uk.co.abank.stocks.metrics.LatencyHistogram;
+import uk.co.abank.stocks.metrics.MetricsRegistry;
+import uk.co.abank.stocks.services.TradeListener;
 import uk.co.abank.stocks.services.TradeService;
 
 /**
- * Used to record a trade into a Stack and return a List of trades
+ * Used to record a trade into memory and return a List of trades
  * As the data is to be held in memory the trades are stored in this class
+ * The trades are held in chunks, in the order they were recorded, so the oldest
+ * trades can be taken out a whole chunk at a time by dropping the chunk at the
+ * head, nothing is ever copied or moved and the writers only wait for a pointer change
+ * The {@link RetentionPolicy} says which trades are taken out, a background evictor
+ * checks it on the sweep and the trades taken out can be spilled to a {@link TradeListener}
+ * e.g. to write them to a journal, the retained trades and bytes and the evicted count
+ * are in the {@link MetricsRegistry} until it is closed
  * @author JohnM
  *
  */
-public class TradeServiceMemoryImpl implements TradeService {
+public class TradeServiceMemoryImpl implements TradeService, Closeable {
+
+	/**
+	 * The trades are taken out a chunk at a time, so the limits are kept to within this many trades
+	 */
+	public static final int CHUNK_SIZE = 1024;
+
+	/**
+	 * The estimated size of a trade and its slot in a chunk, assuming compressed oops,
+	 * the stock symbol is shared with {@link uk.co.abank.stocks.dataobjects.SymbolDictionary}
+	 */
+	public static final long ESTIMATED_TRADE_BYTES = 52L;
+
+	private final Object lock = new Object();
+	private final ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+	private final RetentionPolicy retentionPolicy;
+	private final Clock clock;
+	private final TradeListener spill;
+	private final ScheduledExecutorService evictor;
+	private final LongAdder evicted;
+	private final LongAdder spillFailed;
+	private final LatencyHistogram sweepNanos;
+	private final MetricsRegistry metricsRegistry;
+	private final LongSupplier retainedTradesGauge = this::getRetained;
+	private final LongSupplier retainedBytesGauge = this::getRetainedBytes;
+	private Chunk tail;
+	private long retained;
+
+	/**
+	 * Keeps all the trades, there is no background evictor and no metrics
+	 */
+	public TradeServiceMemoryImpl() {
+		this(RetentionPolicy.keepAll());
+	}
+
+	/**
+	 * Uses the system clock and records the metrics into its own registry, see {@link #getMetricsRegistry()}
+	 * @param retentionPolicy which trades are taken out
+	 */
+	public TradeServiceMemoryImpl(RetentionPolicy retentionPolicy) {
+		this(retentionPolicy, Clock.systemUTC(), new MetricsRegistry(), null);
+	}
+
+	/**
+	 * Constructor, starts the background evictor on its own thread if the policy has
+	 * any limits and a sweep
+	 * @param retentionPolicy which trades are taken out
+	 * @param clock used to work out the age of the trades
+	 * @param metricsRegistry the retained trades and bytes and the evicted count are recorded here,
+	 * not used if the policy keeps all the trades
+	 * @param spill told each trade taken out on the evictor thread, can be null
+	 * @throws IllegalStateException if another store that hasn't been closed has its gauges in the registry
+	 */
+	public TradeServiceMemoryImpl(RetentionPolicy retentionPolicy, Clock clock, MetricsRegistry metricsRegistry,
+			TradeListener spill) {
+		this.retentionPolicy = retentionPolicy;
+		this.clock = clock;
+		this.spill = spill;
+		this.metricsRegistry = metricsRegistry;
+		this.tail = new Chunk();
+		chunks.addLast(tail);
+		if (retentionPolicy.isKeepAll()) {
+			this.evicted = null;
+			this.spillFailed = null;
+			this.sweepNanos = null;
+			this.evictor = null;
+			return;
+		}
+		this.evicted = metricsRegistry.counter("tradeService.evicted");
+		this.spillFailed = metricsRegistry.counter("tradeService.spillFailed");
+		this.sweepNanos = metricsRegistry.histogram("tradeService.evictionSweep");
+		metricsRegistry.gauge("tradeService.retainedTrades", retainedTradesGauge);
+		try {
+			metricsRegistry.gauge("tradeService.retainedBytes", retainedBytesGauge);
+		} catch (IllegalStateException e) {
+			metricsRegistry.removeGauge("tradeService.retainedTrades", retainedTradesGauge);
+			throw e;
+		}
+		if (retentionPolicy.getSweepMillis() == 0) {
+			this.evictor = null;
+			return;
+		}
+		this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "trade-evictor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		evictor.scheduleWithFixedDelay(this::evictExpired, retentionPolicy.getSweepMillis(),
+				retentionPolicy.getSweepMillis(), TimeUnit.MILLISECONDS);
+	}
 
-	private List<Trade> trades = new Stack<>();
-	
 	/**
 	 * Records a trade
 	 * @see {@link TradeService}
 	 */
 	@Override
 	public boolean recordTrade(Trade trade) {
-		return trades.add(trade);
+		synchronized (lock) {
+			if (tail.size == CHUNK_SIZE) {
+				tail = new Chunk();
+				chunks.addLast(tail);
+			}
+			tail.add(trade);
+			retained++;
+		}
+		return true;
 	}
 
 	/**
 	 * To ensure that the data cannot be altered returns and unmodifiable list
-	 * @return 
+	 * The list is fixed at the trades held when called, so it can be read while
+	 * trades are still being recorded or taken out
+	 * @return
 	 */
 	public List<Trade> getTrades() {
-		return Collections.unmodifiableList(trades);
+		synchronized (lock) {
+			return new Snapshot(chunks.toArray(new Chunk[chunks.size()]), tail.size);
+		}
+	}
+
+	/**
+	 * Has to scan every trade held as they are all kept in the one list
+	 * use {@link TradeServicePartitionedImpl} if this is called often
+	 * @see {@link TradeService}
+	 */
+	@Override
+	public List<Trade> getTrades(String stockSymbol) {
+		return Collections.unmodifiableList(getTrades()
+				.stream()
+				.filter(trade -> trade.getStockSymbol().equals(stockSymbol))
+				.collect(Collectors.toList()));
+	}
+
+	/**
+	 * Takes out the oldest chunks that are past the age limit or over the count
+	 * limit or memory budget, called on the sweep by the background evictor
+	 * The lock is only held to drop the chunks, the spill is done after, the chunk
+	 * being written to is never taken out
+	 * @return the number of trades taken out
+	 */
+	public long evictExpired() {
+		if (retentionPolicy.isKeepAll())
+			return 0L;
+		long startNanos = System.nanoTime();
+		long maxAgeNanos = retentionPolicy.getMaxAgeNanos();
+		long cutoffNanos = maxAgeNanos == Long.MAX_VALUE ? Long.MIN_VALUE
+				: TradeTimes.toEpochNanos(clock.instant()) - maxAgeNanos;
+		long maxTrades = retentionPolicy.maxTradesWithin(ESTIMATED_TRADE_BYTES);
+		List<Chunk> expired = new ArrayList<>();
+		synchronized (lock) {
+			while (chunks.size() > 1) {
+				Chunk head = chunks.peekFirst();
+				if (head.latestNanos > cutoffNanos && retained - head.size < maxTrades)
+					break;
+				chunks.pollFirst();
+				retained -= head.size;
+				expired.add(head);
+			}
+		}
+
+		long evictedTrades = 0;
+		for (Chunk chunk : expired) {
+			evictedTrades += chunk.size;
+			if (spill != null)
+				spill(chunk);
+		}
+		evicted.add(evictedTrades);
+		sweepNanos.recordSince(startNanos);
+		return evictedTrades;
+	}
+
+	/**
+	 * An exception from the spill is counted rather than stopping the evictor
+	 */
+	private void spill(Chunk chunk) {
+		for (int i = 0; i < chunk.size; i++) {
+			try {
+				spill.onTrade(chunk.trades[i]);
+			} catch (RuntimeException e) {
+				spillFailed.increment();
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return the number of trades held
+	 */
+	public long getRetained() {
+		synchronized (lock) {
+			return retained;
+		}
+	}
+
+	/**
+	 *
+	 * @return the estimated size of the trades held
+	 */
+	public long getRetainedBytes() {
+		return getRetained() * ESTIMATED_TRADE_BYTES;
+	}
+
+	/**
+	 *
+	 * @return which trades are taken out
+	 */
+	public RetentionPolicy getRetentionPolicy() {
+		return retentionPolicy;
+	}
+
+	/**
+	 *
+	 * @return where the metrics are recorded
+	 */
+	public MetricsRegistry getMetricsRegistry() {
+		return metricsRegistry;
+	}
+
+	/**
+	 * Stops the background evictor and takes the gauges out of the registry, so the
+	 * registry no longer holds on to the store, the trades held are kept
+	 */
+	@Override
+	public void close() {
+		if (evictor != null)
+			evictor.shutdownNow();
+		if (!retentionPolicy.isKeepAll()) {
+			metricsRegistry.removeGauge("tradeService.retainedTrades", retainedTradesGauge);
+			metricsRegistry.removeGauge("tradeService.retainedBytes", retainedBytesGauge);
+		}
+	}
+
+	/**
+	 * A block of trades in the order they were recorded, only ever added to under
+	 * the lock so the trades up to the size seen under the lock are all there
+	 */
+	private static final class Chunk {
+
+		private final Trade[] trades = new Trade[CHUNK_SIZE];
+		private int size;
+		private long latestNanos = Long.MIN_VALUE;
+
+		void add(Trade trade) {
+			trades[size++] = trade;
+			if (trade != null)
+				latestNanos = Math.max(latestNanos, trade.getTradeTimeNanos());
+		}
+	}
+
+	/**
+	 * Read only view of the chunks held when it was created, every chunk
+	 * but the last is full
+	 */
+	private static final class Snapshot extends AbstractList<Trade> implements RandomAccess {
+
+		private final Chunk[] chunks;
+		private final int size;
+
+		Snapshot(Chunk[] chunks, int tailSize) {
+			this.chunks = chunks;
+			this.size = (chunks.length - 1) * CHUNK_SIZE + tailSize;
+		}
+
+		@Override
+		public Trade get(int index) {
+			if (index < 0 || index >= size)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			return chunks[index / CHUNK_SIZE].trades[index % CHUNK_SIZE];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
 	}
 }
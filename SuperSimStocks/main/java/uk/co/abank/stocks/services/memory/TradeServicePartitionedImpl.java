@@ -0,0 +1,86 @@
+package uk.co.abank.stocks.services.memory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import uk.co.abank.stocks.dataobjects.SymbolArray;
+import uk.co.abank.stocks.dataobjects.SymbolDictionary;
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.services.TradeService;
+
+/**
+ * Used to record trades in memory partitioned by the stock symbol
+ * Each stock gets its own {@link TimeOrderedTradeLog} so a lookup for one stock
+ * doesn't have to go through the trades of all the other stocks, and
+ * recording a trade only locks the log for that one stock
+ * The partitions are held in a {@link SymbolArray} indexed by the stock symbol id
+ * of the trade so finding the partition doesn't hash the symbol
+ * @author JohnM
+ *
+ */
+public class TradeServicePartitionedImpl implements TradeService {
+
+	private final SymbolArray<TimeOrderedTradeLog> tradesBySymbol = new SymbolArray<>();
+
+	/**
+	 * Records the trade into the partition for its stock symbol, creating
+	 * the partition if it is the first trade for the stock
+	 * @see {@link TradeService}
+	 */
+	@Override
+	public boolean recordTrade(Trade trade) {
+		return tradesBySymbol
+				.computeIfAbsent(trade.getStockSymbolId(), stockSymbolId -> new TimeOrderedTradeLog())
+				.add(trade);
+	}
+
+	/**
+	 * Puts the partitions back together, as this copies every trade
+	 * {@link #getTrades(String)} should be used where possible
+	 * @return unmodifiable list of all the trades
+	 */
+	@Override
+	public List<Trade> getTrades() {
+		List<Trade> trades = new ArrayList<>();
+		tradesBySymbol.forEach(partition -> trades.addAll(partition.getTrades()));
+		return Collections.unmodifiableList(trades);
+	}
+
+	/**
+	 * Only a lookup of the partition so the cost is the same however many
+	 * stocks are being traded
+	 * @return unmodifiable list of the trades for the stock
+	 */
+	@Override
+	public List<Trade> getTrades(String stockSymbol) {
+		TimeOrderedTradeLog partition = tradesBySymbol.get(SymbolDictionary.global().findId(stockSymbol));
+		if (partition == null)
+			return Collections.emptyList();
+		return partition.getTrades();
+	}
+
+	/**
+	 * Gets the trades for the stock inside a window, used with
+	 * {@link uk.co.abank.stocks.calculators.StockCalculator#getWindowStart()}
+	 * to get the trades for the stock price
+	 * @param stockSymbol
+	 * @param since start of the window
+	 * @return unmodifiable list of the trades for the stock after the instant
+	 */
+	public List<Trade> getTradesSince(String stockSymbol, Instant since) {
+		TimeOrderedTradeLog partition = tradesBySymbol.get(SymbolDictionary.global().findId(stockSymbol));
+		if (partition == null)
+			return Collections.emptyList();
+		return partition.tradesSince(since);
+	}
+
+	/**
+	 *
+	 * @return the number of stocks that have trades recorded against them
+	 */
+	public int getStockCount() {
+		return tradesBySymbol.size();
+	}
+}
@@ -0,0 +1,126 @@
+package uk.co.abank.stocks.calculators;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link AllShareIndexEngine} and the All Share Index with a large
+ * number of stocks
+ * @author JohnM
+ *
+ */
+public class TestAllShareIndexEngine {
+
+	AllShareIndexEngine allShareIndexEngine;
+
+	@Before
+	public void before() throws Exception {
+		allShareIndexEngine = new AllShareIndexEngine();
+	}
+
+	@After
+	public void after() throws Exception {
+		allShareIndexEngine = null;
+		assertNull(allShareIndexEngine);
+	}
+
+	/**
+	 * Tests the same prices as {@link TestStockPriceCalculator} give the same index
+	 */
+	@Test
+	public void testAllShareIndex() {
+		allShareIndexEngine.updatePrice("TEA", 120.67D);
+		allShareIndexEngine.updatePrice("POP", 168.53D);
+		allShareIndexEngine.updatePrice("ALE", 356.88D);
+		allShareIndexEngine.updatePrice("GIN", 520.45D);
+		allShareIndexEngine.updatePrice("JOE", 734.53D);
+		allShareIndexEngine.updatePrice("BEER", 891.88D);
+
+		double stockPriceExp = Math.pow(120.67D*168.53D*356.88D*520.45D*734.53D*891.88D, (double)1/6);
+
+		assertEquals(stockPriceExp, allShareIndexEngine.getIndex(), 0.00001D);
+		assertEquals(6, allShareIndexEngine.getConstituentCount());
+	}
+
+	/**
+	 * Tests changing and removing a price moves the index
+	 */
+	@Test
+	public void testUpdateAndRemove() {
+		allShareIndexEngine.updatePrice("TEA", 100D);
+		allShareIndexEngine.updatePrice("POP", 400D);
+		assertEquals(200D, allShareIndexEngine.getIndex(), 0.00001D);
+
+		allShareIndexEngine.updatePrice("POP", 100D);
+		assertEquals(100D, allShareIndexEngine.getIndex(), 0.00001D);
+
+		allShareIndexEngine.removeConstituent("POP");
+		allShareIndexEngine.updatePrice("TEA", 25D);
+		assertEquals(25D, allShareIndexEngine.getIndex(), 0.00001D);
+		assertEquals(1, allShareIndexEngine.getConstituentCount());
+	}
+
+	/**
+	 * 10,000 stocks at 500 would overflow a product of the prices,
+	 * the index must still be 500
+	 */
+	@Test
+	public void testLargeUniverse() {
+		List<BigDecimal> sharePrices = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++) {
+			allShareIndexEngine.updatePrice("S" + i, 500D);
+			sharePrices.add(new BigDecimal(500D));
+		}
+
+		assertEquals(500D, allShareIndexEngine.getIndex(), 0.00001D);
+		assertEquals(500D, new StockCalculator().calculateAllShareIndex(sharePrices).doubleValue(), 0.00001D);
+	}
+
+	/**
+	 * Tests the running sum after many updates is the same as a rebuild
+	 */
+	@Test
+	public void testUpdatesSameAsRebuild() {
+		Random random = new Random(42L);
+		Map<String, Double> stockPrices = new HashMap<>();
+		for (int i = 0; i < 1_000_000; i++) {
+			String stockSymbol = "S" + random.nextInt(10_000);
+			double stockPrice = 0.01D + random.nextDouble() * 10_000D;
+			allShareIndexEngine.updatePrice(stockSymbol, stockPrice);
+			stockPrices.put(stockSymbol, stockPrice);
+		}
+		double updatedIndex = allShareIndexEngine.getIndex();
+
+		AllShareIndexEngine rebuilt = new AllShareIndexEngine();
+		rebuilt.rebuild(stockPrices);
+
+		assertEquals(rebuilt.getIndex(), updatedIndex, 0.00001D);
+		assertEquals(stockPrices.size(), rebuilt.getConstituentCount());
+	}
+
+	/**
+	 * Tests a zero price throws an {@link IllegalArgumentException}
+	 */
+	@Test (expected = IllegalArgumentException.class)
+	public void testZeroPrice() {
+		allShareIndexEngine.updatePrice("TEA", 0D);
+	}
+
+	/**
+	 * Tests an empty index throws an {@link IllegalArgumentException}
+	 */
+	@Test (expected = IllegalArgumentException.class)
+	public void testNoStocks() {
+		allShareIndexEngine.getIndex();
+	}
+}
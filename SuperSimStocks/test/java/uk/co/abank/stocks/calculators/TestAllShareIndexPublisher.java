@@ -0,0 +1,165 @@
+package uk.co.abank.stocks.calculators;
+
+import static org.junit.Assert.*;
+import static uk.co.abank.stocks.dataobjects.TradeFixtures.buildTrade;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.replay.ReplayClock;
+import uk.co.abank.stocks.services.ListeningTradeService;
+import uk.co.abank.stocks.services.memory.TradeServiceMemoryImpl;
+
+/**
+ * Tests the {@link AllShareIndexPublisher} recalculates the index from the stock
+ * prices coming out of the recorded trades, once per tick
+ * @author JohnM
+ *
+ */
+public class TestAllShareIndexPublisher {
+
+	ListeningTradeService tradeService;
+	AllShareIndexPublisher allShareIndexPublisher;
+	List<Double> published;
+
+	@Before
+	public void before() throws Exception {
+		SlidingWindowStockPriceEngine stockPriceEngine = new SlidingWindowStockPriceEngine();
+		tradeService = new ListeningTradeService(new TradeServiceMemoryImpl());
+		tradeService.addTradeListener(stockPriceEngine);
+		// tick long enough that the test drives the publishing
+		allShareIndexPublisher = new AllShareIndexPublisher(new AllShareIndexEngine(), 1, TimeUnit.HOURS);
+		stockPriceEngine.addStockPriceListener(allShareIndexPublisher);
+		published = new CopyOnWriteArrayList<>();
+		allShareIndexPublisher.addAllShareIndexListener(published::add);
+	}
+
+	@After
+	public void after() throws Exception {
+		allShareIndexPublisher.close();
+		allShareIndexPublisher = null;
+		assertNull(allShareIndexPublisher);
+	}
+
+	/**
+	 * Tests a burst of trades is published as one index
+	 */
+	@Test
+	public void testBurstPublishedOnce() {
+		tradeService.recordTrade(buildTrade("TEA", 10L, 100));
+		tradeService.recordTrade(buildTrade("POP", 10L, 300));
+		tradeService.recordTrade(buildTrade("POP", 10L, 500));
+
+		assertTrue(published.isEmpty());
+		assertTrue(allShareIndexPublisher.publish());
+
+		assertEquals(1, published.size());
+		// POP is 400 from its two trades
+		assertEquals(Math.sqrt(100D * 400D), published.get(0), 0.00001D);
+	}
+
+	/**
+	 * Tests nothing is recalculated when no prices have changed
+	 */
+	@Test
+	public void testNothingChanged() {
+		tradeService.recordTrade(buildTrade("TEA", 10L, 100));
+		assertTrue(allShareIndexPublisher.publish());
+
+		assertFalse(allShareIndexPublisher.publish());
+		assertEquals(1, published.size());
+
+		tradeService.recordTrade(buildTrade("GIN", 10L, 400));
+		assertTrue(allShareIndexPublisher.publish());
+		assertEquals(200D, allShareIndexPublisher.getIndex(), 0.00001D);
+		assertEquals(2, published.size());
+	}
+
+	/**
+	 * Tests the index is pushed on the tick
+	 */
+	@Test
+	public void testPublishedOnTick() throws Exception {
+		CountDownLatch indexPublished = new CountDownLatch(1);
+		try (AllShareIndexPublisher ticking = new AllShareIndexPublisher(new AllShareIndexEngine(), 10, TimeUnit.MILLISECONDS)) {
+			ticking.addAllShareIndexListener(allShareIndex -> indexPublished.countDown());
+			ticking.onStockPrice("TEA", 100D);
+
+			assertTrue(indexPublished.await(5, TimeUnit.SECONDS));
+			assertEquals(100D, ticking.getIndex(), 0.00001D);
+		}
+	}
+
+	/**
+	 * Tests a price the index turns away is counted and the other prices are still applied
+	 */
+	@Test
+	public void testBadPriceCounted() {
+		allShareIndexPublisher.onStockPrice("TEA", 0D);
+		allShareIndexPublisher.onStockPrice("GIN", 100D);
+
+		assertTrue(allShareIndexPublisher.publish());
+		assertEquals(100D, allShareIndexPublisher.getIndex(), 0.00001D);
+		assertEquals(1L, allShareIndexPublisher.getFailures());
+		assertFalse(allShareIndexPublisher.publish());
+	}
+
+	/**
+	 * Tests a listener that throws doesn't stop the other listeners or the tick
+	 */
+	@Test
+	public void testListenerThrowsTickCarriesOn() throws Exception {
+		CountDownLatch firstIndex = new CountDownLatch(1);
+		CountDownLatch secondIndex = new CountDownLatch(2);
+		try (AllShareIndexPublisher ticking = new AllShareIndexPublisher(new AllShareIndexEngine(), 10, TimeUnit.MILLISECONDS)) {
+			ticking.addAllShareIndexListener(allShareIndex -> {
+				throw new IllegalStateException("Listener failed " + allShareIndex);
+			});
+			ticking.addAllShareIndexListener(allShareIndex -> {
+				firstIndex.countDown();
+				secondIndex.countDown();
+			});
+			ticking.onStockPrice("TEA", 100D);
+			assertTrue(firstIndex.await(5, TimeUnit.SECONDS));
+
+			ticking.onStockPrice("TEA", 200D);
+			assertTrue(secondIndex.await(5, TimeUnit.SECONDS));
+			assertEquals(200D, ticking.getIndex(), 0.00001D);
+			assertTrue(ticking.getFailures() >= 2L);
+		}
+	}
+
+	/**
+	 * Tests a stock whose trades have all left the window is taken out of the index,
+	 * so the index matches the one worked out from the stock prices still in the window
+	 */
+	@Test
+	public void testStockAgedOut() {
+		long startNanos = 1_700_000_000_000_000_000L;
+		ReplayClock clock = new ReplayClock(startNanos);
+		SlidingWindowStockPriceEngine stockPriceEngine = new SlidingWindowStockPriceEngine(clock, 15);
+		tradeService.addTradeListener(stockPriceEngine);
+		try (AllShareIndexPublisher ageing = new AllShareIndexPublisher(new AllShareIndexEngine(), stockPriceEngine,
+				1, TimeUnit.HOURS)) {
+			tradeService.recordTrade(new Trade("TEA", 10L, true, startNanos - 1, 100));
+			tradeService.recordTrade(new Trade("GIN", 10L, true, startNanos - 1, 400));
+			assertTrue(ageing.publish());
+			assertEquals(200D, ageing.getIndex(), 0.00001D);
+
+			clock.advanceTo(startNanos + 10 * 60_000_000_000L);
+			tradeService.recordTrade(new Trade("GIN", 10L, true, clock.nanos(), 400));
+			clock.advanceTo(startNanos + 20 * 60_000_000_000L);
+			assertTrue(ageing.publish());
+			assertEquals(400D, ageing.getIndex(), 0.00001D);
+			assertFalse(stockPriceEngine.hasStockPrice("TEA"));
+			assertFalse("Only told once", ageing.publish());
+		}
+	}
+}
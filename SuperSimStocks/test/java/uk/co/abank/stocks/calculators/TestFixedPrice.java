@@ -0,0 +1,104 @@
+package uk.co.abank.stocks.calculators;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.co.abank.stocks.dataobjects.Stock;
+import uk.co.abank.stocks.dataobjects.StockBuilder;
+
+/**
+ * JUnit tests for the {@link FixedPrice} rounding and the fixed point results
+ * of the {@link TickerCalculator}
+ * @author JohnM
+ *
+ */
+public class TestFixedPrice {
+
+	/**
+	 * Tests ratios are rounded half up to 5dp
+	 */
+	@Test
+	public void testOfRatio() {
+		assertEquals(24242L, FixedPrice.ofRatio(8, 33));
+		assertEquals(300000L, FixedPrice.ofRatio(3, 1));
+		// exactly half way rounds up, away from zero for negatives
+		assertEquals(1L, FixedPrice.ofRatio(1, 200_000));
+		assertEquals(-1L, FixedPrice.ofRatio(-1, 200_000));
+		assertEquals(-1L, FixedPrice.ofRatio(1, -200_000));
+		assertEquals(0L, FixedPrice.ofRatio(1, 200_001));
+		assertEquals(new BigDecimal("0.24242"), FixedPrice.toBigDecimal(FixedPrice.ofRatio(8, 33)));
+	}
+
+	/**
+	 * Tests the ratio is the same as BigDecimal HALF_UP for random and large values
+	 */
+	@Test
+	public void testOfRatioSameAsBigDecimal() {
+		Random random = new Random(42L);
+		for (int i = 0; i < 100_000; i++) {
+			long numerator = random.nextLong() >> random.nextInt(40);
+			long denominator = random.nextLong() >> random.nextInt(63);
+			if (denominator == 0)
+				continue;
+			BigDecimal expected = BigDecimal.valueOf(numerator)
+					.divide(BigDecimal.valueOf(denominator), FixedPrice.SCALE, RoundingMode.HALF_UP);
+			if (expected.unscaledValue().bitLength() >= Long.SIZE)
+				continue;
+			assertEquals(numerator + "/" + denominator, expected, FixedPrice.toBigDecimal(FixedPrice.ofRatio(numerator, denominator)));
+		}
+	}
+
+	/**
+	 * Tests a ratio too big for 5dp throws an {@link IllegalArgumentException}
+	 */
+	@Test (expected = IllegalArgumentException.class)
+	public void testOfRatioOverflow() {
+		FixedPrice.ofRatio(Long.MAX_VALUE, 1);
+	}
+
+	/**
+	 * Tests a zero denominator throws an {@link IllegalArgumentException}
+	 */
+	@Test (expected = IllegalArgumentException.class)
+	public void testOfRatioZeroDenominator() {
+		FixedPrice.ofRatio(1, 0);
+	}
+
+	/**
+	 * Tests rounding to a whole number
+	 */
+	@Test
+	public void testToLong() {
+		assertEquals(1L, FixedPrice.toLong(50_000L));
+		assertEquals(0L, FixedPrice.toLong(49_999L));
+		assertEquals(-1L, FixedPrice.toLong(-50_000L));
+		assertEquals(3L, FixedPrice.toLong(FixedPrice.ofDouble(2.71828D)));
+	}
+
+	/**
+	 * Tests the yield and P/E ratio are exact, the double version was off by
+	 * the binary fraction
+	 */
+	@Test
+	public void testTickerExact() {
+		Stock stock = new StockBuilder()
+				.setStockSymbol("GIN")
+				.setStockType("Preferred")
+				.setLastDividend(8)
+				.setFixedDividend("2")
+				.setParValue(100)
+				.validate()
+				.build();
+		TickerCalculator tickerCalculator = new TickerCalculator();
+
+		assertEquals(new BigDecimal("0.06061"), tickerCalculator.calculateDividendYield(stock, 33));
+		assertEquals(new BigDecimal("16.50000"), tickerCalculator.calculatePERatio(stock, 33));
+		assertEquals(6061L, tickerCalculator.calculateDividendYieldFixed(stock, 33));
+		assertEquals(1650000L, tickerCalculator.calculatePERatioFixed(stock, 33));
+	}
+}
@@ -0,0 +1,216 @@
+package uk.co.abank.stocks.calculators;
+
+import static org.junit.Assert.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.services.ListeningTradeService;
+import uk.co.abank.stocks.services.memory.TradeServiceMemoryImpl;
+
+/**
+ * Tests the buckets kept by the {@link OhlcvAggregator} give the same open, high, low,
+ * close and volume as working them out from the trades, and the same stock price as
+ * the {@link StockCalculator}
+ * @author JohnM
+ *
+ */
+public class TestOhlcvAggregator {
+
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+	private static final long NANOS_PER_MINUTE = 60 * NANOS_PER_SECOND;
+
+	ListeningTradeService tradeService;
+	OhlcvAggregator ohlcvAggregator;
+	long nowNanos;
+
+	@Before
+	public void before() throws Exception {
+		nowNanos = Instant.parse("2024-03-01T12:00:00Z").getEpochSecond() * NANOS_PER_SECOND;
+		ohlcvAggregator = new OhlcvAggregator();
+		tradeService = new ListeningTradeService(new TradeServiceMemoryImpl());
+		tradeService.addTradeListener(ohlcvAggregator);
+	}
+
+	@After
+	public void after() throws Exception {
+		tradeService = null;
+		ohlcvAggregator = null;
+		assertNull(tradeService);
+		assertNull(ohlcvAggregator);
+	}
+
+	/**
+	 * Tests the open and close come from the earliest and latest trade even
+	 * when a trade is recorded late, for 1 minute and 1 second buckets
+	 */
+	@Test
+	public void testOpenHighLowClose() {
+		long minuteStart = nowNanos - 5 * NANOS_PER_MINUTE;
+		tradeService.recordTrade(new Trade("GIN", 10L, true, minuteStart + 10 * NANOS_PER_SECOND, 100));
+		tradeService.recordTrade(new Trade("GIN", 20L, true, minuteStart + 20 * NANOS_PER_SECOND, 120));
+		tradeService.recordTrade(new Trade("GIN", 30L, false, minuteStart + 30 * NANOS_PER_SECOND, 90));
+		tradeService.recordTrade(new Trade("GIN", 40L, true, minuteStart + 40 * NANOS_PER_SECOND, 110));
+		tradeService.recordTrade(new Trade("GIN", 5L, true, minuteStart + 5 * NANOS_PER_SECOND, 95));
+
+		List<OhlcvBar> bars = ohlcvAggregator.getBars("GIN", BarInterval.ONE_MINUTE, minuteStart, nowNanos);
+		assertEquals(1, bars.size());
+		OhlcvBar bar = bars.get(0);
+		assertEquals(minuteStart, bar.getStartNanos());
+		assertEquals(minuteStart + NANOS_PER_MINUTE, bar.getEndNanos());
+		assertEquals(95L, bar.getOpen());
+		assertEquals(120L, bar.getHigh());
+		assertEquals(90L, bar.getLow());
+		assertEquals(110L, bar.getClose());
+		assertEquals(105L, bar.getVolume());
+		assertEquals(10 * 100 + 20 * 120 + 30 * 90 + 40 * 110 + 5 * 95, bar.getNotional());
+		assertEquals(5L, bar.getTradeCount());
+
+		assertEquals(5, ohlcvAggregator.getBars("GIN", BarInterval.ONE_SECOND, minuteStart, nowNanos).size());
+		assertTrue(ohlcvAggregator.getBars("TEA", BarInterval.ONE_MINUTE, minuteStart, nowNanos).isEmpty());
+		assertNull(ohlcvAggregator.getBar("TEA", minuteStart, nowNanos));
+	}
+
+	/**
+	 * Tests random windows added up from the buckets give the same totals as
+	 * adding up the trades in them
+	 */
+	@Test
+	public void testWindowsAcrossBucketSizes() {
+		Random random = new Random(24L);
+		List<Trade> trades = recordRandomTrades(random, 2_000);
+
+		for (int i = 0; i < 50; i++) {
+			long fromSeconds = random.nextInt(20 * 60);
+			long toSeconds = fromSeconds + 1 + random.nextInt(20 * 60 - (int)fromSeconds);
+			long fromNanos = nowNanos - 20 * NANOS_PER_MINUTE + fromSeconds * NANOS_PER_SECOND;
+			long toNanos = nowNanos - 20 * NANOS_PER_MINUTE + toSeconds * NANOS_PER_SECOND;
+
+			long volume = 0;
+			long notional = 0;
+			long high = Long.MIN_VALUE;
+			long low = Long.MAX_VALUE;
+			int tradeCount = 0;
+			for (Trade trade : trades) {
+				if (trade.getTradeTimeNanos() >= fromNanos && trade.getTradeTimeNanos() < toNanos) {
+					volume += trade.getQuantityShares();
+					notional += trade.getQuantityShares() * trade.getTradePrice();
+					high = Math.max(high, trade.getTradePrice());
+					low = Math.min(low, trade.getTradePrice());
+					tradeCount++;
+				}
+			}
+
+			OhlcvBar bar = ohlcvAggregator.getBar("GIN", fromNanos, toNanos);
+			if (tradeCount == 0) {
+				assertNull(bar);
+			} else {
+				assertEquals(volume, bar.getVolume());
+				assertEquals(notional, bar.getNotional());
+				assertEquals(high, bar.getHigh());
+				assertEquals(low, bar.getLow());
+				assertEquals(tradeCount, bar.getTradeCount());
+			}
+		}
+	}
+
+	/**
+	 * Tests the 15 minute stock price from the buckets is the same as the
+	 * {@link StockCalculator} works out from the trades
+	 */
+	@Test
+	public void testStockPriceMatchesStockCalculator() {
+		List<Trade> trades = recordRandomTrades(new Random(42L), 2_000);
+		Clock clock = Clock.fixed(Instant.ofEpochSecond(0L, nowNanos), ZoneOffset.UTC);
+		StockCalculator stockCalculator = new StockCalculator(clock, 15);
+
+		assertEquals(stockCalculator.calculateStockPrice(trades),
+				ohlcvAggregator.calculateStockPrice("GIN", stockCalculator));
+	}
+
+	/**
+	 * Tests a trade older than the buckets kept is ignored and the old buckets
+	 * are reused as the trades move on
+	 */
+	@Test
+	public void testRetention() {
+		ohlcvAggregator = new OhlcvAggregator(5);
+		tradeService.addTradeListener(ohlcvAggregator);
+
+		tradeService.recordTrade(new Trade("GIN", 10L, true, nowNanos, 100));
+		tradeService.recordTrade(new Trade("GIN", 10L, true, nowNanos - 6 * NANOS_PER_MINUTE, 100));
+		assertEquals(1L, ohlcvAggregator.getTooOld());
+
+		tradeService.recordTrade(new Trade("GIN", 20L, true, nowNanos + 7 * NANOS_PER_MINUTE, 200));
+		assertEquals(1, ohlcvAggregator.getBars("GIN", BarInterval.ONE_SECOND, 0L, Long.MAX_VALUE).size());
+		assertEquals(1, ohlcvAggregator.getBars("GIN", BarInterval.ONE_MINUTE, 0L, Long.MAX_VALUE).size());
+		assertEquals(20L, ohlcvAggregator.getBar("GIN", 0L, Long.MAX_VALUE - NANOS_PER_SECOND).getVolume());
+	}
+
+	/**
+	 * Tests a trade that would overflow a bucket is turned away and isn't
+	 * left in any of the buckets
+	 */
+	@Test
+	public void testOverflowRejected() {
+		long tradeNanos = nowNanos - 2 * NANOS_PER_MINUTE;
+		tradeService.recordTrade(new Trade("GIN", 10L, true, tradeNanos, 100));
+		ohlcvAggregator.onTrade(new Trade("GIN", Long.MAX_VALUE / 200, true, tradeNanos + 1, 150));
+		try {
+			ohlcvAggregator.onTrade(new Trade("GIN", Long.MAX_VALUE / 200, true, tradeNanos + 2, 150));
+			fail("Overflow should have been rejected");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getCause() instanceof ArithmeticException);
+		}
+
+		for (BarInterval barInterval : BarInterval.values()) {
+			OhlcvBar bar = ohlcvAggregator.getBars("GIN", barInterval, 0L, Long.MAX_VALUE).get(0);
+			assertEquals(2L, bar.getTradeCount());
+			assertEquals(10L + Long.MAX_VALUE / 200, bar.getVolume());
+		}
+	}
+
+	/**
+	 * Tests a window whose buckets add up to more than a long is turned away
+	 * rather than giving a wrong price
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testWindowOverflowRejected() {
+		ohlcvAggregator.onTrade(new Trade("GIN", Long.MAX_VALUE / 200, true, nowNanos - 10 * NANOS_PER_MINUTE, 150));
+		ohlcvAggregator.onTrade(new Trade("GIN", Long.MAX_VALUE / 200, true, nowNanos - 2 * NANOS_PER_MINUTE, 150));
+
+		ohlcvAggregator.calculateStockPrice("GIN", nowNanos - 15 * NANOS_PER_MINUTE);
+	}
+
+	/**
+	 * Tests the retention has to hold at least one of the largest bucket
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testRetentionTooShort() {
+		new OhlcvAggregator(4);
+	}
+
+	/**
+	 * Records trades spread over the 20 minutes before now, not in time order
+	 */
+	private List<Trade> recordRandomTrades(Random random, int count) {
+		List<Trade> trades = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			long tradeNanos = nowNanos - 1 - (long)(random.nextDouble() * 20 * NANOS_PER_MINUTE);
+			Trade trade = new Trade("GIN", 1 + random.nextInt(500), random.nextBoolean(), tradeNanos,
+					50 + random.nextInt(100));
+			tradeService.recordTrade(trade);
+			trades.add(trade);
+		}
+		return trades;
+	}
+}
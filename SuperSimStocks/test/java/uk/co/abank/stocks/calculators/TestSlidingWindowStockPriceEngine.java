@@ -0,0 +1,173 @@
+package uk.co.abank.stocks.calculators;
+
+import static org.junit.Assert.*;
+import static uk.co.abank.stocks.dataobjects.TradeFixtures.buildTrade;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.dataobjects.TradeTimes;
+import uk.co.abank.stocks.services.ListeningTradeService;
+import uk.co.abank.stocks.services.memory.TradeServiceMemoryImpl;
+
+/**
+ * Tests the running stock price kept by the {@link SlidingWindowStockPriceEngine}
+ * gives the same price as the {@link StockCalculator} and that trades drop out
+ * of the window as the clock moves on
+ * @author JohnM
+ *
+ */
+public class TestSlidingWindowStockPriceEngine {
+
+	MovableClock clock;
+	ListeningTradeService tradeService;
+	SlidingWindowStockPriceEngine stockPriceEngine;
+	LocalDateTime now;
+
+	@Before
+	public void before() throws Exception {
+		now = LocalDateTime.now();
+		clock = new MovableClock(TradeTimes.toInstant(now));
+		stockPriceEngine = new SlidingWindowStockPriceEngine(clock, 15);
+		tradeService = new ListeningTradeService(new TradeServiceMemoryImpl());
+		tradeService.addTradeListener(stockPriceEngine);
+	}
+
+	@After
+	public void after() throws Exception {
+		tradeService = null;
+		stockPriceEngine = null;
+		assertNull(tradeService);
+		assertNull(stockPriceEngine);
+	}
+
+	/**
+	 * Tests the same trades as {@link TestStockPriceCalculator} give the same price
+	 */
+	@Test
+	public void testCorrectQuantityandPrice() {
+		tradeService.recordTrade(buildTrade("GIN", now, 8L, 100));
+		tradeService.recordTrade(buildTrade("GIN", now, 24L, 105));
+		tradeService.recordTrade(buildTrade("GIN", now.minusMinutes(10), 30L, 102));
+		tradeService.recordTrade(buildTrade("GIN", now.minusMinutes(15), 30L, 55));
+		tradeService.recordTrade(buildTrade("TEA", now, 30L, 55));
+
+		double stockPriceActual = ((double)(8*100) + (24*105) + (30*102))/ (8+24+30);
+
+		assertEquals(stockPriceActual, stockPriceEngine.getStockPrice("GIN"), 0.00001D);
+	}
+
+	/**
+	 * Tests that trades are taken off the price as they leave the window
+	 */
+	@Test
+	public void testTradesLeaveWindow() {
+		tradeService.recordTrade(buildTrade("GIN", now.minusMinutes(10), 30L, 102));
+		tradeService.recordTrade(buildTrade("GIN", now, 8L, 100));
+
+		clock.moveTo(TradeTimes.toInstant(now.plusMinutes(6)));
+
+		assertEquals(100D, stockPriceEngine.getStockPrice("GIN"), 0.00001D);
+		assertTrue(stockPriceEngine.hasStockPrice("GIN"));
+
+		clock.moveTo(TradeTimes.toInstant(now.plusMinutes(16)));
+
+		assertFalse(stockPriceEngine.hasStockPrice("GIN"));
+	}
+
+	/**
+	 * Tests a trade recorded late leaves the window at its own trade time, not
+	 * once the trades recorded before it have gone, the same as {@link StockCalculator}
+	 */
+	@Test
+	public void testLateTradeLeavesWindow() {
+		tradeService.recordTrade(buildTrade("GIN", now, 8L, 100));
+		tradeService.recordTrade(buildTrade("GIN", now.minusMinutes(10), 30L, 102));
+		tradeService.recordTrade(buildTrade("GIN", now.minusMinutes(12), 24L, 105));
+
+		clock.moveTo(TradeTimes.toInstant(now.plusMinutes(4)));
+		assertEquals(((double)(8*100) + (30*102))/ (8+30), stockPriceEngine.getStockPrice("GIN"), 0.00001D);
+
+		clock.moveTo(TradeTimes.toInstant(now.plusMinutes(6)));
+		assertEquals(100D, stockPriceEngine.getStockPrice("GIN"), 0.00001D);
+	}
+
+	/**
+	 * Tests a trade whose price * quantity overflows is turned away and the
+	 * price from the trades already in the window is unchanged
+	 */
+	@Test
+	public void testOverflowRejected() {
+		tradeService.recordTrade(buildTrade("GIN", now, 8L, 100));
+		try {
+			stockPriceEngine.onTrade(buildTrade("GIN", now, Long.MAX_VALUE / 2, 100));
+			fail("Overflow should have been rejected");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getCause() instanceof ArithmeticException);
+		}
+
+		assertEquals(100D, stockPriceEngine.getStockPrice("GIN"), 0.00001D);
+	}
+
+	/**
+	 * Tests the ring holding the window grows past its initial size
+	 */
+	@Test
+	public void testManyTrades() {
+		long sumQuantity = 0L;
+		long sumTradePriceQuantity = 0L;
+		for (int i = 1; i <= 1000; i++) {
+			tradeService.recordTrade(buildTrade("GIN", now, i, 100 + (i % 7)));
+			sumQuantity += i;
+			sumTradePriceQuantity += i * (100 + (i % 7));
+		}
+
+		assertEquals((double)sumTradePriceQuantity/sumQuantity, stockPriceEngine.getStockPrice("GIN"), 0.00001D);
+	}
+
+	/**
+	 * Tests a stock with no trades throws an {@link IllegalArgumentException}
+	 */
+	@Test (expected = IllegalArgumentException.class)
+	public void testNoTrades() {
+		stockPriceEngine.getStockPrice("GIN");
+	}
+
+	/**
+	 * Clock that only moves when told to
+	 */
+	private static class MovableClock extends Clock {
+
+		private Instant instant;
+
+		MovableClock(Instant instant) {
+			this.instant = instant;
+		}
+
+		void moveTo(Instant instant) {
+			this.instant = instant;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return TradeTimes.ZONE;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return instant;
+		}
+	}
+}
@@ -6,6 +6,8 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.junit.After;
 import org.junit.Before;
@@ -127,6 +129,62 @@ public class TestStockPriceCalculator {
 	}
 
 
+	/**
+	 * Creates a number of trades for the same stock, some outside the window,
+	 * and checks the parallel stream gives the same price as the iteration
+	 */	
+	@Test
+	public void testCorrectQuantityandPriceParallelStream() {
+		for (int i = 1; i <= 10000; i++) {
+			tradeService.recordTrade(new TradeBuilder()
+					.setStockSymbol("GIN")
+					.setTradeTime(LocalDateTime.now().minusMinutes(i % 20))
+					.setQuantityShares(i)
+					.setTradePrice(100 + (i % 9))
+					.setBuyNotSell(true).validate().build());
+		}
+		
+		List<Trade> trades = tradeService.getTrades();
+		
+		BigDecimal stockPriceParallel = stockCalculator.calculateStockPriceParallelStreams(trades);
+		BigDecimal stockPrice = stockCalculator.calculateStockPrice(trades);
+		
+		assertEquals(stockPrice.doubleValue(), stockPriceParallel.doubleValue(), 0.00001D);
+	}
+
+	/**
+	 * Creates trades for a number of stocks mixed together and checks the one pass
+	 * grouped calculation gives the same price for each stock as calculating them
+	 * one stock at a time, and the prices can go straight into the share index
+	 */
+	@Test
+	public void testStockPricesGrouped() {
+		String[] stockSymbols = {"TEA", "POP", "ALE", "GIN", "JOE"};
+		List<Trade> trades = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			trades.add(new TradeBuilder()
+					.setStockSymbol(stockSymbols[i % 3 == 0 ? 3 : i % 4])
+					.setTradeTime(LocalDateTime.now().minusMinutes(i % 20))
+					.setQuantityShares(1 + i % 13)
+					.setTradePrice(50 + i % 97)
+					.setBuyNotSell(true).validate().build());
+		}
+		
+		Map<String, BigDecimal> stockPrices = stockCalculator.calculateStockPrices(trades);
+		
+		assertEquals(4, stockPrices.size());
+		assertFalse(stockPrices.containsKey("JOE"));
+		for (Map.Entry<String, BigDecimal> stockPrice : stockPrices.entrySet()) {
+			List<Trade> stockTrades = trades.stream()
+					.filter(trade -> trade.getStockSymbol().equals(stockPrice.getKey()))
+					.collect(Collectors.toList());
+			assertEquals(stockCalculator.calculateStockPrice(stockTrades), stockPrice.getValue());
+		}
+		assertEquals(stockPrices, stockCalculator.calculateStockPricesParallel(trades));
+		assertEquals(stockCalculator.calculateAllShareIndex(new ArrayList<>(stockPrices.values())),
+				stockCalculator.calculateAllShareIndex(stockPrices.values()));
+	}
+	
 	/**
 	 * Creates a number of stock prices calculates the SharePriceIndex
 	 * then uses these to test for the correct stock price
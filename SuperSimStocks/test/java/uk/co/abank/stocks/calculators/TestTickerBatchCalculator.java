@@ -0,0 +1,107 @@
+package uk.co.abank.stocks.calculators;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.abank.stocks.dataobjects.Stock;
+import uk.co.abank.stocks.dataobjects.StockBuilder;
+
+/**
+ * Tests the {@link TickerBatchCalculator} gives the same results as the
+ * {@link TickerCalculator} one stock at a time
+ * @author JohnM
+ *
+ */
+public class TestTickerBatchCalculator {
+
+	TickerBatchCalculator tickerBatchCalculator;
+	TickerCalculator tickerCalculator;
+
+	@Before
+	public void before() throws Exception {
+		tickerBatchCalculator = new TickerBatchCalculator();
+		tickerCalculator = new TickerCalculator();
+	}
+
+	@After
+	public void after() throws Exception {
+		tickerBatchCalculator = null;
+		assertNull(tickerBatchCalculator);
+	}
+
+	/**
+	 * Tests a batch big enough to be split across the fork/join pool
+	 */
+	@Test
+	public void testSameAsOneAtATime() {
+		int count = 5_000;
+		Random random = new Random(42L);
+		Stock[] stocks = new Stock[count];
+		long[] tickerPrices = new long[count];
+		for (int i = 0; i < count; i++) {
+			stocks[i] = random.nextBoolean()
+					? buildStock("C" + i, "Common", 1 + random.nextInt(20), "", 100)
+					: buildStock("P" + i, "Preferred", 8, String.valueOf(1 + random.nextInt(10)), 100);
+			tickerPrices[i] = 1 + random.nextInt(1_000);
+		}
+		long[] dividendYields = new long[count];
+		long[] peRatios = new long[count];
+
+		tickerBatchCalculator.calculate(stocks, tickerPrices, dividendYields, peRatios);
+
+		for (int i = 0; i < count; i++) {
+			assertEquals(tickerCalculator.calculateDividendYieldFixed(stocks[i], tickerPrices[i]), dividendYields[i]);
+			assertEquals(tickerCalculator.calculatePERatioFixed(stocks[i], tickerPrices[i]), peRatios[i]);
+		}
+	}
+
+	/**
+	 * Tests the results that can't be worked out are set to NO_VALUE and
+	 * don't stop the rest of the batch
+	 */
+	@Test
+	public void testNoValue() {
+		Stock[] stocks = {
+				buildStock("TEA", "Common", 0, "", 100),
+				buildStock("POP", "Common", 8, "", 100),
+				buildStock("GIN", "Preferred", 8, "2", 100)
+		};
+		long[] tickerPrices = {33, 0, 33};
+		long[] dividendYields = new long[3];
+		long[] peRatios = new long[3];
+
+		tickerBatchCalculator.calculate(stocks, tickerPrices, dividendYields, peRatios);
+
+		assertEquals(0L, dividendYields[0]);
+		assertEquals(TickerBatchCalculator.NO_VALUE, peRatios[0]);
+		assertEquals(TickerBatchCalculator.NO_VALUE, dividendYields[1]);
+		assertEquals(0L, peRatios[1]);
+		assertEquals(6061L, dividendYields[2]);
+		assertEquals(1650000L, peRatios[2]);
+	}
+
+	/**
+	 * Tests arrays of different lengths throw an {@link IllegalArgumentException}
+	 */
+	@Test (expected = IllegalArgumentException.class)
+	public void testDifferentLengths() {
+		tickerBatchCalculator.calculate(new Stock[2], new long[2], new long[2], new long[1]);
+	}
+
+	private Stock buildStock(String stockSymbol, String stockType, long lastDividend, String fixedDividend,
+			long parValue) {
+		return new StockBuilder()
+				.setStockSymbol(stockSymbol)
+				.setStockType(stockType)
+				.setLastDividend(lastDividend)
+				.setFixedDividend(fixedDividend)
+				.setParValue(parValue)
+				.validate()
+				.build();
+	}
+}
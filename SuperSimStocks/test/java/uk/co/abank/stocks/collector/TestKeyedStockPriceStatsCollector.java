@@ -0,0 +1,132 @@
+package uk.co.abank.stocks.collector;
+
+import static org.junit.Assert.*;
+import static uk.co.abank.stocks.dataobjects.TradeFixtures.buildTrade;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.abank.stocks.dataobjects.SymbolDictionary;
+import uk.co.abank.stocks.dataobjects.Trade;
+
+/**
+ * JUnit tests for the {@link KeyedStockPriceStatsCollector} giving the
+ * same sums for each stock as the {@link StockPriceStatsCollector}
+ * @author JohnM
+ *
+ */
+public class TestKeyedStockPriceStatsCollector {
+
+	private static final String[] STOCK_SYMBOLS = {"TEA", "POP", "ALE", "GIN", "JOE"};
+
+	KeyedStockPriceStatsCollector collector;
+	LocalDateTime now;
+
+	@Before
+	public void before() throws Exception {
+		collector = new KeyedStockPriceStatsCollector();
+		now = LocalDateTime.now();
+	}
+
+	@After
+	public void after() throws Exception {
+		collector = null;
+		assertNull(collector);
+	}
+
+	/**
+	 * Tests the sums for each stock, sequential and parallel, are the same as
+	 * collecting the trades for each stock on their own
+	 */
+	@Test
+	public void testSumsByStock() {
+		Random random = new Random(42L);
+		List<Trade> trades = new ArrayList<>();
+		for (int i = 0; i < 200_000; i++) {
+			trades.add(buildTrade(STOCK_SYMBOLS[random.nextInt(STOCK_SYMBOLS.length)], now, 1 + random.nextInt(1000), 1 + random.nextInt(500)));
+		}
+
+		KeyedStockPriceStats sequential = trades.stream().collect(collector);
+		KeyedStockPriceStats parallel = trades.parallelStream().collect(new KeyedStockPriceStatsCollector());
+
+		for (String stockSymbol : STOCK_SYMBOLS) {
+			int id = SymbolDictionary.global().findId(stockSymbol);
+			StockPriceStats stockPriceStats = trades.stream()
+					.filter(trade -> trade.getStockSymbol().equals(stockSymbol))
+					.collect(new StockPriceStatsCollector());
+			assertEquals(stockPriceStats.getSumQuantity(), sequential.getSumQuantity(id));
+			assertEquals(stockPriceStats.getSumTradePriceQuantity(), sequential.getSumTradePriceQuantity(id));
+			assertEquals(stockPriceStats.getSumQuantity(), parallel.getSumQuantity(id));
+			assertEquals(stockPriceStats.getSumTradePriceQuantity(), parallel.getSumTradePriceQuantity(id));
+		}
+	}
+
+	/**
+	 * Tests the sums grow for a stock with an id past the starting size, and
+	 * combining with smaller sums keeps them
+	 */
+	@Test
+	public void testGrow() {
+		Trade trade = buildTrade("GROW" + SymbolDictionary.global().size(), now, 10L, 3L);
+		KeyedStockPriceStats small = new KeyedStockPriceStats(1);
+		KeyedStockPriceStats grown = new KeyedStockPriceStats(1);
+		grown.accept(trade);
+
+		small.combine(grown);
+
+		assertTrue(small.size() > trade.getStockSymbolId());
+		assertTrue(small.hasTrades(trade.getStockSymbolId()));
+		assertEquals(30L, small.getSumTradePriceQuantity(trade.getStockSymbolId()));
+		assertFalse(small.hasTrades(small.size()));
+	}
+
+	/**
+	 * Tests a trade whose price*quantity overflows throws an {@link IllegalArgumentException}
+	 */
+	@Test (expected = IllegalArgumentException.class)
+	public void testTradeOverflow() {
+		List<Trade> trades = new ArrayList<>();
+		trades.add(buildTrade("GIN", now, Long.MAX_VALUE / 2, 3));
+
+		trades.stream().collect(collector);
+	}
+
+	/**
+	 * Tests a trade or a combine that takes a sum over is turned away without
+	 * any of the sums being changed
+	 */
+	@Test
+	public void testSumsUnchangedOnOverflow() {
+		KeyedStockPriceStats stats = new KeyedStockPriceStats();
+		Trade tea = buildTrade("TEA", now, 1L, 10);
+		Trade gin = buildTrade("GIN", now, 1L, Long.MAX_VALUE / 2);
+		stats.accept(tea);
+		stats.accept(gin);
+		try {
+			stats.accept(buildTrade("GIN", now, 1L, Long.MAX_VALUE / 2 + 2));
+			fail("Overflow should have been rejected");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getCause() instanceof ArithmeticException);
+		}
+		assertEquals(1L, stats.getSumQuantity(gin.getStockSymbolId()));
+
+		KeyedStockPriceStats other = new KeyedStockPriceStats();
+		other.accept(tea);
+		other.accept(buildTrade("GIN", now, 1L, Long.MAX_VALUE / 2 + 2));
+		try {
+			stats.combine(other);
+			fail("Overflow should have been rejected");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getCause() instanceof ArithmeticException);
+		}
+		assertEquals(1L, stats.getSumQuantity(tea.getStockSymbolId()));
+		assertEquals(1L, stats.getSumQuantity(gin.getStockSymbolId()));
+		assertEquals(Long.MAX_VALUE / 2, stats.getSumTradePriceQuantity(gin.getStockSymbolId()));
+	}
+}
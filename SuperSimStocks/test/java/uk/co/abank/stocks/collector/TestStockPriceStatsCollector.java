@@ -0,0 +1,128 @@
+package uk.co.abank.stocks.collector;
+
+import static org.junit.Assert.*;
+import static uk.co.abank.stocks.dataobjects.TradeFixtures.buildTrade;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collector.Characteristics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+
+/**
+ * JUnit tests for the {@link StockPriceStatsCollector} run sequentially
+ * and in parallel
+ * @author JohnM
+ *
+ */
+public class TestStockPriceStatsCollector {
+
+	StockPriceStatsCollector collector;
+	LocalDateTime now;
+
+	@Before
+	public void before() throws Exception {
+		collector = new StockPriceStatsCollector();
+		now = LocalDateTime.now();
+	}
+
+	@After
+	public void after() throws Exception {
+		collector = null;
+		assertNull(collector);
+	}
+
+	/**
+	 * Tests the sums for a few trades
+	 */
+	@Test
+	public void testSums() {
+		List<Trade> trades = new ArrayList<>();
+		trades.add(buildTrade("GIN", now, 8L, 100));
+		trades.add(buildTrade("GIN", now, 24L, 105));
+		trades.add(buildTrade("GIN", now, 30L, 102));
+
+		StockPriceStats stockPriceStats = trades.stream().collect(collector);
+
+		assertEquals(8 + 24 + 30, stockPriceStats.getSumQuantity());
+		assertEquals(8*100 + 24*105 + 30*102, stockPriceStats.getSumTradePriceQuantity());
+	}
+
+	/**
+	 * Tests the parallel stream gives exactly the same sums as the sequential stream
+	 */
+	@Test
+	public void testParallelSameAsSequential() {
+		Random random = new Random(42L);
+		List<Trade> trades = new ArrayList<>();
+		for (int i = 0; i < 200_000; i++) {
+			trades.add(buildTrade("GIN", now, 1 + random.nextInt(1000), 1 + random.nextInt(500)));
+		}
+
+		StockPriceStats sequential = trades.stream().collect(collector);
+		StockPriceStats parallel = trades.parallelStream().collect(new StockPriceStatsCollector());
+
+		assertEquals(sequential.getSumQuantity(), parallel.getSumQuantity());
+		assertEquals(sequential.getSumTradePriceQuantity(), parallel.getSumTradePriceQuantity());
+	}
+
+	/**
+	 * Tests the collector says it doesn't care about the order of the trades
+	 */
+	@Test
+	public void testCharacteristics() {
+		assertTrue(collector.characteristics().contains(Characteristics.UNORDERED));
+		assertTrue(collector.characteristics().contains(Characteristics.IDENTITY_FINISH));
+		assertFalse(collector.characteristics().contains(Characteristics.CONCURRENT));
+	}
+
+	/**
+	 * Tests a trade whose price*quantity overflows throws an {@link IllegalArgumentException}
+	 * rather than giving the wrong stock price
+	 */
+	@Test (expected = IllegalArgumentException.class)
+	public void testTradeOverflow() {
+		List<Trade> trades = new ArrayList<>();
+		trades.add(buildTrade("GIN", now, Long.MAX_VALUE / 2, 3));
+
+		trades.stream().collect(collector);
+	}
+
+	/**
+	 * Tests the sum of a number of large trades overflowing throws an {@link IllegalArgumentException}
+	 */
+	@Test (expected = IllegalArgumentException.class)
+	public void testSumOverflow() {
+		List<Trade> trades = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			trades.add(buildTrade("GIN", now, 1_000_000_000L, 100_000_000L));
+		}
+
+		trades.parallelStream().collect(collector);
+	}
+
+	/**
+	 * Tests a trade whose price*quantity takes the sum over is turned away without
+	 * its quantity being counted
+	 */
+	@Test
+	public void testSumsUnchangedOnOverflow() {
+		StockPriceStats stockPriceStats = new StockPriceStats();
+		stockPriceStats.accept(buildTrade("GIN", now, 1L, Long.MAX_VALUE / 2));
+		try {
+			stockPriceStats.accept(buildTrade("GIN", now, 1L, Long.MAX_VALUE / 2 + 2));
+			fail("Overflow should have been rejected");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getCause() instanceof ArithmeticException);
+		}
+
+		assertEquals(1L, stockPriceStats.getSumQuantity());
+		assertEquals(Long.MAX_VALUE / 2, stockPriceStats.getSumTradePriceQuantity());
+	}
+}
@@ -169,4 +169,18 @@ public class TestStockBuilder {
 		assertNotNull(stock);
 		assertEquals(0,stockBuilder.getValidationErrors().size());		
 	}
+	
+	/**
+	 * Tests a preferred dividend that overflows is a validation error
+	 */
+	@Test
+	public void testValidationDividendOverflow() {
+		stockBuilder.setStockSymbol("GIN")
+					.setStockType("Preferred")
+					.setLastDividend(8)
+					.setFixedDividend("2")
+					.setParValue(Long.MAX_VALUE)
+					.validate();
+		assertEquals(1,stockBuilder.getValidationErrors().size());
+	}
 }
\ No newline at end of file
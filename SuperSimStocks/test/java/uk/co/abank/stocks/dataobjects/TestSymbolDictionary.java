@@ -0,0 +1,96 @@
+package uk.co.abank.stocks.dataobjects;
+
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit tests for the stock symbol ids given by the {@link SymbolDictionary}
+ * and the {@link SymbolArray} indexed by them
+ * @author JohnM
+ *
+ */
+public class TestSymbolDictionary {
+
+	SymbolDictionary symbolDictionary;
+
+	@Before
+	public void before() throws Exception {
+		symbolDictionary = new SymbolDictionary();
+	}
+
+	@After
+	public void after() throws Exception {
+		symbolDictionary = null;
+		assertNull(symbolDictionary);
+	}
+
+	/**
+	 * Tests the ids are handed out in order and kept
+	 */
+	@Test
+	public void testIds() {
+		assertEquals(0, symbolDictionary.getId("TEA"));
+		assertEquals(1, symbolDictionary.getId("POP"));
+		assertEquals(0, symbolDictionary.getId("TEA"));
+		assertEquals(-1, symbolDictionary.findId("GIN"));
+		assertEquals("POP", symbolDictionary.getSymbol(1));
+		assertEquals(2, symbolDictionary.size());
+	}
+
+	/**
+	 * Tests trades and stocks built for the same symbol get the same id and
+	 * share the same String
+	 */
+	@Test
+	public void testBuildersUseGlobalIds() {
+		Trade trade = new TradeBuilder()
+				.setStockSymbol(new String("GIN"))
+				.setTradeTime(LocalDateTime.now())
+				.setQuantityShares(8L)
+				.setTradePrice(100)
+				.setBuyNotSell(true).validate().build();
+		Stock stock = new StockBuilder()
+				.setStockSymbol(new String("GIN"))
+				.setStockType("Preferred")
+				.setLastDividend(8)
+				.setFixedDividend("2")
+				.setParValue(100)
+				.validate()
+				.build();
+
+		assertEquals(SymbolDictionary.global().findId("GIN"), trade.getStockSymbolId());
+		assertEquals(trade.getStockSymbolId(), stock.getStockSymbolId());
+		assertSame(trade.getStockSymbol(), stock.getStockSymbol());
+		assertEquals(trade, new Trade(trade.getStockSymbolId(), 8L, true, trade.getTradeTimeNanos(), 100));
+	}
+
+	/**
+	 * Tests the array grows to hold ids past its first size and only creates
+	 * each value once
+	 */
+	@Test
+	public void testSymbolArray() {
+		SymbolArray<List<String>> symbolArray = new SymbolArray<>();
+		for (int i = 0; i < 100; i++) {
+			int stockSymbolId = symbolDictionary.getId("S" + i);
+			symbolArray.computeIfAbsent(stockSymbolId, id -> new ArrayList<>()).add(symbolDictionary.getSymbol(stockSymbolId));
+		}
+		symbolArray.computeIfAbsent(symbolDictionary.getId("S50"), id -> new ArrayList<>()).add("again");
+
+		assertEquals(100, symbolArray.size());
+		assertEquals(2, symbolArray.get(symbolDictionary.findId("S50")).size());
+		assertNull(symbolArray.get(100));
+		assertNull(symbolArray.get(-1));
+		List<String> first = new ArrayList<>();
+		symbolArray.forEach(values -> first.add(values.get(0)));
+		assertEquals("S0", first.get(0));
+		assertEquals("S99", first.get(99));
+	}
+}
@@ -2,7 +2,10 @@ package uk.co.abank.stocks.dataobjects;
 
 import static org.junit.Assert.*;
 
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 
 import org.junit.After;
 import org.junit.Before;
@@ -144,4 +147,33 @@ public class TestTradeBuilder {
 		
 	}
 
+	/**
+	 * Tests a trade without a trade time gets it from the clock, and a trade
+	 * time set as a LocalDateTime is the same instant as the nanoseconds
+	 */
+	@Test
+	public void testTradeTimeFromClock() {
+		Instant instant = Instant.parse("2016-03-01T10:15:30.123456789Z");
+		Trade trade = new TradeBuilder(Clock.fixed(instant, ZoneOffset.UTC))
+				.setStockSymbol("GIN")
+				.setQuantityShares(8)
+				.setTradePrice(100)
+				.setBuyNotSell(true)
+				.validate()
+				.build();
+		
+		assertEquals(TradeTimes.toEpochNanos(instant), trade.getTradeTimeNanos());
+		assertEquals(1456827330123456789L, trade.getTradeTimeNanos());
+		assertEquals(TradeTimes.toTradeTime(instant), trade.getTradeTime());
+		
+		Trade sameTime = tradeBuilder.setStockSymbol("GIN")
+				.setTradeTime(TradeTimes.toTradeTime(instant))
+				.setQuantityShares(8)
+				.setTradePrice(100)
+				.setBuyNotSell(true)
+				.validate()
+				.build();
+		assertEquals(trade, sameTime);
+	}
+
 }
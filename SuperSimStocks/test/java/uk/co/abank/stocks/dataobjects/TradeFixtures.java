@@ -0,0 +1,74 @@
+package uk.co.abank.stocks.dataobjects;
+
+import java.time.LocalDateTime;
+
+/**
+ * Builds the trades used by the tests with the {@link TradeBuilder}, so each
+ * test only gives the fields it cares about
+ * @author JohnM
+ *
+ */
+public final class TradeFixtures {
+
+	private TradeFixtures() {
+	}
+
+	/**
+	 * A buy traded now
+	 * @param stockSymbol
+	 * @param quantity
+	 * @param tradePrice
+	 * @return the validated trade
+	 */
+	public static Trade buildTrade(String stockSymbol, long quantity, long tradePrice) {
+		return buildTrade(stockSymbol, LocalDateTime.now(), quantity, tradePrice, true);
+	}
+
+	/**
+	 * A buy traded at the time given
+	 * @param stockSymbol
+	 * @param tradeTime
+	 * @param quantity
+	 * @param tradePrice
+	 * @return the validated trade
+	 */
+	public static Trade buildTrade(String stockSymbol, LocalDateTime tradeTime, long quantity, long tradePrice) {
+		return buildTrade(stockSymbol, tradeTime, quantity, tradePrice, true);
+	}
+
+	/**
+	 *
+	 * @param stockSymbol
+	 * @param tradeTime
+	 * @param quantity
+	 * @param tradePrice
+	 * @param buyNotSell
+	 * @return the validated trade
+	 */
+	public static Trade buildTrade(String stockSymbol, LocalDateTime tradeTime, long quantity, long tradePrice,
+			boolean buyNotSell) {
+		return new TradeBuilder()
+				.setStockSymbol(stockSymbol)
+				.setTradeTime(tradeTime)
+				.setQuantityShares(quantity)
+				.setTradePrice(tradePrice)
+				.setBuyNotSell(buyNotSell).validate().build();
+	}
+
+	/**
+	 * A buy traded at the epoch nanoseconds given
+	 * @param stockSymbol
+	 * @param tradeTimeNanos
+	 * @param quantity
+	 * @param tradePrice
+	 * @return the validated trade
+	 */
+	public static Trade buildTrade(String stockSymbol, long tradeTimeNanos, long quantity, long tradePrice) {
+		return new TradeBuilder()
+				.setStockSymbol(stockSymbol)
+				.setTradeTimeNanos(tradeTimeNanos)
+				.setQuantityShares(quantity)
+				.setTradePrice(tradePrice)
+				.setBuyNotSell(true).validate().build();
+	}
+}
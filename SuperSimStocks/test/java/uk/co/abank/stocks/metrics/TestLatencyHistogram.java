@@ -0,0 +1,93 @@
+package uk.co.abank.stocks.metrics;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit tests for the buckets and percentiles of the {@link LatencyHistogram}
+ * @author JohnM
+ *
+ */
+public class TestLatencyHistogram {
+
+	LatencyHistogram latencyHistogram;
+
+	@Before
+	public void before() throws Exception {
+		latencyHistogram = new LatencyHistogram();
+	}
+
+	@After
+	public void after() throws Exception {
+		latencyHistogram = null;
+		assertNull(latencyHistogram);
+	}
+
+	/**
+	 * Tests every value goes in a bucket that holds it and the bucket is
+	 * no wider than 1/64 of the value
+	 */
+	@Test
+	public void testBuckets() {
+		long[] values = {0L, 1L, 127L, 128L, 129L, 1000L, 123_456_789L, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+		for (long value : values) {
+			int index = LatencyHistogram.bucketIndex(value);
+			assertTrue(index < LatencyHistogram.BUCKET_COUNT);
+			assertTrue(LatencyHistogram.highestValue(index) >= value);
+			assertTrue(index == 0 || LatencyHistogram.highestValue(index - 1) < value);
+			assertTrue(LatencyHistogram.highestValue(index) - value <= value / 64);
+		}
+	}
+
+	/**
+	 * Tests the percentiles of the values 1 to 10000
+	 */
+	@Test
+	public void testPercentiles() {
+		for (long value = 1; value <= 10_000; value++) {
+			latencyHistogram.record(value);
+		}
+
+		HistogramSnapshot snapshot = latencyHistogram.snapshot();
+
+		assertEquals(10_000L, snapshot.getCount());
+		assertEquals(5000.5D, snapshot.getMean(), 0.00001D);
+		assertEquals(10_000L, snapshot.getMax());
+		assertEquals(5000D, snapshot.getP50(), 5000D / 64);
+		assertEquals(9000D, snapshot.getP90(), 9000D / 64);
+		assertEquals(9900D, snapshot.getP99(), 9900D / 64);
+		assertTrue(snapshot.getP999() <= snapshot.getMax());
+	}
+
+	/**
+	 * Tests no values are lost recording from a number of threads
+	 */
+	@Test
+	public void testConcurrentRecording() throws Exception {
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int thread = 0; thread < 4; thread++) {
+			futures.add(executorService.submit(() -> {
+				for (int i = 0; i < 100_000; i++) {
+					latencyHistogram.record(i % 1000);
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executorService.shutdown();
+
+		assertEquals(400_000L, latencyHistogram.snapshot().getCount());
+		assertEquals(999L, latencyHistogram.snapshot().getMax());
+	}
+}
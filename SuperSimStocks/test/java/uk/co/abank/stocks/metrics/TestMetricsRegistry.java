@@ -0,0 +1,114 @@
+package uk.co.abank.stocks.metrics;
+
+import static org.junit.Assert.*;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.abank.stocks.calculators.StockCalculator;
+import uk.co.abank.stocks.calculators.TickerCalculator;
+import uk.co.abank.stocks.dataobjects.Stock;
+import uk.co.abank.stocks.dataobjects.StockBuilder;
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.dataobjects.TradeBuilder;
+import uk.co.abank.stocks.services.TradeService;
+import uk.co.abank.stocks.services.memory.TradeServiceMemoryImpl;
+
+/**
+ * JUnit tests for the instrumented trade service and calculators recording
+ * into the {@link MetricsRegistry} and the dumps of the snapshot
+ * @author JohnM
+ *
+ */
+public class TestMetricsRegistry {
+
+	MetricsRegistry metricsRegistry;
+
+	@Before
+	public void before() throws Exception {
+		metricsRegistry = new MetricsRegistry();
+	}
+
+	@After
+	public void after() throws Exception {
+		metricsRegistry = null;
+		assertNull(metricsRegistry);
+	}
+
+	/**
+	 * Tests the calls are counted and timed, and the results are the same as
+	 * the objects that aren't instrumented
+	 */
+	@Test
+	public void testInstrumented() {
+		TradeService tradeService = new InstrumentedTradeService(new TradeServiceMemoryImpl(), metricsRegistry);
+		StockCalculator stockCalculator = new InstrumentedStockCalculator(Clock.systemUTC(), 15, metricsRegistry);
+		TickerCalculator tickerCalculator = new InstrumentedTickerCalculator(metricsRegistry);
+		for (int i = 0; i < 10; i++) {
+			tradeService.recordTrade(new TradeBuilder()
+					.setStockSymbol("GIN")
+					.setTradeTime(LocalDateTime.now())
+					.setQuantityShares(8L)
+					.setTradePrice(100 + i)
+					.setBuyNotSell(true).validate().build());
+		}
+		List<Trade> trades = tradeService.getTrades("GIN");
+		Stock stock = new StockBuilder()
+				.setStockSymbol("GIN")
+				.setStockType("Preferred")
+				.setLastDividend(8)
+				.setFixedDividend("2")
+				.setParValue(100)
+				.validate()
+				.build();
+
+		assertEquals(new StockCalculator().calculateStockPrice(trades), stockCalculator.calculateStockPrice(trades));
+		stockCalculator.calculateStockPrices(trades);
+		tickerCalculator.calculateDividendYield(stock, 100);
+		tickerCalculator.calculatePERatioFixed(stock, 100);
+
+		MetricsSnapshot snapshot = metricsRegistry.snapshot();
+		assertEquals(10L, snapshot.getCounter("tradeService.recorded"));
+		assertEquals(0L, snapshot.getCounter("tradeService.notRecorded"));
+		assertEquals(10L, snapshot.getHistogram("tradeService.recordTrade").getCount());
+		assertEquals(1L, snapshot.getHistogram("stockCalculator.calculateStockPrice").getCount());
+		assertEquals(1L, snapshot.getHistogram("stockCalculator.calculateStockPrices").getCount());
+		assertEquals(10L, snapshot.getHistogram("stockCalculator.tradesScanned").getMax());
+		assertEquals(1L, snapshot.getHistogram("tickerCalculator.calculateDividendYield").getCount());
+		assertEquals(1L, snapshot.getHistogram("tickerCalculator.calculatePERatio").getCount());
+	}
+
+	/**
+	 * Tests the plain text and JSON dumps
+	 */
+	@Test
+	public void testDump() {
+		metricsRegistry.counter("trades").add(3);
+		metricsRegistry.histogram("latency").record(100);
+
+		MetricsSnapshot snapshot = metricsRegistry.snapshot();
+
+		assertEquals("trades 3\nlatency count=1 mean=100.0 p50=100 p90=100 p99=100 p999=100 max=100\n",
+				snapshot.toText());
+		assertEquals("{\"counters\":{\"trades\":3},\"histograms\":{\"latency\":{\"count\":1,\"mean\":100.0,"
+				+ "\"p50\":100,\"p90\":100,\"p99\":100,\"p999\":100,\"max\":100}}}", snapshot.toJson());
+	}
+
+	/**
+	 * Tests nothing is wrapped when the metrics are switched off, as they are for the tests
+	 */
+	@Test
+	public void testSwitchedOff() {
+		TradeService tradeService = new TradeServiceMemoryImpl();
+
+		assertFalse(Metrics.ENABLED);
+		assertSame(tradeService, Metrics.instrument(tradeService));
+		assertEquals(StockCalculator.class, Metrics.stockCalculator().getClass());
+		assertEquals(TickerCalculator.class, Metrics.tickerCalculator().getClass());
+	}
+}
@@ -0,0 +1,195 @@
+package uk.co.abank.stocks.pipeline;
+
+import static org.junit.Assert.*;
+import static uk.co.abank.stocks.dataobjects.TradeFixtures.buildTrade;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.abank.stocks.calculators.AllShareIndexEngine;
+import uk.co.abank.stocks.calculators.SlidingWindowStockPriceEngine;
+import uk.co.abank.stocks.calculators.StockCalculator;
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.services.memory.TradeServicePartitionedImpl;
+
+/**
+ * JUnit tests for the {@link TradePipeline} running the store, stock price
+ * and All Share Index stages on their own threads
+ * @author JohnM
+ *
+ */
+public class TestTradePipeline {
+
+	private static final String[] STOCK_SYMBOLS = {"TEA", "POP", "ALE", "GIN", "JOE"};
+
+	TradeServicePartitionedImpl tradeService;
+	TradePipeline tradePipeline;
+
+	@Before
+	public void before() throws Exception {
+		tradeService = new TradeServicePartitionedImpl();
+	}
+
+	@After
+	public void after() throws Exception {
+		if (tradePipeline != null)
+			tradePipeline.close();
+		tradePipeline = null;
+		assertNull(tradePipeline);
+	}
+
+	/**
+	 * Records trades from two threads through the validation, store, stock price and
+	 * index stages, once drained the store, prices and index must match working them
+	 * out from the trades
+	 */
+	@Test
+	public void testStages() throws Exception {
+		SlidingWindowStockPriceEngine stockPriceEngine = new SlidingWindowStockPriceEngine(Clock.systemUTC(), 15);
+		AllShareIndexEngine allShareIndexEngine = new AllShareIndexEngine();
+		tradePipeline = new TradePipeline(tradeService, 1 << 10, WaitStrategy.SLEEPING)
+				.addStage("vwap", stockPriceEngine)
+				.addStage("index", (tradeEvent, sequence, endOfBatch) -> {
+					if (tradeEvent.isRecorded()) {
+						int stockSymbolId = tradeEvent.getTrade().getStockSymbolId();
+						allShareIndexEngine.updatePrice(stockSymbolId, stockPriceEngine.getStockPrice(stockSymbolId));
+					}
+				});
+		tradePipeline.start();
+
+		Thread[] producers = new Thread[2];
+		for (int producer = 0; producer < producers.length; producer++) {
+			Random random = new Random(producer);
+			producers[producer] = new Thread(() -> {
+				for (int i = 0; i < 5000; i++) {
+					Trade trade = buildTrade(STOCK_SYMBOLS[random.nextInt(STOCK_SYMBOLS.length)],
+							1 + random.nextInt(100), 1 + random.nextInt(500));
+					while (!tradePipeline.recordTrade(trade)) {
+						Thread.yield();
+					}
+				}
+			});
+			producers[producer].start();
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+
+		assertTrue(tradePipeline.awaitDrained(10, TimeUnit.SECONDS));
+		assertEquals(10_000, tradePipeline.getTrades().size());
+		StockCalculator stockCalculator = new StockCalculator();
+		List<BigDecimal> stockPrices = new ArrayList<>();
+		for (String stockSymbol : STOCK_SYMBOLS) {
+			BigDecimal stockPrice = stockCalculator.calculateStockPrice(tradePipeline.getTrades(stockSymbol));
+			assertEquals(stockPrice.doubleValue(), stockPriceEngine.getStockPrice(stockSymbol), 0.00001D);
+			stockPrices.add(stockPrice);
+		}
+		assertEquals(stockCalculator.calculateAllShareIndex(stockPrices).doubleValue(),
+				allShareIndexEngine.getIndex(), 0.00001D);
+		for (long lag : tradePipeline.getLags().values()) {
+			assertEquals(0L, lag);
+		}
+		assertEquals(0L, tradePipeline.getFailures());
+	}
+
+	/**
+	 * Tests recording doesn't wait for a slow stage, once the ring is full the
+	 * trades are rejected and the lag shows which stage is behind
+	 */
+	@Test
+	public void testFullRingRejects() throws Exception {
+		CountDownLatch slowStage = new CountDownLatch(1);
+		tradePipeline = new TradePipeline(tradeService, 8, WaitStrategy.YIELDING)
+				.addStage("slow", (tradeEvent, sequence, endOfBatch) -> {
+					try {
+						slowStage.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+		tradePipeline.start();
+
+		int published = 0;
+		for (int i = 0; i < 20; i++) {
+			if (tradePipeline.recordTrade(buildTrade("GIN", 10, 100)))
+				published++;
+		}
+
+		assertEquals(8, published);
+		assertEquals(12L, tradePipeline.getRejected());
+		assertTrue(tradePipeline.getLags().get("slow") > 0L);
+		slowStage.countDown();
+		assertTrue(tradePipeline.awaitDrained(10, TimeUnit.SECONDS));
+		assertEquals(8, tradePipeline.getTrades("GIN").size());
+	}
+
+	/**
+	 * Tests a trade the validation stage stops isn't stored or passed on
+	 */
+	@Test
+	public void testInvalidTradeNotStored() throws Exception {
+		List<Trade> passedOn = new ArrayList<>();
+		tradePipeline = new TradePipeline(tradeService, 8, WaitStrategy.BUSY_SPIN)
+				.addStage("listener", passedOn::add);
+		tradePipeline.start();
+
+		tradePipeline.recordTrade(new Trade("GIN", 0L, true, LocalDateTime.now(), 100));
+		tradePipeline.recordTrade(buildTrade("GIN", 10, 100));
+
+		assertTrue(tradePipeline.awaitDrained(10, TimeUnit.SECONDS));
+		assertEquals(1L, tradePipeline.getInvalid());
+		assertEquals(1, tradePipeline.getTrades().size());
+		assertEquals(tradePipeline.getTrades(), passedOn);
+	}
+
+	/**
+	 * Tests every trade accepted while the pipeline is being closed is still stored,
+	 * the producers keep recording right up to and after the close
+	 */
+	@Test
+	public void testCloseKeepsAcceptedTrades() throws Exception {
+		tradePipeline = new TradePipeline(tradeService, 1 << 10, WaitStrategy.YIELDING);
+		tradePipeline.start();
+
+		AtomicLong accepted = new AtomicLong();
+		CountDownLatch started = new CountDownLatch(4);
+		Thread[] producers = new Thread[4];
+		for (int producer = 0; producer < producers.length; producer++) {
+			producers[producer] = new Thread(() -> {
+				started.countDown();
+				for (int i = 0; i < 50_000; i++) {
+					if (tradePipeline.recordTrade(buildTrade("GIN", 10, 100)))
+						accepted.incrementAndGet();
+				}
+			});
+			producers[producer].start();
+		}
+		started.await();
+		tradePipeline.close();
+		for (Thread producer : producers) {
+			producer.join();
+		}
+
+		assertTrue(accepted.get() > 0L);
+		assertEquals(accepted.get(), tradePipeline.getTrades().size());
+	}
+
+	/**
+	 * Tests a ring that isn't a power of two throws an {@link IllegalArgumentException}
+	 */
+	@Test (expected = IllegalArgumentException.class)
+	public void testBufferSizeNotPowerOfTwo() {
+		new TradeRingBuffer(1000);
+	}
+}
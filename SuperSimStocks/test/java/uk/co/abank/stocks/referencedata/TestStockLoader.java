@@ -0,0 +1,169 @@
+package uk.co.abank.stocks.referencedata;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import uk.co.abank.stocks.dataobjects.Stock;
+import uk.co.abank.stocks.dataobjects.StockBuilder;
+
+/**
+ * JUnit tests for the {@link StockLoader} loading CSV and binary stock files
+ * @author JohnM
+ *
+ */
+public class TestStockLoader {
+
+	private static final String GBCE_CSV = "Stock Symbol,Type,Last Dividend,Fixed Dividend,Par Value\r\n"
+			+ "TEA,Common,0,,100\r\n"
+			+ "POP,Common,8,,100\r\n"
+			+ "ALE,Common,23,,60\r\n"
+			+ "GIN,Preferred,8,2,100\r\n"
+			+ "JOE,Common,13,,250";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	StockLoader stockLoader;
+	List<Stock> stocks;
+	List<long[]> lineErrors;
+
+	@Before
+	public void before() throws Exception {
+		stockLoader = new StockLoader();
+		stocks = new ArrayList<>();
+		lineErrors = new ArrayList<>();
+	}
+
+	@After
+	public void after() throws Exception {
+		stockLoader = null;
+		assertNull(stockLoader);
+	}
+
+	/**
+	 * Tests the GBCE stocks are the same as the ones the {@link StockBuilder} builds
+	 */
+	@Test
+	public void testLoadCsv() {
+		assertEquals(5, stockLoader.loadCsv(csv(GBCE_CSV), true, stocks::add, this::lineError));
+
+		assertTrue(lineErrors.isEmpty());
+		assertEquals(new StockBuilder()
+				.setStockSymbol("GIN")
+				.setStockType("Preferred")
+				.setLastDividend(8)
+				.setFixedDividend("2")
+				.setParValue(100)
+				.validate()
+				.build(), stocks.get(3));
+		assertEquals(250L, stocks.get(4).getParValue());
+	}
+
+	/**
+	 * Tests each bad line is reported with its line number and errors, and the
+	 * good lines are still loaded
+	 */
+	@Test
+	public void testLineErrors() {
+		String csv = "TEA,Common,0,,100\n"
+				+ ",Common,0,,100\n"
+				+ "POP,Ordinary,8,,100\n"
+				+ "GIN,Preferred,8,2%,100\n"
+				+ "ALE,Common,x,,\n"
+				+ "JOE,Common,13\n"
+				+ "\n"
+				+ "BIG,Preferred,8,2,9223372036854775807\n"
+				+ "XXX,Common,1,,99999999999999999999\n"
+				+ "BEER,Common,1,,100\n";
+
+		assertEquals(2, stockLoader.loadCsv(csv(csv), false, stocks::add, this::lineError));
+
+		assertEquals("BEER", stocks.get(1).getStockSymbol());
+		assertEquals(7, lineErrors.size());
+		assertLineError(0, 2, StockLoader.ERROR_STOCK_SYMBOL);
+		assertLineError(1, 3, StockLoader.ERROR_STOCK_TYPE);
+		assertLineError(2, 4, StockLoader.ERROR_FIXED_DIVIDEND);
+		assertLineError(3, 5, StockLoader.ERROR_LAST_DIVIDEND | StockLoader.ERROR_PAR_VALUE);
+		assertLineError(4, 6, StockLoader.ERROR_FIELD_COUNT);
+		assertLineError(5, 8, StockLoader.ERROR_DIVIDEND_OVERFLOW);
+		assertLineError(6, 9, StockLoader.ERROR_PAR_VALUE);
+		assertEquals("Last dividend is not a number, Par value is not a number",
+				StockLoader.describe(StockLoader.ERROR_LAST_DIVIDEND | StockLoader.ERROR_PAR_VALUE));
+	}
+
+	/**
+	 * Tests the stocks written in the binary form are read back the same,
+	 * from a memory mapped file
+	 */
+	@Test
+	public void testBinaryRoundTrip() throws Exception {
+		stockLoader.loadCsv(csv(GBCE_CSV), true, stocks::add, this::lineError);
+		ByteBuffer binary = ByteBuffer.allocate(StockLoader.binarySize(stocks));
+		StockLoader.writeBinary(stocks, binary);
+		assertFalse(binary.hasRemaining());
+		Path binaryFile = temporaryFolder.newFile("stocks.bin").toPath();
+		Files.write(binaryFile, binary.array());
+
+		List<Stock> loaded = new ArrayList<>();
+		assertEquals(5, stockLoader.loadBinary(binaryFile, loaded::add, this::lineError));
+
+		assertEquals(stocks, loaded);
+		assertTrue(lineErrors.isEmpty());
+	}
+
+	/**
+	 * Tests a binary file cut short reports the record it stopped at
+	 */
+	@Test
+	public void testBinaryTruncated() {
+		stockLoader.loadCsv(csv(GBCE_CSV), true, stocks::add, this::lineError);
+		ByteBuffer binary = ByteBuffer.allocate(StockLoader.binarySize(stocks));
+		StockLoader.writeBinary(stocks, binary);
+		binary.flip();
+		binary.limit(binary.limit() - 1);
+
+		assertEquals(4, stockLoader.loadBinary(binary, new ArrayList<Stock>()::add, this::lineError));
+		assertLineError(0, 5, StockLoader.ERROR_TRUNCATED);
+	}
+
+	/**
+	 * Tests a memory mapped CSV file can be loaded into the {@link StockRegistry}
+	 */
+	@Test
+	public void testLoadCsvFileIntoRegistry() throws Exception {
+		Path csvFile = temporaryFolder.newFile("stocks.csv").toPath();
+		Files.write(csvFile, GBCE_CSV.getBytes(StandardCharsets.US_ASCII));
+
+		stockLoader.loadCsv(csvFile, true, stocks::add, this::lineError);
+		StockRegistry stockRegistry = new StockRegistry();
+		stockRegistry.loadStocks(stocks);
+
+		assertEquals(5, stockRegistry.size());
+		assertEquals(23L, stockRegistry.getStock("ALE").getLastDividend());
+	}
+
+	private void lineError(long lineNumber, int errors) {
+		lineErrors.add(new long[] {lineNumber, errors});
+	}
+
+	private void assertLineError(int index, long lineNumber, int errors) {
+		assertEquals(lineNumber, lineErrors.get(index)[0]);
+		assertEquals(StockLoader.describe((int)lineErrors.get(index)[1]), errors, lineErrors.get(index)[1]);
+	}
+
+	private static ByteBuffer csv(String csv) {
+		return ByteBuffer.wrap(csv.getBytes(StandardCharsets.US_ASCII));
+	}
+}
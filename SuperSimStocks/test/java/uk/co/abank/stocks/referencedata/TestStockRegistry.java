@@ -0,0 +1,115 @@
+package uk.co.abank.stocks.referencedata;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.abank.stocks.dataobjects.Stock;
+import uk.co.abank.stocks.dataobjects.StockBuilder;
+
+/**
+ * JUnit tests for the {@link StockRegistry} loading and reloading the stocks
+ * @author JohnM
+ *
+ */
+public class TestStockRegistry {
+
+	StockRegistry stockRegistry;
+
+	@Before
+	public void before() throws Exception {
+		stockRegistry = new StockRegistry();
+	}
+
+	@After
+	public void after() throws Exception {
+		stockRegistry = null;
+		assertNull(stockRegistry);
+	}
+
+	/**
+	 * Tests the GBCE stocks are loaded with their dividends worked out
+	 */
+	@Test
+	public void testLoad() {
+		assertEquals(5, stockRegistry.load(Arrays.asList(
+				stockBuilder("TEA", "Common", 0, ""),
+				stockBuilder("POP", "Common", 8, ""),
+				stockBuilder("ALE", "Common", 23, ""),
+				stockBuilder("GIN", "Preferred", 8, "2"),
+				stockBuilder("JOE", "Common", 13, ""))));
+
+		Stock gin = stockRegistry.getStock("GIN");
+		assertEquals(200L, gin.getDividendNumerator());
+		assertEquals(100L, gin.getDividendDenominator());
+		assertFalse(gin.isDividendZero());
+		assertTrue(stockRegistry.getStock("TEA").isDividendZero());
+		assertSame(gin, stockRegistry.getStock("GIN"));
+	}
+
+	/**
+	 * Tests a reload replaces all the stocks but a map already handed out
+	 * still has the old ones
+	 */
+	@Test
+	public void testReload() {
+		stockRegistry.load(Arrays.asList(stockBuilder("TEA", "Common", 0, ""), stockBuilder("POP", "Common", 8, "")));
+		Map<String, Stock> before = stockRegistry.getStocks();
+
+		stockRegistry.load(Arrays.asList(stockBuilder("POP", "Common", 9, "")));
+
+		assertEquals(1, stockRegistry.size());
+		assertFalse(stockRegistry.hasStock("TEA"));
+		assertEquals(9L, stockRegistry.getStock("POP").getLastDividend());
+		assertEquals(2, before.size());
+		assertEquals(8L, before.get("POP").getLastDividend());
+	}
+
+	/**
+	 * Tests an invalid stock stops the load and the old stocks are kept
+	 */
+	@Test
+	public void testInvalidKeepsOld() {
+		stockRegistry.load(Arrays.asList(stockBuilder("TEA", "Common", 0, "")));
+
+		try {
+			stockRegistry.load(Arrays.asList(stockBuilder("POP", "Common", 8, ""), stockBuilder("GIN", "Preferred", 8, "x")));
+			fail("Invalid stock loaded");
+		} catch (IllegalArgumentException iae) {
+			// expected
+		}
+
+		assertEquals(1, stockRegistry.size());
+		assertTrue(stockRegistry.hasStock("TEA"));
+	}
+
+	/**
+	 * Tests the same symbol twice throws an {@link IllegalArgumentException}
+	 */
+	@Test (expected = IllegalArgumentException.class)
+	public void testDuplicateSymbol() {
+		stockRegistry.load(Arrays.asList(stockBuilder("TEA", "Common", 0, ""), stockBuilder("TEA", "Common", 1, "")));
+	}
+
+	/**
+	 * Tests an unknown stock throws an {@link IllegalArgumentException}
+	 */
+	@Test (expected = IllegalArgumentException.class)
+	public void testUnknownStock() {
+		stockRegistry.getStock("TEA");
+	}
+
+	private StockBuilder stockBuilder(String stockSymbol, String stockType, long lastDividend, String fixedDividend) {
+		return new StockBuilder()
+				.setStockSymbol(stockSymbol)
+				.setStockType(stockType)
+				.setLastDividend(lastDividend)
+				.setFixedDividend(fixedDividend)
+				.setParValue(100);
+	}
+}
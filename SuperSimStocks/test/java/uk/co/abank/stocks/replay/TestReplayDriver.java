@@ -0,0 +1,133 @@
+package uk.co.abank.stocks.replay;
+
+import static org.junit.Assert.*;
+import static uk.co.abank.stocks.dataobjects.TradeFixtures.buildTrade;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import uk.co.abank.stocks.calculators.SlidingWindowStockPriceEngine;
+import uk.co.abank.stocks.calculators.StockCalculator;
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.dataobjects.TradeTimes;
+import uk.co.abank.stocks.services.ListeningTradeService;
+import uk.co.abank.stocks.services.journal.TradeServiceJournalImpl;
+import uk.co.abank.stocks.services.memory.TradeServicePartitionedImpl;
+
+/**
+ * Tests a day of trades recorded in a journal replayed through the
+ * {@link ReplayDriver} gives the prices the calculators would have given at the time
+ * @author JohnM
+ *
+ */
+public class TestReplayDriver {
+
+	private static final long OPEN_NANOS = TradeTimes.toEpochNanos(Instant.parse("2016-03-01T08:00:00Z"));
+	private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+	private static final int TRADING_SECONDS = 8 * 60 * 60;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	TradeServiceJournalImpl journal;
+
+	@Before
+	public void before() throws Exception {
+		journal = new TradeServiceJournalImpl(temporaryFolder.newFolder("journal").toPath(), 1 << 16);
+		for (int second = 0; second < TRADING_SECONDS; second++) {
+			journal.recordTrade(buildTrade("GIN", OPEN_NANOS + second * SECOND_NANOS, 1 + second % 10, 100 + second % 50));
+			journal.recordTrade(buildTrade("TEA", OPEN_NANOS + second * SECOND_NANOS + 1, 5, 200 + second % 7));
+		}
+	}
+
+	@After
+	public void after() throws Exception {
+		journal.close();
+		journal = null;
+		assertNull(journal);
+	}
+
+	/**
+	 * Replays the day, every 15 minutes the stock price from the calculator on the
+	 * replay clock must be the price of the trades in the 15 minutes before
+	 */
+	@Test
+	public void testReplayDay() {
+		List<Trade> recorded = journal.getTrades();
+		ReplayClock replayClock = new ReplayClock(OPEN_NANOS);
+		TradeServicePartitionedImpl tradeService = new TradeServicePartitionedImpl();
+		ListeningTradeService listeningTradeService = new ListeningTradeService(tradeService);
+		SlidingWindowStockPriceEngine stockPriceEngine = new SlidingWindowStockPriceEngine(replayClock, 15);
+		listeningTradeService.addTradeListener(stockPriceEngine);
+		StockCalculator stockCalculator = new StockCalculator(replayClock, 15);
+
+		List<Long> sampleTimes = new ArrayList<>();
+		ReplayDriver replayDriver = new ReplayDriver(replayClock, listeningTradeService);
+		replayDriver.addSampler(TimeUnit.MINUTES.toNanos(15), sampleNanos -> {
+			assertEquals(sampleNanos, replayClock.nanos());
+			double expected = expectedStockPrice(recorded, "GIN", sampleNanos);
+			double stockPrice = stockCalculator.calculateStockPriceInWindow(
+					tradeService.getTradesSince("GIN", stockCalculator.getWindowStart())).doubleValue();
+			assertEquals(expected, stockPrice, 0.00001D);
+			assertEquals(expected, stockPriceEngine.getStockPrice("GIN"), 0.00001D);
+			sampleTimes.add(sampleNanos);
+		});
+
+		assertEquals(2L * TRADING_SECONDS, replayDriver.replay(recorded));
+		replayDriver.finish(OPEN_NANOS + TRADING_SECONDS * SECOND_NANOS);
+
+		assertEquals(32, sampleTimes.size());
+		assertEquals(OPEN_NANOS + TimeUnit.HOURS.toNanos(8), (long)sampleTimes.get(31));
+		assertEquals(Instant.parse("2016-03-01T16:00:00Z"), replayClock.instant());
+	}
+
+	/**
+	 * Tests the clock doesn't go backwards for a late trade
+	 */
+	@Test
+	public void testClockNotMovedBack() {
+		ReplayClock replayClock = new ReplayClock(OPEN_NANOS);
+		ReplayDriver replayDriver = new ReplayDriver(replayClock, new TradeServicePartitionedImpl());
+		List<Trade> trades = new ArrayList<>();
+		trades.add(buildTrade("GIN", OPEN_NANOS + 10 * SECOND_NANOS, 1, 100));
+		trades.add(buildTrade("GIN", OPEN_NANOS + 5 * SECOND_NANOS, 1, 100));
+
+		replayDriver.replay(trades);
+
+		assertEquals(OPEN_NANOS + 10 * SECOND_NANOS, replayClock.nanos());
+		assertEquals(Instant.parse("2016-03-01T08:00:10Z"), replayClock.instant());
+		assertEquals(Instant.parse("2016-03-01T07:45:10Z"),
+				new StockCalculator(replayClock, 15).getWindowStart().truncatedTo(ChronoUnit.SECONDS));
+	}
+
+	/**
+	 * Tests a window of zero minutes throws an {@link IllegalArgumentException}
+	 */
+	@Test (expected = IllegalArgumentException.class)
+	public void testZeroWindow() {
+		new StockCalculator(new ReplayClock(OPEN_NANOS), 0);
+	}
+
+	private static double expectedStockPrice(List<Trade> trades, String stockSymbol, long nowNanos) {
+		long windowStartNanos = nowNanos - TimeUnit.MINUTES.toNanos(15);
+		long sumQuantity = 0;
+		long sumTradePriceQuantity = 0;
+		for (Trade trade : trades) {
+			if (trade.getStockSymbol().equals(stockSymbol) && trade.getTradeTimeNanos() > windowStartNanos
+					&& trade.getTradeTimeNanos() <= nowNanos) {
+				sumQuantity += trade.getQuantityShares();
+				sumTradePriceQuantity += trade.getQuantityShares() * trade.getTradePrice();
+			}
+		}
+		return (double)sumTradePriceQuantity / sumQuantity;
+	}
+}
@@ -0,0 +1,182 @@
+package uk.co.abank.stocks.services;
+
+import static org.junit.Assert.*;
+import static uk.co.abank.stocks.dataobjects.TradeFixtures.buildTrade;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.services.async.AsyncTradeServiceAdapter;
+import uk.co.abank.stocks.services.async.Flow;
+import uk.co.abank.stocks.services.memory.TradeServiceMemoryImpl;
+
+/**
+ * JUnit tests for the {@link AsyncTradeServiceAdapter} over the {@link TradeServiceMemoryImpl},
+ * the bounded queue and the subscribers asking for trades
+ * @author JohnM
+ *
+ */
+public class TestAsyncTradeService {
+
+	AsyncTradeServiceAdapter asyncTradeService;
+
+	@Before
+	public void before() throws Exception {
+		asyncTradeService = new AsyncTradeServiceAdapter();
+	}
+
+	@After
+	public void after() throws Exception {
+		asyncTradeService.close();
+		asyncTradeService = null;
+		assertNull(asyncTradeService);
+	}
+
+	/**
+	 * Tests single and batch recording and the trades read back include them all
+	 */
+	@Test
+	public void testRecordAndRead() throws Exception {
+		assertTrue(asyncTradeService.recordTradeAsync(buildTrade("GIN", 8L, 100)).get(10, TimeUnit.SECONDS));
+		assertEquals(3, (int)asyncTradeService.recordTrades(Arrays.asList(
+				buildTrade("GIN", 24L, 100), buildTrade("TEA", 30L, 100), buildTrade("GIN", 30L, 100))).get(10, TimeUnit.SECONDS));
+
+		assertEquals(4, asyncTradeService.getTradesAsync().get(10, TimeUnit.SECONDS).size());
+		assertEquals(3, asyncTradeService.getTradesAsync("GIN").get(10, TimeUnit.SECONDS).size());
+	}
+
+	/**
+	 * Tests a call is turned away straight away when the queue is full rather than waiting
+	 */
+	@Test
+	public void testQueueFullRejected() throws Exception {
+		CountDownLatch storeBlocked = new CountDownLatch(1);
+		TradeServiceMemoryImpl slowTradeService = new TradeServiceMemoryImpl() {
+			@Override
+			public boolean recordTrade(Trade trade) {
+				try {
+					storeBlocked.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.recordTrade(trade);
+			}
+		};
+		asyncTradeService.close();
+		asyncTradeService = new AsyncTradeServiceAdapter(slowTradeService, 2, 16, Runnable::run);
+
+		List<CompletableFuture<Boolean>> recorded = new ArrayList<>();
+		recorded.add(asyncTradeService.recordTradeAsync(buildTrade("GIN", 1L, 100)));
+		while (asyncTradeService.remainingCapacity() != 2) {
+			Thread.yield();
+		}
+		recorded.add(asyncTradeService.recordTradeAsync(buildTrade("GIN", 2L, 100)));
+		recorded.add(asyncTradeService.recordTradeAsync(buildTrade("GIN", 3L, 100)));
+		CompletableFuture<Boolean> rejected = asyncTradeService.recordTradeAsync(buildTrade("GIN", 4L, 100));
+
+		assertTrue(rejected.isCompletedExceptionally());
+		try {
+			rejected.get();
+			fail("Trade should have been rejected");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+		assertEquals(1L, asyncTradeService.getRejected());
+		storeBlocked.countDown();
+		for (CompletableFuture<Boolean> future : recorded) {
+			assertTrue(future.get(10, TimeUnit.SECONDS));
+		}
+	}
+
+	/**
+	 * Tests a subscriber is only sent the trades it asks for, then the rest when
+	 * it asks for more, and is completed when the service is closed
+	 */
+	@Test
+	public void testSubscriberRequests() throws Exception {
+		asyncTradeService.close();
+		asyncTradeService = new AsyncTradeServiceAdapter(new TradeServiceMemoryImpl(), 16, 16, Runnable::run);
+		RecordingSubscriber subscriber = new RecordingSubscriber(2);
+		asyncTradeService.trades().subscribe(subscriber);
+
+		for (long quantity = 1; quantity <= 5; quantity++) {
+			asyncTradeService.recordTradeAsync(buildTrade("GIN", quantity, 100)).get(10, TimeUnit.SECONDS);
+		}
+
+		assertEquals(2, subscriber.trades.size());
+		subscriber.subscription.request(3);
+		assertEquals(5, subscriber.trades.size());
+		assertEquals(5L, subscriber.trades.get(4).getQuantityShares());
+		asyncTradeService.close();
+		assertTrue(subscriber.completed.await(10, TimeUnit.SECONDS));
+		assertTrue(subscriber.errors.isEmpty());
+	}
+
+	/**
+	 * Tests a subscriber that doesn't keep up is sent an error and the trades
+	 * are still recorded
+	 */
+	@Test
+	public void testSlowSubscriberOverflows() throws Exception {
+		asyncTradeService.close();
+		asyncTradeService = new AsyncTradeServiceAdapter(new TradeServiceMemoryImpl(), 16, 2, Runnable::run);
+		RecordingSubscriber subscriber = new RecordingSubscriber(0);
+		asyncTradeService.trades().subscribe(subscriber);
+
+		for (long quantity = 1; quantity <= 3; quantity++) {
+			assertTrue(asyncTradeService.recordTradeAsync(buildTrade("GIN", quantity, 100)).get(10, TimeUnit.SECONDS));
+		}
+
+		assertEquals(1, subscriber.errors.size());
+		assertTrue(subscriber.errors.get(0) instanceof IllegalStateException);
+		assertTrue(subscriber.trades.isEmpty());
+		assertEquals(3, asyncTradeService.getTradesAsync().get(10, TimeUnit.SECONDS).size());
+	}
+
+	private static class RecordingSubscriber implements Flow.Subscriber<Trade> {
+
+		private final long initialRequest;
+		private final List<Trade> trades = new CopyOnWriteArrayList<>();
+		private final List<Throwable> errors = new CopyOnWriteArrayList<>();
+		private final CountDownLatch completed = new CountDownLatch(1);
+		private Flow.Subscription subscription;
+
+		RecordingSubscriber(long initialRequest) {
+			this.initialRequest = initialRequest;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			if (initialRequest > 0)
+				subscription.request(initialRequest);
+		}
+
+		@Override
+		public void onNext(Trade trade) {
+			trades.add(trade);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			errors.add(throwable);
+		}
+
+		@Override
+		public void onComplete() {
+			completed.countDown();
+		}
+	}
+}
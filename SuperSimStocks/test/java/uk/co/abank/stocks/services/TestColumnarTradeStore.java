@@ -0,0 +1,117 @@
+package uk.co.abank.stocks.services;
+
+import static org.junit.Assert.*;
+import static uk.co.abank.stocks.dataobjects.TradeFixtures.buildTrade;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.abank.stocks.calculators.StockCalculator;
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.dataobjects.TradeTimes;
+import uk.co.abank.stocks.services.memory.ColumnarTradeStore;
+
+/**
+ * JUnit tests for the {@link ColumnarTradeStore}
+ * @author JohnM
+ *
+ */
+public class TestColumnarTradeStore {
+
+	ColumnarTradeStore tradeStore;
+	LocalDateTime now;
+
+	@Before
+	public void before() throws Exception {
+		tradeStore = new ColumnarTradeStore();
+		now = LocalDateTime.now();
+	}
+
+	@After
+	public void after() throws Exception {
+		tradeStore = null;
+		assertNull(tradeStore);
+	}
+
+	/**
+	 * Tests that the trade created from the columns is the same as the one recorded
+	 */
+	@Test
+	public void testGetTradeSame() {
+		Trade trade = buildTrade("GIN", now, 8L, 100, false);
+
+		assertTrue(tradeStore.recordTrade(trade));
+
+		assertEquals(1, tradeStore.size());
+		assertEquals(trade, tradeStore.getTrades().get(0));
+		assertEquals(TradeTimes.toEpochNanos(now), tradeStore.getTradeTimeNanos(0));
+		assertFalse(tradeStore.isBuyNotSell(0));
+	}
+
+	/**
+	 * Tests the trades are held correctly across more than one chunk
+	 */
+	@Test
+	public void testManyTrades() {
+		int count = 40_000;
+		for (int i = 0; i < count; i++) {
+			tradeStore.recordTrade(buildTrade(i % 3 == 0 ? "TEA" : "GIN", now, i + 1, 100 + i % 5, i % 2 == 0));
+		}
+
+		assertEquals(count, tradeStore.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals(i + 1, tradeStore.getQuantityShares(i));
+			assertEquals(100 + i % 5, tradeStore.getTradePrice(i));
+			assertEquals(i % 2 == 0, tradeStore.isBuyNotSell(i));
+		}
+		List<Trade> teaTrades = tradeStore.getTrades("TEA");
+		assertEquals((count + 2) / 3, teaTrades.size());
+		for (Trade trade : teaTrades) {
+			assertEquals("TEA", trade.getStockSymbol());
+		}
+	}
+
+	/**
+	 * Tests the calculators still work from the trades given back
+	 */
+	@Test
+	public void testStockPrice() {
+		tradeStore.recordTrade(buildTrade("GIN", now, 8L, 100, true));
+		tradeStore.recordTrade(buildTrade("GIN", now, 24L, 105, true));
+		tradeStore.recordTrade(buildTrade("GIN", now.minusMinutes(10), 30L, 102, true));
+		tradeStore.recordTrade(buildTrade("GIN", now.minusMinutes(15), 30L, 55, true));
+
+		StockCalculator stockCalculator = new StockCalculator();
+		BigDecimal stockPrice = stockCalculator.calculateStockPrice(tradeStore.getTrades());
+		BigDecimal stockPriceStreams = stockCalculator.calculateStockPriceStreams(tradeStore.getTrades());
+		double stockPriceActual = ((double)(8*100) + (24*105) + (30*102))/ (8+24+30);
+
+		assertEquals(stockPriceActual, stockPrice.doubleValue(), 0.00001D);
+		assertEquals(stockPriceActual, stockPriceStreams.doubleValue(), 0.00001D);
+	}
+
+	/**
+	 * Tests an unknown stock returns an empty list
+	 */
+	@Test
+	public void testGetTradesUnknownSymbol() {
+		tradeStore.recordTrade(buildTrade("GIN", now, 8L, 100, true));
+
+		assertTrue(tradeStore.getTrades("ALE").isEmpty());
+	}
+
+	/**
+	 * Tests the index can't go past the trades recorded
+	 */
+	@Test (expected = IndexOutOfBoundsException.class)
+	public void testIndexPastSize() {
+		tradeStore.recordTrade(buildTrade("GIN", now, 8L, 100, true));
+
+		tradeStore.getQuantityShares(1);
+	}
+}
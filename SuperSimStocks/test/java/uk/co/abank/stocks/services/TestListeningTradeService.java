@@ -0,0 +1,55 @@
+package uk.co.abank.stocks.services;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.services.memory.TradeServiceMemoryImpl;
+
+/**
+ * JUnit tests for the {@link ListeningTradeService}
+ * @author JohnM
+ *
+ */
+public class TestListeningTradeService {
+
+	ListeningTradeService tradeService;
+
+	@Before
+	public void before() throws Exception {
+		tradeService = new ListeningTradeService(new TradeServiceMemoryImpl());
+	}
+
+	@After
+	public void after() throws Exception {
+		tradeService = null;
+		assertNull(tradeService);
+	}
+
+	/**
+	 * Tests a listener that throws is counted, the trade is still recorded
+	 * and a later listener is still told about it
+	 */
+	@Test
+	public void testListenerThrows() {
+		List<Trade> heard = new ArrayList<>();
+		tradeService.addTradeListener(trade -> {
+			throw new IllegalArgumentException("Trade price*quantity overflows " + trade);
+		});
+		tradeService.addTradeListener(heard::add);
+
+		Trade trade = new Trade("GIN", 10L, true, 1_700_000_000_000_000_000L, 100);
+		assertTrue(tradeService.recordTrade(trade));
+
+		assertEquals(1L, tradeService.getFailures());
+		assertEquals(1, heard.size());
+		assertEquals(trade, heard.get(0));
+		assertEquals(1, tradeService.getTrades().size());
+	}
+}
@@ -0,0 +1,103 @@
+package uk.co.abank.stocks.services;
+
+import static org.junit.Assert.*;
+import static uk.co.abank.stocks.dataobjects.TradeFixtures.buildTrade;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.abank.stocks.calculators.StockCalculator;
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.dataobjects.TradeTimes;
+import uk.co.abank.stocks.services.memory.TimeOrderedTradeLog;
+
+/**
+ * JUnit tests for the {@link TimeOrderedTradeLog}
+ * @author JohnM
+ *
+ */
+public class TestTimeOrderedTradeLog {
+
+	TimeOrderedTradeLog tradeLog;
+	LocalDateTime now;
+
+	@Before
+	public void before() throws Exception {
+		tradeLog = new TimeOrderedTradeLog();
+		now = LocalDateTime.now();
+	}
+
+	@After
+	public void after() throws Exception {
+		tradeLog = null;
+		assertNull(tradeLog);
+	}
+
+	/**
+	 * Tests that trades arriving out of order are held in time order
+	 */
+	@Test
+	public void testTradesHeldInTimeOrder() {
+		tradeLog.add(buildTrade("GIN", now.minusMinutes(5), 10L, 100));
+		tradeLog.add(buildTrade("GIN", now.minusMinutes(20), 10L, 100));
+		tradeLog.add(buildTrade("GIN", now, 10L, 100));
+		tradeLog.add(buildTrade("GIN", now.minusMinutes(10), 10L, 100));
+
+		List<Trade> trades = tradeLog.getTrades();
+
+		assertEquals(4, trades.size());
+		for (int i = 1; i < trades.size(); i++) {
+			assertFalse(trades.get(i).getTradeTime().isBefore(trades.get(i - 1).getTradeTime()));
+		}
+	}
+
+	/**
+	 * Tests that only the trades after the instant are returned
+	 */
+	@Test
+	public void testTradesSince() {
+		tradeLog.add(buildTrade("GIN", now.minusMinutes(30), 10L, 100));
+		tradeLog.add(buildTrade("GIN", now.minusMinutes(16), 10L, 100));
+		tradeLog.add(buildTrade("GIN", now.minusMinutes(14), 10L, 100));
+		tradeLog.add(buildTrade("GIN", now, 10L, 100));
+
+		List<Trade> trades = tradeLog.tradesSince(TradeTimes.toInstant(now.minusMinutes(15)));
+
+		assertEquals(2, trades.size());
+		assertEquals(now.minusMinutes(14), trades.get(0).getTradeTime());
+	}
+
+	/**
+	 * Tests that a window after all the trades is empty
+	 */
+	@Test
+	public void testTradesSinceEmpty() {
+		tradeLog.add(buildTrade("GIN", now.minusMinutes(30), 10L, 100));
+
+		assertTrue(tradeLog.tradesSince(TradeTimes.toInstant(now)).isEmpty());
+	}
+
+	/**
+	 * Tests that the stock price from the window is the same as the
+	 * filtering calculation
+	 */
+	@Test
+	public void testStockPriceInWindow() {
+		tradeLog.add(buildTrade("GIN", now.minusMinutes(15), 30L, 55));
+		tradeLog.add(buildTrade("GIN", now.minusMinutes(10), 30L, 102));
+		tradeLog.add(buildTrade("GIN", now, 8L, 100));
+		tradeLog.add(buildTrade("GIN", now, 24L, 105));
+
+		StockCalculator stockCalculator = new StockCalculator();
+		BigDecimal stockPriceWindow = stockCalculator.calculateStockPriceInWindow(
+				tradeLog.tradesSince(stockCalculator.getWindowStart()));
+		BigDecimal stockPrice = stockCalculator.calculateStockPrice(tradeLog.getTrades());
+
+		assertEquals(stockPrice.doubleValue(), stockPriceWindow.doubleValue(), 0.00001D);
+	}
+}
@@ -0,0 +1,101 @@
+package uk.co.abank.stocks.services;
+
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.dataobjects.TradeBuilder;
+import uk.co.abank.stocks.dataobjects.TradeTimes;
+import uk.co.abank.stocks.services.memory.ColumnarTradeStore;
+
+/**
+ * JUnit tests for the {@link TradeIngestionValidator} using the same rules
+ * as the {@link TradeBuilder}
+ * @author JohnM
+ *
+ */
+public class TestTradeIngestionValidator {
+
+	ColumnarTradeStore tradeStore;
+	TradeIngestionValidator tradeIngestionValidator;
+	LocalDateTime now;
+
+	@Before
+	public void before() throws Exception {
+		tradeStore = new ColumnarTradeStore();
+		tradeIngestionValidator = new TradeIngestionValidator(tradeStore);
+		now = LocalDateTime.now();
+	}
+
+	@After
+	public void after() throws Exception {
+		tradeIngestionValidator = null;
+		assertNull(tradeIngestionValidator);
+	}
+
+	/**
+	 * Tests a valid trade is recorded the same as one built by the {@link TradeBuilder}
+	 */
+	@Test
+	public void testValidTradeRecorded() {
+		Trade trade = new TradeBuilder()
+				.setStockSymbol("GIN")
+				.setTradeTime(now)
+				.setQuantityShares(8L)
+				.setTradePrice(100)
+				.setBuyNotSell(true).validate().build();
+
+		assertEquals(TradeIngestionValidator.VALID,
+				tradeIngestionValidator.ingest("GIN", 8L, true, TradeTimes.toEpochNanos(now), 100));
+
+		assertEquals(1, tradeStore.size());
+		assertEquals(trade, tradeStore.getTrade(0));
+		assertEquals(1L, tradeIngestionValidator.getAccepted());
+	}
+
+	/**
+	 * Tests the errors match the {@link TradeBuilder} and the invalid trades aren't recorded
+	 */
+	@Test
+	public void testInvalidTrades() {
+		long tradeTimeNanos = TradeTimes.toEpochNanos(now);
+
+		assertEquals(TradeIngestionValidator.ERROR_STOCK_SYMBOL,
+				tradeIngestionValidator.ingest("", 8L, true, tradeTimeNanos, 100));
+		assertEquals(TradeIngestionValidator.ERROR_TRADE_PRICE | TradeIngestionValidator.ERROR_QUANTITY_SHARES,
+				tradeIngestionValidator.ingest("GIN", 0L, true, tradeTimeNanos, 0));
+		assertEquals(TradeIngestionValidator.ERROR_STOCK_SYMBOL | TradeIngestionValidator.ERROR_QUANTITY_SHARES,
+				tradeIngestionValidator.ingest(null, 0L, true, tradeTimeNanos, 100));
+
+		assertEquals(0, tradeStore.size());
+		assertEquals(3L, tradeIngestionValidator.getRejected());
+		assertEquals(2L, tradeIngestionValidator.getErrorCount(TradeIngestionValidator.ERROR_STOCK_SYMBOL));
+		assertEquals(1L, tradeIngestionValidator.getErrorCount(TradeIngestionValidator.ERROR_TRADE_PRICE));
+		assertEquals(2L, tradeIngestionValidator.getErrorCount(TradeIngestionValidator.ERROR_QUANTITY_SHARES));
+
+		TradeBuilder tradeBuilder = new TradeBuilder()
+				.setStockSymbol("GIN")
+				.setTradeTime(now)
+				.setQuantityShares(0L)
+				.setTradePrice(0)
+				.validate();
+		assertEquals(String.join(", ", tradeBuilder.getValidationErrors()),
+				TradeIngestionValidator.describe(TradeIngestionValidator.ERROR_TRADE_PRICE
+						| TradeIngestionValidator.ERROR_QUANTITY_SHARES));
+	}
+
+	/**
+	 * Tests asking for the count of something that isn't an error bit throws an
+	 * {@link IllegalArgumentException}
+	 */
+	@Test (expected = IllegalArgumentException.class)
+	public void testNotAnErrorBit() {
+		tradeIngestionValidator.getErrorCount(TradeIngestionValidator.ERROR_STOCK_SYMBOL
+				| TradeIngestionValidator.ERROR_TRADE_PRICE);
+	}
+}
@@ -0,0 +1,236 @@
+package uk.co.abank.stocks.services;
+
+import static org.junit.Assert.*;
+import static uk.co.abank.stocks.dataobjects.TradeFixtures.buildTrade;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.services.journal.TradeServiceJournalImpl;
+
+/**
+ * JUnit tests for the {@link TradeServiceJournalImpl} recording trades,
+ * reloading them and finding torn records
+ * @author JohnM
+ *
+ */
+public class TestTradeServiceJournal {
+
+	private static final int RECORDS_PER_SEGMENT = 16;
+	private static final int RECORD_SIZE = 40;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	Path directory;
+	LocalDateTime now;
+
+	@Before
+	public void before() throws Exception {
+		directory = temporaryFolder.newFolder("journal").toPath();
+		now = LocalDateTime.now();
+	}
+
+	@After
+	public void after() throws Exception {
+		directory = null;
+		assertNull(directory);
+	}
+
+	/**
+	 * Tests that the trades recorded are the same as the ones retrieved
+	 */
+	@Test
+	public void testGetTradeSame() throws Exception {
+		TradeServiceJournalImpl tradeService = new TradeServiceJournalImpl(directory, RECORDS_PER_SEGMENT);
+		Trade gin = buildTrade("GIN", now, 8L, 100, true);
+		Trade tea = buildTrade("TEA", now, 10L, 100, false);
+
+		assertTrue(tradeService.recordTrade(gin));
+		assertTrue(tradeService.recordTrade(tea));
+
+		assertEquals(2, tradeService.getTrades().size());
+		assertEquals(gin, tradeService.getTrades().get(0));
+		assertEquals(tea, tradeService.getTrades("TEA").get(0));
+		assertTrue(tradeService.getTrades("ALE").isEmpty());
+		tradeService.close();
+	}
+
+	/**
+	 * Tests the trades are read back after the journal is reopened, across
+	 * a number of segments
+	 */
+	@Test
+	public void testReload() throws Exception {
+		TradeServiceJournalImpl tradeService = new TradeServiceJournalImpl(directory, RECORDS_PER_SEGMENT);
+		for (int i = 1; i <= 40; i++) {
+			tradeService.recordTrade(buildTrade(i % 2 == 0 ? "GIN" : "TEA", now, i, 100, i % 3 == 0));
+		}
+		List<Trade> recorded = tradeService.getTrades();
+		tradeService.close();
+
+		TradeServiceJournalImpl reopened = new TradeServiceJournalImpl(directory, RECORDS_PER_SEGMENT);
+
+		assertEquals(40, reopened.size());
+		assertEquals(recorded, reopened.getTrades());
+		assertEquals(20, reopened.getTrades("GIN").size());
+		assertEquals(0, reopened.getTornRecords());
+		assertTrue(Files.exists(directory.resolve("trades-000002.journal")));
+
+		// carries on recording after the last trade
+		reopened.recordTrade(buildTrade("POP", now, 41L, 100, true));
+		assertEquals(41, reopened.getTrades().size());
+		reopened.close();
+	}
+
+	/**
+	 * Tests a record that was partly written when the process stopped is
+	 * found and wiped, and recording carries on from it
+	 */
+	@Test
+	public void testTornRecord() throws Exception {
+		TradeServiceJournalImpl tradeService = new TradeServiceJournalImpl(directory, RECORDS_PER_SEGMENT);
+		for (int i = 1; i <= 5; i++) {
+			tradeService.recordTrade(buildTrade("GIN", now, i, 100, true));
+		}
+		tradeService.close();
+
+		// half write the sixth record, the commit marker never made it
+		try (RandomAccessFile segment = new RandomAccessFile(directory.resolve("trades-000000.journal").toFile(), "rw")) {
+			segment.seek(5 * RECORD_SIZE);
+			segment.writeInt(0);
+			segment.writeInt(1);
+			segment.writeLong(6L);
+		}
+
+		TradeServiceJournalImpl reopened = new TradeServiceJournalImpl(directory, RECORDS_PER_SEGMENT);
+
+		assertEquals(5, reopened.size());
+		assertEquals(1, reopened.getTornRecords());
+
+		Trade trade = buildTrade("GIN", now, 7L, 100, false);
+		reopened.recordTrade(trade);
+		assertEquals(trade, reopened.getTrades().get(5));
+		reopened.close();
+	}
+
+	/**
+	 * Tests a record whose fields don't match the checksum is treated as torn
+	 */
+	@Test
+	public void testChecksumMismatch() throws Exception {
+		TradeServiceJournalImpl tradeService = new TradeServiceJournalImpl(directory, RECORDS_PER_SEGMENT);
+		for (int i = 1; i <= 3; i++) {
+			tradeService.recordTrade(buildTrade("GIN", now, i, 100, true));
+		}
+		tradeService.close();
+
+		// change the quantity of the last record after it was committed
+		try (RandomAccessFile segment = new RandomAccessFile(directory.resolve("trades-000000.journal").toFile(), "rw")) {
+			segment.seek(2 * RECORD_SIZE + 8);
+			segment.writeLong(99L);
+		}
+
+		TradeServiceJournalImpl reopened = new TradeServiceJournalImpl(directory, RECORDS_PER_SEGMENT);
+
+		assertEquals(2, reopened.size());
+		assertEquals(1, reopened.getTornRecords());
+		reopened.close();
+	}
+
+	/**
+	 * Tests the committed records after a torn record are wiped too, so they
+	 * don't come back once the records in front of them are written again
+	 */
+	@Test
+	public void testRecordsAfterTornRecordWiped() throws Exception {
+		TradeServiceJournalImpl tradeService = new TradeServiceJournalImpl(directory, RECORDS_PER_SEGMENT);
+		for (int i = 1; i <= 5; i++) {
+			tradeService.recordTrade(buildTrade("GIN", now, i, 100, true));
+		}
+		tradeService.close();
+
+		// the page with the third record never made it to disk, the later ones did
+		try (RandomAccessFile segment = new RandomAccessFile(directory.resolve("trades-000000.journal").toFile(), "rw")) {
+			segment.seek(2 * RECORD_SIZE + 36);
+			segment.writeInt(0);
+		}
+
+		TradeServiceJournalImpl reopened = new TradeServiceJournalImpl(directory, RECORDS_PER_SEGMENT);
+		assertEquals(2, reopened.size());
+		assertEquals(3, reopened.getTornRecords());
+		reopened.recordTrade(buildTrade("GIN", now, 30L, 100, true));
+		reopened.close();
+
+		TradeServiceJournalImpl recovered = new TradeServiceJournalImpl(directory, RECORDS_PER_SEGMENT);
+		assertEquals(3, recovered.size());
+		assertEquals(30L, recovered.getTrades().get(2).getQuantityShares());
+		recovered.close();
+	}
+
+	/**
+	 * Tests the segments after a torn record are deleted
+	 */
+	@Test
+	public void testSegmentsAfterTornRecordDeleted() throws Exception {
+		TradeServiceJournalImpl tradeService = new TradeServiceJournalImpl(directory, RECORDS_PER_SEGMENT);
+		for (int i = 1; i <= 40; i++) {
+			tradeService.recordTrade(buildTrade("GIN", now, i, 100, true));
+		}
+		tradeService.close();
+
+		try (RandomAccessFile segment = new RandomAccessFile(directory.resolve("trades-000000.journal").toFile(), "rw")) {
+			segment.seek(10 * RECORD_SIZE + 36);
+			segment.writeInt(0);
+		}
+
+		TradeServiceJournalImpl reopened = new TradeServiceJournalImpl(directory, RECORDS_PER_SEGMENT);
+		assertEquals(10, reopened.size());
+		assertFalse(Files.exists(directory.resolve("trades-000001.journal")));
+		assertFalse(Files.exists(directory.resolve("trades-000002.journal")));
+		reopened.close();
+	}
+
+	/**
+	 * Tests a trade whose new symbol never made it to disk is treated as a torn
+	 * record rather than stopping the journal being opened
+	 */
+	@Test
+	public void testUnknownSymbolTorn() throws Exception {
+		TradeServiceJournalImpl tradeService = new TradeServiceJournalImpl(directory, RECORDS_PER_SEGMENT);
+		tradeService.recordTrade(buildTrade("GIN", now, 1L, 100, true));
+		tradeService.recordTrade(buildTrade("GIN", now, 2L, 100, true));
+		tradeService.recordTrade(buildTrade("TEA", now, 3L, 100, true));
+		tradeService.close();
+
+		// lose the second symbol
+		try (RandomAccessFile symbols = new RandomAccessFile(directory.resolve("symbols.journal").toFile(), "rw")) {
+			symbols.seek(RECORD_SIZE);
+			symbols.write(new byte[RECORD_SIZE]);
+		}
+
+		TradeServiceJournalImpl reopened = new TradeServiceJournalImpl(directory, RECORDS_PER_SEGMENT);
+		assertEquals(2, reopened.size());
+		assertEquals(1, reopened.getTornRecords());
+		assertTrue(reopened.getTrades("TEA").isEmpty());
+		reopened.close();
+	}
+
+	/**
+	 * Tests a segment too large to map is turned away before anything is opened
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testSegmentTooLarge() throws Exception {
+		new TradeServiceJournalImpl(directory, TradeServiceJournalImpl.MAX_RECORDS_PER_SEGMENT + 1);
+	}
+}
@@ -0,0 +1,147 @@
+package uk.co.abank.stocks.services;
+
+import static org.junit.Assert.*;
+import static uk.co.abank.stocks.dataobjects.TradeFixtures.buildTrade;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.services.memory.TradeServiceLockFreeImpl;
+
+/**
+ * JUnit tests for the {@link TradeServiceLockFreeImpl} including a stress test
+ * with a number of threads recording trades while others read them
+ * @author JohnM
+ *
+ */
+public class TestTradeServiceLockFree {
+
+	private static final int WRITERS = 8;
+	private static final int TRADES_PER_WRITER = 50_000;
+
+	TradeServiceLockFreeImpl tradeService;
+	ExecutorService executorService;
+
+	@Before
+	public void before() throws Exception {
+		tradeService = new TradeServiceLockFreeImpl();
+		executorService = Executors.newFixedThreadPool(WRITERS + 2);
+	}
+
+	@After
+	public void after() throws Exception {
+		executorService.shutdownNow();
+		tradeService = null;
+		assertNull(tradeService);
+	}
+
+	/**
+	 * Tests that the trade recorded is the same as the one retrieved
+	 */
+	@Test
+	public void testGetTradeSame() {
+		Trade trade = buildTrade("GIN", 8L, 100);
+
+		assertTrue(tradeService.recordTrade(trade));
+		assertEquals(1, tradeService.getTrades().size());
+		assertEquals(trade, tradeService.getTrades().get(0));
+		assertEquals(trade, tradeService.getTrades("GIN").get(0));
+		assertTrue(tradeService.getTrades("TEA").isEmpty());
+	}
+
+	/**
+	 * Tests the list returned doesn't change as more trades are recorded
+	 */
+	@Test
+	public void testSnapshotDoesNotChange() {
+		tradeService.recordTrade(buildTrade("GIN", 8L, 100));
+		List<Trade> trades = tradeService.getTrades();
+
+		tradeService.recordTrade(buildTrade("GIN", 9L, 100));
+
+		assertEquals(1, trades.size());
+		assertEquals(2, tradeService.getTrades().size());
+	}
+
+	/**
+	 * Tests the list returned can't be altered
+	 */
+	@Test (expected = UnsupportedOperationException.class)
+	public void testGetTradesUnmodifiable() {
+		tradeService.recordTrade(buildTrade("GIN", 8L, 100));
+
+		tradeService.getTrades().add(buildTrade("GIN", 8L, 100));
+	}
+
+	/**
+	 * A number of threads record trades for their own stock while two readers
+	 * go through the trades, every trade must be recorded once and the readers
+	 * must never see a gap or get a ConcurrentModificationException
+	 */
+	@Test
+	public void testConcurrentRecordAndRead() throws Exception {
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicBoolean writing = new AtomicBoolean(true);
+
+		List<Future<Integer>> writers = new ArrayList<>();
+		for (int w = 0; w < WRITERS; w++) {
+			String stockSymbol = "S" + w;
+			writers.add(executorService.submit(() -> {
+				start.await();
+				int recorded = 0;
+				for (int i = 1; i <= TRADES_PER_WRITER; i++) {
+					if (tradeService.recordTrade(buildTrade(stockSymbol, i, 100)))
+						recorded++;
+				}
+				return recorded;
+			}));
+		}
+
+		List<Future<Integer>> readers = new ArrayList<>();
+		for (int r = 0; r < 2; r++) {
+			readers.add(executorService.submit(() -> {
+				start.await();
+				int lastSize = 0;
+				while (writing.get()) {
+					List<Trade> trades = tradeService.getTrades();
+					assertTrue(trades.size() >= lastSize);
+					for (Trade trade : trades) {
+						assertNotNull(trade);
+					}
+					lastSize = trades.size();
+				}
+				return lastSize;
+			}));
+		}
+
+		start.countDown();
+		for (Future<Integer> writer : writers) {
+			assertEquals(TRADES_PER_WRITER, writer.get(60, TimeUnit.SECONDS).intValue());
+		}
+		writing.set(false);
+		for (Future<Integer> reader : readers) {
+			reader.get(60, TimeUnit.SECONDS);
+		}
+
+		assertEquals(WRITERS * TRADES_PER_WRITER, tradeService.getTrades().size());
+		for (int w = 0; w < WRITERS; w++) {
+			List<Trade> trades = tradeService.getTrades("S" + w);
+			assertEquals(TRADES_PER_WRITER, trades.size());
+			// each writer records in order so its own trades must be in order
+			for (int i = 0; i < trades.size(); i++) {
+				assertEquals(i + 1, trades.get(i).getQuantityShares());
+			}
+		}
+	}
+}
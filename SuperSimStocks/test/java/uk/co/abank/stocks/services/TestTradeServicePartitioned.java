@@ -0,0 +1,87 @@
+package uk.co.abank.stocks.services;
+
+import static org.junit.Assert.*;
+import static uk.co.abank.stocks.dataobjects.TradeFixtures.buildTrade;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.services.memory.TradeServicePartitionedImpl;
+
+/**
+ * JUnit tests for the {@link TradeServicePartitionedImpl}
+ * @author JohnM
+ *
+ */
+public class TestTradeServicePartitioned {
+
+	TradeServicePartitionedImpl tradeService;
+
+	@Before
+	public void before() throws Exception {
+		tradeService = new TradeServicePartitionedImpl();
+	}
+
+	@After
+	public void after() throws Exception {
+		tradeService = null;
+		assertNull(tradeService);
+	}
+
+	/**
+	 * Tests that only the trades for the requested stock are returned
+	 */
+	@Test
+	public void testGetTradesForSymbol() {
+		tradeService.recordTrade(buildTrade("GIN", 8L, 100));
+		tradeService.recordTrade(buildTrade("TEA", 10L, 120));
+		tradeService.recordTrade(buildTrade("GIN", 24L, 105));
+
+		List<Trade> trades = tradeService.getTrades("GIN");
+
+		assertEquals(2, trades.size());
+		for (Trade trade : trades) {
+			assertEquals("GIN", trade.getStockSymbol());
+		}
+		assertEquals(2, tradeService.getStockCount());
+	}
+
+	/**
+	 * Tests that all the partitions are returned together
+	 */
+	@Test
+	public void testGetAllTrades() {
+		tradeService.recordTrade(buildTrade("GIN", 8L, 100));
+		tradeService.recordTrade(buildTrade("TEA", 10L, 120));
+		tradeService.recordTrade(buildTrade("POP", 24L, 105));
+
+		assertEquals(3, tradeService.getTrades().size());
+	}
+
+	/**
+	 * Tests an unknown stock returns an empty list rather than null
+	 */
+	@Test
+	public void testGetTradesUnknownSymbol() {
+		tradeService.recordTrade(buildTrade("GIN", 8L, 100));
+
+		List<Trade> trades = tradeService.getTrades("ALE");
+
+		assertNotNull(trades);
+		assertTrue(trades.isEmpty());
+	}
+
+	/**
+	 * Tests the list returned can't be altered
+	 */
+	@Test (expected = UnsupportedOperationException.class)
+	public void testGetTradesUnmodifiable() {
+		tradeService.recordTrade(buildTrade("GIN", 8L, 100));
+
+		tradeService.getTrades("GIN").add(buildTrade("GIN", 8L, 100));
+	}
+}
@@ -0,0 +1,205 @@
+package uk.co.abank.stocks.services;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.metrics.MetricsRegistry;
+import uk.co.abank.stocks.metrics.MetricsSnapshot;
+import uk.co.abank.stocks.replay.ReplayClock;
+import uk.co.abank.stocks.services.memory.RetentionPolicy;
+import uk.co.abank.stocks.services.memory.TradeServiceMemoryImpl;
+
+/**
+ * JUnit tests for the {@link RetentionPolicy} of the {@link TradeServiceMemoryImpl},
+ * the oldest trades are taken out by age, count and memory budget a chunk at a time
+ * @author JohnM
+ *
+ */
+public class TestTradeServiceRetention {
+
+	private static final long NANOS_PER_MINUTE = 60_000_000_000L;
+
+	ReplayClock clock;
+	MetricsRegistry metricsRegistry;
+	TradeServiceMemoryImpl tradeService;
+
+	@Before
+	public void before() throws Exception {
+		clock = new ReplayClock(1_700_000_000_000_000_000L);
+		metricsRegistry = new MetricsRegistry();
+	}
+
+	@After
+	public void after() throws Exception {
+		if (tradeService != null)
+			tradeService.close();
+		tradeService = null;
+		metricsRegistry = null;
+		assertNull(tradeService);
+		assertNull(metricsRegistry);
+	}
+
+	/**
+	 * Tests the oldest whole chunks over the count limit are taken out and the
+	 * metrics show what is left
+	 */
+	@Test
+	public void testMaxTrades() {
+		tradeService = new TradeServiceMemoryImpl(RetentionPolicy.keepAll().withMaxTrades(2048).withSweepMillis(0),
+				clock, metricsRegistry, null);
+		List<Trade> trades = recordTrades(5000, clock.millis() * 1_000_000L);
+
+		assertEquals(2048L, tradeService.evictExpired());
+		assertEquals(2952L, tradeService.getRetained());
+		assertEquals(2952, tradeService.getTrades().size());
+		assertEquals(trades.get(2048), tradeService.getTrades().get(0));
+		assertEquals(trades.get(4999), tradeService.getTrades().get(2951));
+		assertEquals(0L, tradeService.evictExpired());
+
+		MetricsSnapshot snapshot = metricsRegistry.snapshot();
+		assertEquals(2048L, snapshot.getCounter("tradeService.evicted"));
+		assertEquals(2952L, snapshot.getCounter("tradeService.retainedTrades"));
+		assertEquals(2952L * TradeServiceMemoryImpl.ESTIMATED_TRADE_BYTES,
+				snapshot.getCounter("tradeService.retainedBytes"));
+		assertEquals(2L, snapshot.getHistogram("tradeService.evictionSweep").getCount());
+	}
+
+	/**
+	 * Tests the memory budget is turned into a number of trades
+	 */
+	@Test
+	public void testMaxBytes() {
+		tradeService = new TradeServiceMemoryImpl(RetentionPolicy.keepAll()
+				.withMaxBytes(2048 * TradeServiceMemoryImpl.ESTIMATED_TRADE_BYTES).withSweepMillis(0),
+				clock, metricsRegistry, null);
+		recordTrades(5000, clock.millis() * 1_000_000L);
+
+		assertEquals(2048L, tradeService.evictExpired());
+		assertTrue(tradeService.getRetainedBytes() <= 3072 * TradeServiceMemoryImpl.ESTIMATED_TRADE_BYTES);
+	}
+
+	/**
+	 * Tests the chunks with only trades older than the age limit are taken out
+	 * and spilled in the order they were recorded
+	 */
+	@Test
+	public void testMaxAgeSpilled() {
+		List<Trade> spilled = new ArrayList<>();
+		tradeService = new TradeServiceMemoryImpl(RetentionPolicy.keepAll().withMaxAgeMinutes(15).withSweepMillis(0),
+				clock, metricsRegistry, spilled::add);
+		long nowNanos = clock.millis() * 1_000_000L;
+		List<Trade> oldTrades = recordTrades(2 * TradeServiceMemoryImpl.CHUNK_SIZE, nowNanos - 20 * NANOS_PER_MINUTE);
+		recordTrades(100, nowNanos - 10 * NANOS_PER_MINUTE);
+
+		assertEquals(2048L, tradeService.evictExpired());
+		assertEquals(oldTrades, spilled);
+		assertEquals(100, tradeService.getTrades().size());
+
+		clock.advanceTo(nowNanos + 10 * NANOS_PER_MINUTE);
+		assertEquals(0L, tradeService.evictExpired());
+		assertEquals("The chunk being written to is never taken out", 100, tradeService.getTrades().size());
+	}
+
+	/**
+	 * Tests a list already handed out doesn't change when the trades are taken out
+	 */
+	@Test
+	public void testSnapshotUnchanged() {
+		tradeService = new TradeServiceMemoryImpl(RetentionPolicy.keepAll().withMaxTrades(1).withSweepMillis(0),
+				clock, metricsRegistry, null);
+		List<Trade> trades = recordTrades(3000, clock.millis() * 1_000_000L);
+		List<Trade> snapshot = tradeService.getTrades();
+
+		tradeService.evictExpired();
+		tradeService.recordTrade(trades.get(0));
+
+		assertEquals(trades, snapshot);
+		assertEquals(953, tradeService.getTrades().size());
+	}
+
+	/**
+	 * Tests the background evictor keeps the store down while the trades are recorded
+	 */
+	@Test
+	public void testBackgroundEvictor() throws Exception {
+		tradeService = new TradeServiceMemoryImpl(RetentionPolicy.keepAll().withMaxTrades(1024).withSweepMillis(5),
+				clock, metricsRegistry, null);
+		recordTrades(20_000, clock.millis() * 1_000_000L);
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (tradeService.getRetained() >= 2048 && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		assertTrue(tradeService.getRetained() < 2048);
+		assertTrue(tradeService.getTrades().size() < 2048);
+	}
+
+	/**
+	 * Tests the gauges are taken out of the registry on close, so another store
+	 * can register them and the closed store isn't held on to
+	 */
+	@Test
+	public void testCloseRemovesGauges() {
+		RetentionPolicy retentionPolicy = RetentionPolicy.keepAll().withMaxTrades(2048).withSweepMillis(0);
+		tradeService = new TradeServiceMemoryImpl(retentionPolicy, clock, metricsRegistry, null);
+		recordTrades(10, clock.millis() * 1_000_000L);
+		try {
+			new TradeServiceMemoryImpl(retentionPolicy, clock, metricsRegistry, null);
+			fail("The gauges are already registered");
+		} catch (IllegalStateException e) {
+			assertEquals(10L, metricsRegistry.snapshot().getCounter("tradeService.retainedTrades"));
+		}
+
+		tradeService.close();
+		assertFalse(metricsRegistry.snapshot().getCounters().containsKey("tradeService.retainedTrades"));
+		tradeService = new TradeServiceMemoryImpl(retentionPolicy, clock, metricsRegistry, null);
+		assertEquals(0L, metricsRegistry.snapshot().getCounter("tradeService.retainedTrades"));
+	}
+
+	/**
+	 * Tests the default keeps every trade
+	 */
+	@Test
+	public void testKeepAll() {
+		tradeService = new TradeServiceMemoryImpl();
+		recordTrades(5000, clock.millis() * 1_000_000L);
+
+		assertEquals(0L, tradeService.evictExpired());
+		assertEquals(5000, tradeService.getTrades().size());
+	}
+
+	/**
+	 * Tests a limit has to be greater than zero
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadLimit() {
+		RetentionPolicy.keepAll().withMaxTrades(0);
+	}
+
+	/**
+	 * Tests an age too long to hold in nanoseconds is turned away rather than
+	 * wrapping round and taking out every trade
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testMaxAgeOverflow() {
+		RetentionPolicy.keepAll().withMaxAgeMinutes(Long.MAX_VALUE / 60);
+	}
+
+	private List<Trade> recordTrades(int count, long tradeTimeNanos) {
+		List<Trade> trades = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Trade trade = new Trade(i % 2 == 0 ? "GIN" : "TEA", 1 + i % 100, true, tradeTimeNanos + i, 100);
+			tradeService.recordTrade(trade);
+			trades.add(trade);
+		}
+		return trades;
+	}
+}
@@ -0,0 +1,50 @@
+package uk.co.abank.stocks.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.co.abank.stocks.calculators.StockCalculator;
+
+/**
+ * Times the All Share Index over increasing numbers of share prices
+ * @author JohnM
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllShareIndexBenchmark {
+
+	@Param({"10", "100", "1000", "10000"})
+	public int priceCount;
+
+	private List<BigDecimal> sharePrices;
+	private StockCalculator stockCalculator;
+
+	@Setup
+	public void setup() {
+		sharePrices = BenchmarkTrades.sharePrices(priceCount);
+		stockCalculator = new StockCalculator();
+	}
+
+	@Benchmark
+	public BigDecimal allShareIndex() {
+		return stockCalculator.calculateAllShareIndex(sharePrices);
+	}
+}
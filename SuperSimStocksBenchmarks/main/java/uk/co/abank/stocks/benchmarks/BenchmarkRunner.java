@@ -0,0 +1,30 @@
+package uk.co.abank.stocks.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Main class for the benchmarks jar, takes the usual JMH command line options
+ * but writes the results as JSON to jmh-result.json unless told otherwise
+ * so the runs can be compared to find regressions
+ * e.g. java -jar target/benchmarks.jar StockPriceBenchmark -prof gc
+ * @author JohnM
+ *
+ */
+public class BenchmarkRunner {
+
+	private static final String RESULT_FILE = "jmh-result.json";
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+		if (!commandLineOptions.getResultFormat().hasValue())
+			options.resultFormat(ResultFormatType.JSON);
+		if (!commandLineOptions.getResult().hasValue())
+			options.result(RESULT_FILE);
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,146 @@
+package uk.co.abank.stocks.benchmarks;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import uk.co.abank.stocks.dataobjects.Stock;
+import uk.co.abank.stocks.dataobjects.StockBuilder;
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.dataobjects.TradeBuilder;
+
+/**
+ * Creates the data used by the benchmarks, seeded so every run uses the same data
+ * @author JohnM
+ *
+ */
+public final class BenchmarkTrades {
+
+	/**
+	 * The Global Beverage Corporation Exchange stocks
+	 */
+	public static final String[] GBCE_SYMBOLS = {"TEA", "POP", "ALE", "GIN", "JOE"};
+
+	private static final long SEED = 42L;
+
+	private BenchmarkTrades() {
+	}
+
+	/**
+	 * Trades for the one stock spread over the last 20 minutes, so about
+	 * a quarter of them are outside the 15 minute window
+	 * @param count
+	 * @return the trades
+	 */
+	public static List<Trade> trades(int count) {
+		SplittableRandom random = new SplittableRandom(SEED);
+		LocalDateTime now = LocalDateTime.now();
+		// a trade time a second apart for the 20 minutes, shared between the trades
+		LocalDateTime[] tradeTimes = new LocalDateTime[1200];
+		for (int i = 0; i < tradeTimes.length; i++) {
+			tradeTimes[i] = now.minusSeconds(i);
+		}
+		List<Trade> trades = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			trades.add(new TradeBuilder()
+					.setStockSymbol("GIN")
+					.setTradeTime(tradeTimes[random.nextInt(tradeTimes.length)])
+					.setQuantityShares(1 + random.nextInt(1000))
+					.setTradePrice(50 + random.nextInt(100))
+					.setBuyNotSell(random.nextBoolean())
+					.validate().build());
+		}
+		return trades;
+	}
+
+	/**
+	 * Trades for all the GBCE stocks mixed together, spread over the last 20 minutes
+	 * @param count
+	 * @return the trades
+	 */
+	public static List<Trade> mixedTrades(int count) {
+		SplittableRandom random = new SplittableRandom(SEED);
+		LocalDateTime now = LocalDateTime.now();
+		List<Trade> trades = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			trades.add(new TradeBuilder()
+					.setStockSymbol(GBCE_SYMBOLS[random.nextInt(GBCE_SYMBOLS.length)])
+					.setTradeTime(now.minusSeconds(random.nextInt(1200)))
+					.setQuantityShares(1 + random.nextInt(1000))
+					.setTradePrice(50 + random.nextInt(100))
+					.setBuyNotSell(random.nextBoolean())
+					.validate().build());
+		}
+		return trades;
+	}
+
+	/**
+	 * @param count
+	 * @return share prices between 1 and 1000
+	 */
+	public static List<BigDecimal> sharePrices(int count) {
+		SplittableRandom random = new SplittableRandom(SEED);
+		List<BigDecimal> sharePrices = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			sharePrices.add(BigDecimal.valueOf(1 + random.nextInt(99_900), 2));
+		}
+		return sharePrices;
+	}
+
+	/**
+	 * @return a common stock with a dividend
+	 */
+	public static Stock commonStock() {
+		return new StockBuilder()
+				.setStockSymbol("POP")
+				.setStockType("Common")
+				.setLastDividend(8)
+				.setFixedDividend("")
+				.setParValue(100)
+				.validate().build();
+	}
+
+	/**
+	 * @return a preferred stock with a fixed dividend
+	 */
+	public static Stock preferredStock() {
+		return new StockBuilder()
+				.setStockSymbol("GIN")
+				.setStockType("Preferred")
+				.setLastDividend(8)
+				.setFixedDividend("2")
+				.setParValue(100)
+				.validate().build();
+	}
+
+	/**
+	 * A screen of stocks, half common and half preferred
+	 * @param count
+	 * @return the stocks
+	 */
+	public static Stock[] stocks(int count) {
+		SplittableRandom random = new SplittableRandom(SEED);
+		Stock[] stocks = new Stock[count];
+		for (int i = 0; i < count; i++) {
+			boolean common = i % 2 == 0;
+			stocks[i] = new StockBuilder()
+					.setStockSymbol("S" + i)
+					.setStockType(common ? "Common" : "Preferred")
+					.setLastDividend(1 + random.nextInt(20))
+					.setFixedDividend(common ? "" : String.valueOf(1 + random.nextInt(10)))
+					.setParValue(100)
+					.validate().build();
+		}
+		return stocks;
+	}
+
+	/**
+	 * @param count
+	 * @return ticker prices between 1 and 1000
+	 */
+	public static long[] tickerPrices(int count) {
+		return new SplittableRandom(SEED).longs(count, 1, 1_001).toArray();
+	}
+}
@@ -0,0 +1,89 @@
+package uk.co.abank.stocks.benchmarks;
+
+import java.util.LongSummaryStatistics;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.co.abank.stocks.collector.StockPriceStats;
+import uk.co.abank.stocks.collector.StockPriceStatsCollector;
+import uk.co.abank.stocks.dataobjects.Trade;
+
+/**
+ * Compares the {@link StockPriceStatsCollector} sequentially and in parallel, against
+ * the earlier collector that used a pair of {@link LongSummaryStatistics}
+ * The trades aren't filtered so only the collecting is timed
+ * @author JohnM
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class CollectorBenchmark {
+
+	@Param({"100000", "1000000", "10000000"})
+	public int tradeCount;
+
+	private List<Trade> trades;
+
+	@Setup
+	public void setup() {
+		trades = BenchmarkTrades.trades(tradeCount);
+	}
+
+	@Benchmark
+	public long summaryStatisticsSequential() {
+		return trades.stream().collect(summaryStatisticsCollector())[1].getSum();
+	}
+
+	@Benchmark
+	public long summaryStatisticsParallel() {
+		return trades.parallelStream().collect(summaryStatisticsCollector())[1].getSum();
+	}
+
+	@Benchmark
+	public long stockPriceStatsSequential() {
+		StockPriceStats stockPriceStats = trades.stream().collect(new StockPriceStatsCollector());
+		return stockPriceStats.getSumTradePriceQuantity();
+	}
+
+	@Benchmark
+	public long stockPriceStatsParallel() {
+		StockPriceStats stockPriceStats = trades.parallelStream().collect(new StockPriceStatsCollector());
+		return stockPriceStats.getSumTradePriceQuantity();
+	}
+
+	/**
+	 * The collector as it was, quantity and price*quantity each in a LongSummaryStatistics
+	 * which also keep a min, max and count, and only IDENTITY_FINISH
+	 */
+	private static Collector<Trade, LongSummaryStatistics[], LongSummaryStatistics[]> summaryStatisticsCollector() {
+		return Collector.of(
+				() -> new LongSummaryStatistics[] {new LongSummaryStatistics(), new LongSummaryStatistics()},
+				(stats, trade) -> {
+					stats[0].accept(trade.getQuantityShares());
+					stats[1].accept(trade.getQuantityShares()*trade.getTradePrice());
+				},
+				(stats, other) -> {
+					stats[0].combine(other[0]);
+					stats[1].combine(other[1]);
+					return stats;
+				},
+				Collector.Characteristics.IDENTITY_FINISH);
+	}
+}
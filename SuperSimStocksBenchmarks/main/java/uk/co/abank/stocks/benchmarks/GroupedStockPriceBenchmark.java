@@ -0,0 +1,72 @@
+package uk.co.abank.stocks.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.co.abank.stocks.calculators.StockCalculator;
+import uk.co.abank.stocks.dataobjects.Trade;
+
+/**
+ * Compares pricing every GBCE stock by splitting the trades by stock and
+ * calculating each one, with the one pass grouped calculation
+ * @author JohnM
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class GroupedStockPriceBenchmark {
+
+	@Param({"10000", "1000000"})
+	public int tradeCount;
+
+	private List<Trade> trades;
+	private StockCalculator stockCalculator;
+
+	@Setup
+	public void setup() {
+		trades = BenchmarkTrades.mixedTrades(tradeCount);
+		stockCalculator = new StockCalculator();
+	}
+
+	@Benchmark
+	public Map<String, BigDecimal> perStock() {
+		Map<String, BigDecimal> stockPrices = new HashMap<>();
+		for (String stockSymbol : BenchmarkTrades.GBCE_SYMBOLS) {
+			List<Trade> stockTrades = trades.stream()
+					.filter(trade -> trade.getStockSymbol().equals(stockSymbol))
+					.collect(Collectors.toList());
+			stockPrices.put(stockSymbol, stockCalculator.calculateStockPriceStreams(stockTrades));
+		}
+		return stockPrices;
+	}
+
+	@Benchmark
+	public Map<String, BigDecimal> grouped() {
+		return stockCalculator.calculateStockPrices(trades);
+	}
+
+	@Benchmark
+	public Map<String, BigDecimal> groupedParallel() {
+		return stockCalculator.calculateStockPricesParallel(trades);
+	}
+}
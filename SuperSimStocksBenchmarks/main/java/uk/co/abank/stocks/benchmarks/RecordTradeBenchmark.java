@@ -0,0 +1,92 @@
+package uk.co.abank.stocks.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.services.TradeService;
+import uk.co.abank.stocks.services.memory.ColumnarTradeStore;
+import uk.co.abank.stocks.services.memory.TradeServiceLockFreeImpl;
+import uk.co.abank.stocks.services.memory.TradeServiceMemoryImpl;
+import uk.co.abank.stocks.services.memory.TradeServicePartitionedImpl;
+
+/**
+ * Throughput of recordTrade with a number of threads recording at the same time
+ * A new service is created for each iteration so the stores don't get too big
+ * Run with -t to change the number of threads
+ * @author JohnM
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Threads(4)
+public class RecordTradeBenchmark {
+
+	@Param({"memory", "partitioned", "lockfree", "columnar"})
+	public String implementation;
+
+	private TradeService tradeService;
+	private Trade[] trades;
+
+	@Setup(Level.Trial)
+	public void setupTrades() {
+		List<Trade> tradeList = BenchmarkTrades.trades(1024);
+		trades = tradeList.toArray(new Trade[tradeList.size()]);
+	}
+
+	@Setup(Level.Iteration)
+	public void setupService() {
+		tradeService = createTradeService(implementation);
+	}
+
+	@Benchmark
+	public boolean recordTrade(ThreadCursor cursor) {
+		return tradeService.recordTrade(trades[cursor.next()]);
+	}
+
+	static TradeService createTradeService(String implementation) {
+		switch (implementation) {
+			case "memory":
+				return new TradeServiceMemoryImpl();
+			case "partitioned":
+				return new TradeServicePartitionedImpl();
+			case "lockfree":
+				return new TradeServiceLockFreeImpl();
+			case "columnar":
+				return new ColumnarTradeStore();
+			default:
+				throw new IllegalArgumentException("Unknown trade service " + implementation);
+		}
+	}
+
+	/**
+	 * Each thread goes round the trades on its own
+	 */
+	@State(Scope.Thread)
+	public static class ThreadCursor {
+		private int index;
+
+		int next() {
+			index = (index + 1) & 1023;
+			return index;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package uk.co.abank.stocks.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.co.abank.stocks.dataobjects.Stock;
+import uk.co.abank.stocks.dataobjects.StockBuilder;
+import uk.co.abank.stocks.referencedata.StockLoader;
+
+/**
+ * Loads a reference data file of stocks a line at a time through the {@link StockBuilder}
+ * against the {@link StockLoader} reading the CSV and binary forms
+ * run with -prof gc to see the allocation per file
+ * @author JohnM
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StockLoaderBenchmark {
+
+	@Param({"50000"})
+	public int stockCount;
+
+	private byte[] csv;
+	private ByteBuffer binary;
+	private StockLoader stockLoader;
+
+	@Setup
+	public void setup() {
+		Stock[] stocks = BenchmarkTrades.stocks(stockCount);
+		StringBuilder lines = new StringBuilder();
+		for (Stock stock : stocks) {
+			lines.append(stock.getStockSymbol()).append(',')
+					.append(stock.getStockType()).append(',')
+					.append(stock.getLastDividend()).append(',')
+					.append(stock.getFixedDividend() == 0 ? "" : String.valueOf(stock.getFixedDividend())).append(',')
+					.append(stock.getParValue()).append('\n');
+		}
+		csv = lines.toString().getBytes(StandardCharsets.US_ASCII);
+		binary = ByteBuffer.allocateDirect(StockLoader.binarySize(Arrays.asList(stocks)));
+		StockLoader.writeBinary(Arrays.asList(stocks), binary);
+		binary.flip();
+		stockLoader = new StockLoader();
+	}
+
+	@Benchmark
+	public List<Stock> stockBuilder() throws IOException {
+		List<Stock> stocks = new ArrayList<>(stockCount);
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.US_ASCII))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split(",", -1);
+				stocks.add(new StockBuilder()
+						.setStockSymbol(fields[0])
+						.setStockType(fields[1])
+						.setLastDividend(Long.parseLong(fields[2]))
+						.setFixedDividend(fields[3])
+						.setParValue(Long.parseLong(fields[4]))
+						.validate().build());
+			}
+		}
+		return stocks;
+	}
+
+	@Benchmark
+	public List<Stock> loadCsv() {
+		List<Stock> stocks = new ArrayList<>(stockCount);
+		stockLoader.loadCsv(ByteBuffer.wrap(csv), false, stocks::add, (lineNumber, errors) -> {});
+		return stocks;
+	}
+
+	@Benchmark
+	public List<Stock> loadBinary() {
+		List<Stock> stocks = new ArrayList<>(stockCount);
+		stockLoader.loadBinary(binary, stocks::add, (lineNumber, errors) -> {});
+		return stocks;
+	}
+}
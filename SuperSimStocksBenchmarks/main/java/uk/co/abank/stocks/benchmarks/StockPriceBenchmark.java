@@ -0,0 +1,62 @@
+package uk.co.abank.stocks.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.co.abank.stocks.calculators.StockCalculator;
+import uk.co.abank.stocks.dataobjects.Trade;
+
+/**
+ * Compares the iterative stock price calculation with the sequential and
+ * parallel stream versions over increasing numbers of trades
+ * @author JohnM
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class StockPriceBenchmark {
+
+	@Param({"1000", "10000", "100000", "1000000", "10000000"})
+	public int tradeCount;
+
+	private List<Trade> trades;
+	private StockCalculator stockCalculator;
+
+	@Setup
+	public void setup() {
+		trades = BenchmarkTrades.trades(tradeCount);
+		stockCalculator = new StockCalculator();
+	}
+
+	@Benchmark
+	public BigDecimal iterative() {
+		return stockCalculator.calculateStockPrice(trades);
+	}
+
+	@Benchmark
+	public BigDecimal streams() {
+		return stockCalculator.calculateStockPriceStreams(trades);
+	}
+
+	@Benchmark
+	public BigDecimal parallelStreams() {
+		return stockCalculator.calculateStockPriceParallelStreams(trades);
+	}
+}
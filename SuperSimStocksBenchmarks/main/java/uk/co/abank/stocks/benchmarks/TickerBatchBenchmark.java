@@ -0,0 +1,69 @@
+package uk.co.abank.stocks.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.co.abank.stocks.calculators.TickerBatchCalculator;
+import uk.co.abank.stocks.calculators.TickerCalculator;
+import uk.co.abank.stocks.dataobjects.Stock;
+
+/**
+ * Refreshes the dividend yield and P/E ratio of a screen of stocks, one call
+ * per stock against the batch calculator
+ * @author JohnM
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickerBatchBenchmark {
+
+	@Param({"5000"})
+	public int stockCount;
+
+	private Stock[] stocks;
+	private long[] tickerPrices;
+	private long[] dividendYields;
+	private long[] peRatios;
+	private TickerCalculator tickerCalculator;
+	private TickerBatchCalculator tickerBatchCalculator;
+
+	@Setup
+	public void setup() {
+		stocks = BenchmarkTrades.stocks(stockCount);
+		tickerPrices = BenchmarkTrades.tickerPrices(stockCount);
+		dividendYields = new long[stockCount];
+		peRatios = new long[stockCount];
+		tickerCalculator = new TickerCalculator();
+		tickerBatchCalculator = new TickerBatchCalculator();
+	}
+
+	@Benchmark
+	public void oneAtATime(Blackhole blackhole) {
+		for (int i = 0; i < stockCount; i++) {
+			blackhole.consume(tickerCalculator.calculateDividendYield(stocks[i], tickerPrices[i]));
+			blackhole.consume(tickerCalculator.calculatePERatio(stocks[i], tickerPrices[i]));
+		}
+	}
+
+	@Benchmark
+	public long[] batch() {
+		tickerBatchCalculator.calculate(stocks, tickerPrices, dividendYields, peRatios);
+		return peRatios;
+	}
+}
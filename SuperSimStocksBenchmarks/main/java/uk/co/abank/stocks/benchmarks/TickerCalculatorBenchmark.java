@@ -0,0 +1,87 @@
+package uk.co.abank.stocks.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.co.abank.stocks.calculators.TickerCalculator;
+import uk.co.abank.stocks.dataobjects.Stock;
+
+/**
+ * Times the dividend yield and P/E ratio for common and preferred stocks
+ * run with -prof gc to see the allocation per call, the Fixed benchmarks return
+ * the primitive {@link uk.co.abank.stocks.calculators.FixedPrice} and shouldn't allocate
+ * @author JohnM
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickerCalculatorBenchmark {
+
+	public long tickerPrice = 33;
+
+	private Stock commonStock;
+	private Stock preferredStock;
+	private TickerCalculator tickerCalculator;
+
+	@Setup
+	public void setup() {
+		commonStock = BenchmarkTrades.commonStock();
+		preferredStock = BenchmarkTrades.preferredStock();
+		tickerCalculator = new TickerCalculator();
+	}
+
+	@Benchmark
+	public BigDecimal dividendYieldCommon() {
+		return tickerCalculator.calculateDividendYield(commonStock, tickerPrice);
+	}
+
+	@Benchmark
+	public BigDecimal dividendYieldPreferred() {
+		return tickerCalculator.calculateDividendYield(preferredStock, tickerPrice);
+	}
+
+	@Benchmark
+	public BigDecimal peRatioCommon() {
+		return tickerCalculator.calculatePERatio(commonStock, tickerPrice);
+	}
+
+	@Benchmark
+	public BigDecimal peRatioPreferred() {
+		return tickerCalculator.calculatePERatio(preferredStock, tickerPrice);
+	}
+
+	@Benchmark
+	public long dividendYieldCommonFixed() {
+		return tickerCalculator.calculateDividendYieldFixed(commonStock, tickerPrice);
+	}
+
+	@Benchmark
+	public long dividendYieldPreferredFixed() {
+		return tickerCalculator.calculateDividendYieldFixed(preferredStock, tickerPrice);
+	}
+
+	@Benchmark
+	public long peRatioCommonFixed() {
+		return tickerCalculator.calculatePERatioFixed(commonStock, tickerPrice);
+	}
+
+	@Benchmark
+	public long peRatioPreferredFixed() {
+		return tickerCalculator.calculatePERatioFixed(preferredStock, tickerPrice);
+	}
+}
@@ -0,0 +1,79 @@
+package uk.co.abank.stocks.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.co.abank.stocks.dataobjects.TradeBuilder;
+import uk.co.abank.stocks.dataobjects.TradeTimes;
+import uk.co.abank.stocks.services.TradeIngestionValidator;
+import uk.co.abank.stocks.services.memory.ColumnarTradeStore;
+
+/**
+ * Ingests a batch of trades into a {@link ColumnarTradeStore} through the
+ * {@link TradeBuilder} against the {@link TradeIngestionValidator}
+ * run with -prof gc, both write the same columns so the difference in
+ * allocation is the builder garbage
+ * @author JohnM
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TradeIngestionBenchmark {
+
+	private static final int BATCH = 10_000;
+
+	private LocalDateTime tradeTime;
+	private long tradeTimeNanos;
+	private ColumnarTradeStore tradeStore;
+	private TradeIngestionValidator tradeIngestionValidator;
+
+	@Setup(Level.Invocation)
+	public void setup() {
+		tradeTime = LocalDateTime.now();
+		tradeTimeNanos = TradeTimes.toEpochNanos(tradeTime);
+		tradeStore = new ColumnarTradeStore();
+		tradeIngestionValidator = new TradeIngestionValidator(tradeStore);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public int tradeBuilder() {
+		for (int i = 0; i < BATCH; i++) {
+			tradeStore.recordTrade(new TradeBuilder()
+					.setStockSymbol(BenchmarkTrades.GBCE_SYMBOLS[i % 5])
+					.setTradeTime(tradeTime)
+					.setQuantityShares(1 + i % 100)
+					.setTradePrice(100 + i % 7)
+					.setBuyNotSell((i & 1) == 0)
+					.validate().build());
+		}
+		return tradeStore.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public int ingestionValidator() {
+		for (int i = 0; i < BATCH; i++) {
+			tradeIngestionValidator.ingest(BenchmarkTrades.GBCE_SYMBOLS[i % 5], 1 + i % 100, (i & 1) == 0,
+					tradeTimeNanos, 100 + i % 7);
+		}
+		return tradeStore.size();
+	}
+}
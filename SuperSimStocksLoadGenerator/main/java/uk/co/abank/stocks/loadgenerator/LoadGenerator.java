@@ -0,0 +1,309 @@
+package uk.co.abank.stocks.loadgenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import uk.co.abank.stocks.calculators.StockCalculator;
+import uk.co.abank.stocks.calculators.TickerCalculator;
+import uk.co.abank.stocks.dataobjects.Stock;
+import uk.co.abank.stocks.dataobjects.StockBuilder;
+import uk.co.abank.stocks.dataobjects.Trade;
+import uk.co.abank.stocks.dataobjects.TradeBuilder;
+import uk.co.abank.stocks.metrics.HistogramSnapshot;
+import uk.co.abank.stocks.metrics.LatencyHistogram;
+import uk.co.abank.stocks.metrics.MetricsRegistry;
+import uk.co.abank.stocks.metrics.MetricsSnapshot;
+import uk.co.abank.stocks.services.TradeService;
+import uk.co.abank.stocks.services.journal.TradeServiceJournalImpl;
+import uk.co.abank.stocks.services.memory.ColumnarTradeStore;
+import uk.co.abank.stocks.services.memory.TradeServiceLockFreeImpl;
+import uk.co.abank.stocks.services.memory.TradeServiceMemoryImpl;
+import uk.co.abank.stocks.services.memory.TradeServicePartitionedImpl;
+
+/**
+ * Simulates a market data gateway, a large number of traders each recording a
+ * trade in one of the GBCE stocks then pausing, while readers keep working out
+ * the stock prices, the All Share Index and the ticker ratios from the trades
+ * Reports the throughput and the latency percentiles of each, so the
+ * {@link TradeService} implementations can be compared under the same load
+ * Each trader has its own virtual thread when the JVM has them, otherwise
+ * the traders take turns on a pool of platform threads
+ * The trades come from a seeded random, so two runs with the same seed and
+ * options make the same trades, only the timing differs
+ * @author JohnM
+ *
+ */
+public class LoadGenerator {
+
+	private final LoadOptions loadOptions;
+	private final TradeService tradeService;
+	private final StockCalculator stockCalculator = new StockCalculator();
+	private final TickerCalculator tickerCalculator = new TickerCalculator();
+	private final Stock[] stocks = gbceStocks();
+	private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+	private final LatencyHistogram recordTradeNanos = metricsRegistry.histogram("trader.recordTrade");
+	private final LatencyHistogram stockPriceNanos = metricsRegistry.histogram("reader.stockPrice");
+	private final LatencyHistogram allShareIndexNanos = metricsRegistry.histogram("reader.allShareIndex");
+	private final LatencyHistogram tickerRatiosNanos = metricsRegistry.histogram("reader.tickerRatios");
+	private final LongAdder recorded = metricsRegistry.counter("trader.recorded");
+	private final LongAdder notRecorded = metricsRegistry.counter("trader.notRecorded");
+	private final LongAdder readerErrors = metricsRegistry.counter("reader.errors");
+
+	private long endNanos;
+
+	/**
+	 * Constructor
+	 * @param loadOptions
+	 * @param tradeService the service the traders record into
+	 */
+	public LoadGenerator(LoadOptions loadOptions, TradeService tradeService) {
+		this.loadOptions = loadOptions;
+		this.tradeService = tradeService;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && ("--help".equals(args[0]) || "-h".equals(args[0]))) {
+			System.out.print(LoadOptions.USAGE);
+			return;
+		}
+		LoadOptions loadOptions;
+		TradeService tradeService;
+		try {
+			loadOptions = LoadOptions.parse(args);
+			tradeService = createTradeService(loadOptions.getService());
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.print(LoadOptions.USAGE);
+			System.exit(1);
+			return;
+		}
+		try {
+			System.out.print(new LoadGenerator(loadOptions, tradeService).run());
+		} finally {
+			if (tradeService instanceof Closeable)
+				((Closeable)tradeService).close();
+		}
+	}
+
+	/**
+	 *
+	 * @param service the name of the service from the --service option
+	 * @return a new empty service
+	 * @throws IOException if the journal directory can't be created
+	 */
+	public static TradeService createTradeService(String service) throws IOException {
+		switch (service) {
+		case "memory":
+			return new TradeServiceMemoryImpl();
+		case "lockfree":
+			return new TradeServiceLockFreeImpl();
+		case "partitioned":
+			return new TradeServicePartitionedImpl();
+		case "columnar":
+			return new ColumnarTradeStore();
+		case "journal":
+			return new TradeServiceJournalImpl(Files.createTempDirectory("supersimstocks-journal"));
+		default:
+			throw new IllegalArgumentException("Unknown service " + service);
+		}
+	}
+
+	/**
+	 * Runs the traders and readers for the number of seconds in the options
+	 * @return the report
+	 * @throws InterruptedException
+	 */
+	public String run() throws InterruptedException {
+		SplittableRandom seeded = new SplittableRandom(loadOptions.getSeed());
+		long startNanos = System.nanoTime();
+		endNanos = startNanos + TimeUnit.SECONDS.toNanos(loadOptions.getSeconds());
+
+		List<Thread> readers = new ArrayList<>();
+		for (int reader = 0; reader < loadOptions.getReaders(); reader++) {
+			SplittableRandom random = seeded.split();
+			Thread thread = new Thread(() -> read(random), "load-reader-" + reader);
+			thread.setDaemon(true);
+			readers.add(thread);
+		}
+
+		String threads;
+		ExecutorService virtualThreads = TraderThreads.newVirtualThreadPerTaskExecutor();
+		if (virtualThreads != null) {
+			threads = "virtual";
+			readers.forEach(Thread::start);
+			for (int trader = 0; trader < loadOptions.getTraders(); trader++) {
+				SplittableRandom random = seeded.split();
+				virtualThreads.execute(() -> trade(random));
+			}
+			virtualThreads.shutdown();
+			virtualThreads.awaitTermination(loadOptions.getSeconds() + 60L, TimeUnit.SECONDS);
+		} else {
+			threads = "platform(" + loadOptions.getPlatformThreads() + ")";
+			ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(loadOptions.getPlatformThreads());
+			scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+			readers.forEach(Thread::start);
+			for (int trader = 0; trader < loadOptions.getTraders(); trader++) {
+				scheduler.execute(new ScheduledTrader(seeded.split(), scheduler));
+			}
+			TimeUnit.NANOSECONDS.sleep(Math.max(0L, endNanos - System.nanoTime()));
+			scheduler.shutdown();
+			scheduler.awaitTermination(60L, TimeUnit.SECONDS);
+		}
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		return report(threads, (System.nanoTime() - startNanos) / 1e9);
+	}
+
+	/**
+	 * A trader on its own virtual thread, pausing is just a sleep
+	 */
+	private void trade(SplittableRandom random) {
+		try {
+			while (System.nanoTime() < endNanos) {
+				recordTrade(random);
+				Thread.sleep(thinkMillis(random));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * A trader sharing the platform threads, instead of sleeping it schedules
+	 * its next trade and gives the thread back
+	 */
+	private final class ScheduledTrader implements Runnable {
+
+		private final SplittableRandom random;
+		private final ScheduledThreadPoolExecutor scheduler;
+
+		ScheduledTrader(SplittableRandom random, ScheduledThreadPoolExecutor scheduler) {
+			this.random = random;
+			this.scheduler = scheduler;
+		}
+
+		@Override
+		public void run() {
+			if (System.nanoTime() >= endNanos || scheduler.isShutdown())
+				return;
+			recordTrade(random);
+			try {
+				scheduler.schedule(this, thinkMillis(random), TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException e) {
+				// the run has finished
+			}
+		}
+	}
+
+	private void recordTrade(SplittableRandom random) {
+		int stock = random.nextInt(stocks.length);
+		TradeBuilder tradeBuilder = new TradeBuilder()
+				.setStockSymbol(stocks[stock].getStockSymbol())
+				.setQuantityShares(1 + random.nextInt(1000))
+				.setTradePrice(50 + 20 * stock + random.nextInt(100))
+				.setBuyNotSell(random.nextBoolean())
+				.validate();
+		long startNanos = System.nanoTime();
+		boolean tradeRecorded = tradeService.recordTrade(tradeBuilder.build());
+		recordTradeNanos.recordSince(startNanos);
+		(tradeRecorded ? recorded : notRecorded).increment();
+	}
+
+	private int thinkMillis(SplittableRandom random) {
+		return loadOptions.getThinkMillis() == 0 ? 0 : random.nextInt(2 * loadOptions.getThinkMillis() + 1);
+	}
+
+	/**
+	 * Takes turns at the three reads until the end, an exception from a read
+	 * is counted, e.g. a service whose trade list can't be read while it is
+	 * being written to
+	 */
+	private void read(SplittableRandom random) {
+		for (int read = 0; System.nanoTime() < endNanos; read++) {
+			long startNanos = System.nanoTime();
+			try {
+				switch (read % 3) {
+				case 0:
+					List<Trade> trades = tradeService.getTrades(stocks[random.nextInt(stocks.length)].getStockSymbol());
+					if (!trades.isEmpty())
+						stockCalculator.calculateStockPrice(trades);
+					stockPriceNanos.recordSince(startNanos);
+					break;
+				case 1:
+					Map<String, BigDecimal> stockPrices = stockCalculator.calculateStockPrices(tradeService.getTrades());
+					if (!stockPrices.isEmpty())
+						stockCalculator.calculateAllShareIndex(stockPrices.values());
+					allShareIndexNanos.recordSince(startNanos);
+					break;
+				default:
+					for (Stock stock : stocks) {
+						long tickerPrice = 1 + random.nextInt(1000);
+						tickerCalculator.calculateDividendYieldFixed(stock, tickerPrice);
+						if (!stock.isDividendZero())
+							tickerCalculator.calculatePERatioFixed(stock, tickerPrice);
+					}
+					tickerRatiosNanos.recordSince(startNanos);
+				}
+			} catch (RuntimeException e) {
+				readerErrors.increment();
+			}
+		}
+	}
+
+	private String report(String threads, double seconds) {
+		MetricsSnapshot snapshot = metricsRegistry.snapshot();
+		StringBuilder report = new StringBuilder();
+		report.append("SuperSimStocks load ").append(loadOptions).append(" threads=").append(threads).append('\n');
+		report.append(String.format(Locale.ROOT, "elapsed %.1fs%n", seconds));
+		report.append(String.format(Locale.ROOT, "trades recorded %d (%.0f/s), not recorded %d%n",
+				snapshot.getCounter("trader.recorded"), snapshot.getCounter("trader.recorded") / seconds,
+				snapshot.getCounter("trader.notRecorded")));
+		for (String read : new String[] {"reader.stockPrice", "reader.allShareIndex", "reader.tickerRatios"}) {
+			long count = snapshot.getHistogram(read).getCount();
+			report.append(String.format(Locale.ROOT, "%s %d (%.0f/s)%n", read, count, count / seconds));
+		}
+		report.append("reader.errors ").append(snapshot.getCounter("reader.errors")).append('\n');
+		report.append("latency microseconds      p50       p90       p99     p99.9       max\n");
+		for (Map.Entry<String, HistogramSnapshot> histogram : snapshot.getHistograms().entrySet()) {
+			HistogramSnapshot latency = histogram.getValue();
+			report.append(String.format(Locale.ROOT, "%-22s %9.1f %9.1f %9.1f %9.1f %9.1f%n", histogram.getKey(),
+					latency.getP50() / 1e3, latency.getP90() / 1e3, latency.getP99() / 1e3,
+					latency.getP999() / 1e3, latency.getMax() / 1e3));
+		}
+		return report.toString();
+	}
+
+	private static Stock[] gbceStocks() {
+		return new Stock[] {
+				gbceStock("TEA", "Common", 0, "", 100),
+				gbceStock("POP", "Common", 8, "", 100),
+				gbceStock("ALE", "Common", 23, "", 60),
+				gbceStock("GIN", "Preferred", 8, "2", 100),
+				gbceStock("JOE", "Common", 13, "", 250)
+		};
+	}
+
+	private static Stock gbceStock(String stockSymbol, String stockType, long lastDividend, String fixedDividend,
+			long parValue) {
+		return new StockBuilder()
+				.setStockSymbol(stockSymbol)
+				.setStockType(stockType)
+				.setLastDividend(lastDividend)
+				.setFixedDividend(fixedDividend)
+				.setParValue(parValue)
+				.validate().build();
+	}
+}
@@ -0,0 +1,149 @@
+package uk.co.abank.stocks.loadgenerator;
+
+/**
+ * The command line options of the {@link LoadGenerator}, each one is
+ * --name value and any that aren't given keep their default
+ * @author JohnM
+ *
+ */
+public final class LoadOptions {
+
+	/**
+	 * The longest average pause, a trader pauses for up to twice it
+	 */
+	static final int MAX_THINK_MILLIS = 60_000;
+
+	static final String USAGE = "java -jar loadgenerator.jar [options]\n"
+			+ "  --service memory|lockfree|partitioned|columnar|journal  TradeService to load (partitioned)\n"
+			+ "  --traders n        simulated traders each recording trades (10000)\n"
+			+ "  --readers n        threads reading prices, the index and ticker ratios (4)\n"
+			+ "  --seconds n        how long to run for (30)\n"
+			+ "  --think-millis n   average pause between a trader's trades, up to 60000 (10)\n"
+			+ "  --seed n           seed for the trades, the same seed gives the same trades (42)\n"
+			+ "  --platform-threads n  threads running the traders when there are no virtual threads (64)\n";
+
+	private String service = "partitioned";
+	private int traders = 10_000;
+	private int readers = 4;
+	private int seconds = 30;
+	private int thinkMillis = 10;
+	private long seed = 42L;
+	private int platformThreads = 64;
+
+	/**
+	 *
+	 * @param args
+	 * @return the options
+	 * @throws IllegalArgumentException for an unknown option or a bad value
+	 */
+	public static LoadOptions parse(String[] args) {
+		LoadOptions loadOptions = new LoadOptions();
+		for (int i = 0; i < args.length; i += 2) {
+			if (i + 1 >= args.length)
+				throw new IllegalArgumentException("No value for " + args[i]);
+			String value = args[i + 1];
+			switch (args[i]) {
+			case "--service":
+				loadOptions.service = value;
+				break;
+			case "--traders":
+				loadOptions.traders = positive(args[i], value);
+				break;
+			case "--readers":
+				loadOptions.readers = between(args[i], value, 0, Integer.MAX_VALUE);
+				break;
+			case "--seconds":
+				loadOptions.seconds = positive(args[i], value);
+				break;
+			case "--think-millis":
+				loadOptions.thinkMillis = between(args[i], value, 0, MAX_THINK_MILLIS);
+				break;
+			case "--seed":
+				loadOptions.seed = Long.parseLong(value);
+				break;
+			case "--platform-threads":
+				loadOptions.platformThreads = positive(args[i], value);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+		return loadOptions;
+	}
+
+	private static int positive(String option, String value) {
+		int number = Integer.parseInt(value);
+		if (number <= 0)
+			throw new IllegalArgumentException(option + " must be greater than zero " + value);
+		return number;
+	}
+
+	private static int between(String option, String value, int min, int max) {
+		int number = Integer.parseInt(value);
+		if (number < min || number > max)
+			throw new IllegalArgumentException(option + " must be from " + min + " to " + max + " " + value);
+		return number;
+	}
+
+	/**
+	 *
+	 * @return the name of the TradeService to load
+	 */
+	public String getService() {
+		return service;
+	}
+
+	/**
+	 *
+	 * @return the number of simulated traders
+	 */
+	public int getTraders() {
+		return traders;
+	}
+
+	/**
+	 *
+	 * @return the number of reader threads
+	 */
+	public int getReaders() {
+		return readers;
+	}
+
+	/**
+	 *
+	 * @return how long to run for
+	 */
+	public int getSeconds() {
+		return seconds;
+	}
+
+	/**
+	 *
+	 * @return the average pause between a trader's trades
+	 */
+	public int getThinkMillis() {
+		return thinkMillis;
+	}
+
+	/**
+	 *
+	 * @return the seed for the trades
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 *
+	 * @return the threads running the traders when there are no virtual threads
+	 */
+	public int getPlatformThreads() {
+		return platformThreads;
+	}
+
+	@Override
+	public String toString() {
+		return "service=" + service + " traders=" + traders + " readers=" + readers + " seconds=" + seconds
+				+ " thinkMillis=" + thinkMillis + " seed=" + seed;
+	}
+}
@@ -0,0 +1,29 @@
+package uk.co.abank.stocks.loadgenerator;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Finds out if the JVM has virtual threads, Java 21 or later, the project is
+ * built for Java 8 so they are looked up by reflection rather than called
+ * @author JohnM
+ *
+ */
+final class TraderThreads {
+
+	private TraderThreads() {
+	}
+
+	/**
+	 *
+	 * @return an executor starting a virtual thread per task, or null if there are no virtual threads
+	 */
+	static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			Method method = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService)method.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package uk.co.abank.stocks.loadgenerator;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * JUnit tests for the {@link LoadOptions} read from the command line
+ * @author JohnM
+ *
+ */
+public class TestLoadOptions {
+
+	/**
+	 * Tests the options given are read and the rest keep their defaults
+	 */
+	@Test
+	public void testParse() {
+		LoadOptions loadOptions = LoadOptions.parse(new String[] {"--service", "journal", "--readers", "0",
+				"--think-millis", "0", "--seed", "7"});
+
+		assertEquals("journal", loadOptions.getService());
+		assertEquals(0, loadOptions.getReaders());
+		assertEquals(0, loadOptions.getThinkMillis());
+		assertEquals(7L, loadOptions.getSeed());
+		assertEquals(10_000, loadOptions.getTraders());
+		assertEquals(30, loadOptions.getSeconds());
+	}
+
+	/**
+	 * Tests a negative number of readers is turned away rather than treated as none
+	 */
+	@Test (expected = IllegalArgumentException.class)
+	public void testNegativeReaders() {
+		LoadOptions.parse(new String[] {"--readers", "-1"});
+	}
+
+	/**
+	 * Tests a negative pause is turned away rather than treated as none
+	 */
+	@Test (expected = IllegalArgumentException.class)
+	public void testNegativeThinkMillis() {
+		LoadOptions.parse(new String[] {"--think-millis", "-5"});
+	}
+
+	/**
+	 * Tests a pause long enough to overflow the random pause is turned away
+	 */
+	@Test (expected = IllegalArgumentException.class)
+	public void testThinkMillisTooLong() {
+		LoadOptions.parse(new String[] {"--think-millis", String.valueOf(Integer.MAX_VALUE)});
+	}
+
+	/**
+	 * Tests an option without a value throws an {@link IllegalArgumentException}
+	 */
+	@Test (expected = IllegalArgumentException.class)
+	public void testNoValue() {
+		LoadOptions.parse(new String[] {"--traders"});
+	}
+}